@@ -20,11 +20,13 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import com.alibaba.android.bindingx.core.internal.AbstractEventHandler;
 import com.alibaba.android.bindingx.core.internal.BindingXConstants;
 import com.alibaba.android.bindingx.core.internal.BindingXOrientationHandler;
 import com.alibaba.android.bindingx.core.internal.ExpressionPair;
 import com.alibaba.android.bindingx.core.internal.BindingXTimingHandler;
 import com.alibaba.android.bindingx.core.internal.BindingXTouchHandler;
+import com.alibaba.android.bindingx.core.internal.TimingFunctions;
 import com.alibaba.android.bindingx.core.internal.Utils;
 
 import org.json.JSONObject;
@@ -48,6 +50,7 @@ public class BindingXCore {
     private final Map<String, ObjectCreator<IEventHandler, Context, PlatformManager>> mInternalEventHandlerCreatorMap =
             new HashMap<>(8);
     private final PlatformManager mPlatformManager;
+    private String mExpressionEngine = BindingXConstants.EXPRESSION_ENGINE_INTERPRETER;
 
     /**
      * default constructor
@@ -346,6 +349,53 @@ public class BindingXCore {
         mInternalEventHandlerCreatorMap.put(eventType, creator);
     }
 
+    /**
+     * select how expressions are evaluated by the event handlers created afterwards.
+     *
+     * @param engine {@link BindingXConstants#EXPRESSION_ENGINE_INTERPRETER}(default) evaluates the compiled
+     *               expression tree recursively, {@link BindingXConstants#EXPRESSION_ENGINE_BYTECODE}
+     *               lowers it into flat bytecode which is executed in a single loop.
+     * */
+    public void setExpressionEngine(@BindingXConstants.ExpressionEngine String engine) {
+        if (TextUtils.isEmpty(engine)) {
+            return;
+        }
+        mExpressionEngine = engine;
+    }
+
+    /**
+     * evaluate the {@code sine}, {@code expo} and {@code elastic} easing functions by looking them up in
+     * pre-sampled tables, which is much cheaper than computing them when many properties are eased at
+     * once. The tables are shared by all instances and the setting applies to the whole process.
+     *
+     * With {@link BindingXConstants#EASING_TABLE_RESOLUTION} samples the values are off by less than 2e-4
+     * of the animated range with {@link BindingXConstants#EASING_INTERPOLATION_LINEAR} interpolation,
+     * and less than 1e-5 with {@link BindingXConstants#EASING_INTERPOLATION_CUBIC}, except within two
+     * samples of the middle of {@code easeInOutExpo} and {@code easeInOutElastic}, where the halves do
+     * not join smoothly and the cubic error is less than 1e-4. The start and end values are exact.
+     *
+     * @param resolution the number of intervals between samples, 0 to compute the functions again.
+     * @param interpolation how values between samples are interpolated.
+     * */
+    public static void setEasingLookupTables(int resolution, @BindingXConstants.EasingInterpolation String interpolation) {
+        TimingFunctions.useLookupTables(resolution, interpolation);
+    }
+
+    /**
+     * make a native function callable by {@code name} from expressions, e.g. {@code rubberBand(x, 0, 300)}.
+     * Calls of registered functions take the same primitive path as the built-in ones, and calls of
+     * {@link ExpressionFunction#isPure() pure} functions with constant arguments are evaluated when the
+     * expression is compiled. The registry is shared by all instances and applies to expressions bound afterwards.
+     *
+     * @param name an identifier that is neither the name of a built-in function nor a keyword like {@code true}
+     *             or a variable like {@code x} or {@code t}. A function registered with
+     *             the same name before is replaced.
+     * @return false if the function can not be registered with this name
+     * */
+    public static boolean registerFunction(@NonNull String name, @NonNull ExpressionFunction function) {
+        return Utils.registerFunction(name, function);
+    }
+
     private String generateToken() {
         return UUID.randomUUID().toString();
     }
@@ -358,7 +408,11 @@ public class BindingXCore {
             return null;
         }
         ObjectCreator<IEventHandler, Context, PlatformManager> creator = mInternalEventHandlerCreatorMap.get(eventType);
-        return (creator != null) ? creator.createWith(context,mPlatformManager,instanceId) : null;
+        IEventHandler handler = (creator != null) ? creator.createWith(context,mPlatformManager,instanceId) : null;
+        if (handler instanceof AbstractEventHandler) {
+            ((AbstractEventHandler) handler).setExpressionEngine(mExpressionEngine);
+        }
+        return handler;
     }
 
     /**
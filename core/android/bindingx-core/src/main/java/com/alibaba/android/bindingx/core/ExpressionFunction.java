@@ -0,0 +1,86 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Description:
+ *
+ * A numeric function that expressions can call by name after it has been registered with
+ * {@link BindingXCore#registerFunction(String, ExpressionFunction)}, e.g. a rubber band clamp or a spring curve
+ * that would otherwise be written as a large expression.
+ *
+ * Arguments and results are doubles. Like the built-in functions, a call with 1 to 4 arguments goes
+ * directly to the overload of {@link #call(double)} with that many parameters, so it neither boxes nor allocates.
+ * They fall back to {@link #call(double[])}, which every subclass implements. A subclass with an {@link #getArity() arity}
+ * of 1 to 4 may also override the overload with that many parameters to avoid the array.
+ *
+ * A pure function always returns the same result for the same arguments and has no side effects, so calls
+ * with constant arguments are evaluated once when the expression is compiled.
+ *
+ */
+public abstract class ExpressionFunction {
+
+    /**
+     * arity of a function that takes any number of arguments but at least one.
+     * */
+    public static final int VARIADIC = -1;
+
+    private final int mArity;
+    private final boolean mPure;
+
+    /**
+     * @param arity the number of arguments, or {@link #VARIADIC}
+     * @param pure true if the result only depends on the arguments
+     * */
+    protected ExpressionFunction(int arity, boolean pure) {
+        if (arity < VARIADIC) {
+            throw new IllegalArgumentException("illegal arity " + arity);
+        }
+        this.mArity = arity;
+        this.mPure = pure;
+    }
+
+    public final int getArity() {
+        return mArity;
+    }
+
+    public final boolean isPure() {
+        return mPure;
+    }
+
+    public double call(double a) {
+        return call(new double[]{a});
+    }
+
+    public double call(double a, double b) {
+        return call(new double[]{a, b});
+    }
+
+    public double call(double a, double b, double c) {
+        return call(new double[]{a, b, c});
+    }
+
+    public double call(double a, double b, double c, double d) {
+        return call(new double[]{a, b, c, d});
+    }
+
+    /**
+     * the generic entry point, for calls with more than 4 arguments and for the overloads that are not overridden.
+     * */
+    public abstract double call(@NonNull double[] args);
+}
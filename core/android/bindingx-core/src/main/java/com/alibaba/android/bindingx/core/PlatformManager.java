@@ -91,6 +91,52 @@ public class PlatformManager {
                                                Object... extension);
     }
 
+    /**
+     * The properties that have changed on one view since it was updated last time. Only valid during
+     * {@link IBatchViewUpdater#applyUpdate(View, IViewUpdate, IDeviceResolutionTranslator)}. The values
+     * belong to the update and are not modified by the handlers while it is applied.
+     * */
+    public interface IViewUpdate {
+
+        /**
+         * @return the number of properties to apply
+         * */
+        int size();
+
+        @NonNull
+        String propertyAt(int index);
+
+        @NonNull
+        Object valueAt(int index);
+
+        @NonNull
+        Map<String, Object> configAt(int index);
+
+        String getTargetRef();
+
+        String getInstanceId();
+    }
+
+    /**
+     * Optional interface of a {@link IViewUpdater}. If the view updater implements it, the properties that
+     * one event changes on a view are collected into a {@link IViewUpdate}, and the updates of all bindings
+     * are applied together in one callback per frame instead of one dispatch per property.
+     * */
+    public interface IBatchViewUpdater extends IViewUpdater {
+
+        /**
+         * apply all properties of {@code update} to {@code targetView}. It is called on the UI thread while a
+         * frame is committed, so the properties are applied right away rather than posted.
+         *
+         * @param targetView target view that will be updated
+         * @param update the changed properties, their values and configurations
+         * @param translator handle device resolution for different platforms
+         * */
+        void applyUpdate(@NonNull View targetView,
+                         @NonNull IViewUpdate update,
+                         @NonNull IDeviceResolutionTranslator translator);
+    }
+
 
 
     /**A helper class to create {@link PlatformManager} */
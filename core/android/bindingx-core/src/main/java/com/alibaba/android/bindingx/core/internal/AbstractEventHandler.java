@@ -30,9 +30,10 @@ import com.alibaba.android.bindingx.core.PlatformManager;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -51,7 +52,7 @@ public abstract class AbstractEventHandler implements IEventHandler {
 
     protected volatile Map<String/*targetRef*/, List<ExpressionHolder>> mExpressionHoldersMap;
     protected BindingXCore.JavaScriptCallback mCallback;
-    protected final Map<String, Object> mScope = new HashMap<>();
+    protected final ExpressionScope mScope = new ExpressionScope();
     protected String mInstanceId;
     protected String mAnchorInstanceId;
     protected String mToken;
@@ -60,7 +61,22 @@ public abstract class AbstractEventHandler implements IEventHandler {
 
     protected ExpressionPair mExitExpressionPair;
 
-    private Cache<String, Expression> mCachedExpressionMap = new Cache<>(16);
+    // compiled form of mExitExpressionPair
+    private Expression mExitExpression;
+
+    // mExpressionHoldersMap flattened per event type, compiled when expressions are bound
+    private volatile Map<String/*eventType*/, BindingProgram> mBindingPrograms = Collections.emptyMap();
+
+    // targets whose properties have been changed by the event being consumed(see PlatformManager.IBatchViewUpdater)
+    private final List<TargetView> mUpdatedTargets = new ArrayList<>();
+    private int mEventSerial;
+    // applies the staged updates of all handlers once per frame
+    FrameCommitter mFrameCommitter = FrameCommitter.getInstance();
+
+    private String mExpressionEngine = BindingXConstants.EXPRESSION_ENGINE_INTERPRETER;
+
+    // numbers that differ by no more than this are treated as the same value when updating views
+    private double mUpdateEpsilon = 0;
 
     public AbstractEventHandler(Context context, PlatformManager manager, Object... extension) {
         mContext = context;
@@ -73,6 +89,15 @@ public abstract class AbstractEventHandler implements IEventHandler {
         this.mAnchorInstanceId = anchorInstanceId;
     }
 
+    /**
+     * select how bound expressions are evaluated. This should be called before expressions are bound.
+     *
+     * @param engine {@link BindingXConstants#EXPRESSION_ENGINE_INTERPRETER} or {@link BindingXConstants#EXPRESSION_ENGINE_BYTECODE}
+     * */
+    public void setExpressionEngine(@BindingXConstants.ExpressionEngine String engine) {
+        this.mExpressionEngine = engine;
+    }
+
     @Override
     public void onBindExpression(@NonNull String eventType,
                                  @Nullable Map<String,Object> globalConfig,
@@ -81,8 +106,12 @@ public abstract class AbstractEventHandler implements IEventHandler {
                                  @Nullable BindingXCore.JavaScriptCallback callback) {
         clearExpressions();
         transformArgs(eventType, expressionArgs);
-        this.mCallback = callback;
         this.mExitExpressionPair = exitExpressionPair;
+        this.mExitExpression = exitExpressionPair == null ? null : obtainExpression(exitExpressionPair);
+        shareSubexpressions();
+        this.mBindingPrograms = BindingProgram.compileAll(mExpressionHoldersMap, mInstanceId);
+        this.mCallback = callback;
+        this.mUpdateEpsilon = parseUpdateEpsilon(globalConfig);
 
         if(!mScope.isEmpty()) {
             mScope.clear();
@@ -93,12 +122,27 @@ public abstract class AbstractEventHandler implements IEventHandler {
     @Override
     @CallSuper
     public void onDestroy() {
-        mCachedExpressionMap.clear();
+        // compiled expressions are kept in ExpressionCache and outlive the handler
+        releaseBindingPrograms();
+    }
+
+    private static double parseUpdateEpsilon(@Nullable Map<String, Object> globalConfig) {
+        Object value = globalConfig == null ? null : globalConfig.get(BindingXConstants.KEY_UPDATE_EPSILON);
+        try {
+            if (value instanceof Number) {
+                return Math.max(0, ((Number) value).doubleValue());
+            } else if (value instanceof String) {
+                return Math.max(0, Double.parseDouble((String) value));
+            }
+        } catch (NumberFormatException e) {
+            LogProxy.e("illegal " + BindingXConstants.KEY_UPDATE_EPSILON + ":" + value);
+        }
+        return 0;
     }
 
     private void applyFunctionsToScope() {
-        JSMath.applyToScope(mScope);
-        TimingFunctions.applyToScope(mScope);
+        // built-in and registered functions
+        Builtins.applyToScope(mScope);
     }
 
     private void transformArgs(@NonNull String eventType, @NonNull List<Map<String, Object>> originalArgs) {
@@ -106,6 +150,10 @@ public abstract class AbstractEventHandler implements IEventHandler {
             mExpressionHoldersMap = new HashMap<>();
         }
         for (Map<String, Object> arg : originalArgs) {
+            if (arg.get(BindingXConstants.KEY_ELEMENT) instanceof List) {
+                transformBatchArgs(eventType, arg);
+                continue;
+            }
             String targetRef = Utils.getStringValue(arg, BindingXConstants.KEY_ELEMENT);
             String targetInstanceId = Utils.getStringValue(arg, BindingXConstants.KEY_INSTANCE_ID);
             String property = Utils.getStringValue(arg, BindingXConstants.KEY_PROPERTY);
@@ -127,16 +175,178 @@ public abstract class AbstractEventHandler implements IEventHandler {
                 continue;
             }
             ExpressionHolder holder = new ExpressionHolder(targetRef,targetInstanceId, expressionPair, property, eventType, configMap);
+            if (addHolder(holder)) {
+                holder.expression = obtainExpression(expressionPair);
+            }
+        }
+    }
+
+    /**
+     * @return false if an identical holder has been added before
+     * */
+    private boolean addHolder(@NonNull ExpressionHolder holder) {
+        List<ExpressionHolder> holders = mExpressionHoldersMap.get(holder.targetRef);
+        if (holders == null) {
+            holders = new ArrayList<>(4);
+            mExpressionHoldersMap.put(holder.targetRef, holders);
+        } else if (holders.contains(holder)) {
+            return false;
+        }
+        holders.add(holder);
+        return true;
+    }
+
+    /**
+     * bind one expression to a list of elements, e.g. the cells of a staggered list animation:
+     * <pre>
+     *   {element: ['cell0', 'cell1', ...], property: ..., expression: ..., params: {i: [0, 1, ...]}}
+     * </pre>
+     * The variables in {@code params} take the value at the index of the element. Numeric expressions
+     * are evaluated for all elements at once by a {@link BatchExpression}, the others are bound to every
+     * element with the values folded in.
+     * */
+    private void transformBatchArgs(@NonNull String eventType, @NonNull Map<String, Object> arg) {
+        List<?> targetRefs = (List<?>) arg.get(BindingXConstants.KEY_ELEMENT);
+        String targetInstanceId = Utils.getStringValue(arg, BindingXConstants.KEY_INSTANCE_ID);
+        String property = Utils.getStringValue(arg, BindingXConstants.KEY_PROPERTY);
+        ExpressionPair expressionPair = Utils.getExpressionPair(arg, BindingXConstants.KEY_EXPRESSION);
+        if (targetRefs.isEmpty() || TextUtils.isEmpty(property) || expressionPair == null) {
+            LogProxy.e("skip illegal batch binding args[" + targetRefs + "," + property + "," + expressionPair + "]");
+            return;
+        }
+
+        int lanes = targetRefs.size();
+        Object paramsObj = arg.get(BindingXConstants.KEY_PARAMS);
+        Map<?, ?> params = paramsObj instanceof Map ? (Map<?, ?>) paramsObj : Collections.emptyMap();
+        String[] names = new String[params.size()];
+        double[][] parameters = new double[params.size()][];
+        int index = 0;
+        for (Map.Entry<?, ?> entry : params.entrySet()) {
+            double[] values = toDoubleArray(entry.getValue(), lanes);
+            if (values == null) {
+                LogProxy.e("skip batch binding with illegal params[" + entry.getKey() + "," + entry.getValue() + "]");
+                return;
+            }
+            names[index] = String.valueOf(entry.getKey());
+            parameters[index++] = values;
+        }
+
+        Map<String,Object> configMap = null;
+        Object configObj = arg.get(BindingXConstants.KEY_CONFIG);
+        if(configObj instanceof Map) {
+            try {
+                configMap = Utils.toMap(new JSONObject((Map) configObj));
+            }catch (Exception e) {
+                LogProxy.e("parse config failed", e);
+            }
+        }
+
+        Expression expression = obtainExpression(expressionPair);
+        BatchExpression batch = expression == null ? null : BatchExpression.create(expression, names, parameters, lanes);
+        for (int lane = 0; lane < lanes; lane++) {
+            Object targetRef = targetRefs.get(lane);
+            if (!(targetRef instanceof String) || TextUtils.isEmpty((String) targetRef)) {
+                LogProxy.e("skip illegal batch binding element[" + targetRef + "]");
+                continue;
+            }
+            ExpressionHolder holder = new ExpressionHolder((String) targetRef, targetInstanceId, expressionPair, property, eventType, configMap);
+            if (!addHolder(holder)) {
+                continue;
+            }
+            if (batch != null) {
+                holder.expression = expression;
+                holder.batch = batch;
+                holder.lane = lane;
+            } else if (expression != null) {
+                holder.expression = BatchExpression.bindLane(expression, names, parameters, lane);
+            }
+        }
+    }
+
+    @Nullable
+    private static double[] toDoubleArray(Object value, int length) {
+        if (!(value instanceof List) || ((List<?>) value).size() != length) {
+            return null;
+        }
+        double[] result = new double[length];
+        for (int i = 0; i < length; i++) {
+            Object item = ((List<?>) value).get(i);
+            if (item instanceof Number) {
+                result[i] = ((Number) item).doubleValue();
+            } else if (item instanceof String) {
+                try {
+                    result[i] = Double.parseDouble((String) item);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * compile the expression, or reuse the one that has been compiled before by any handler.
+     *
+     * @return compiled expression or null if there is nothing to execute
+     * */
+    @Nullable
+    private Expression obtainExpression(@NonNull ExpressionPair expressionPair) {
+        return ExpressionCache.getInstance().obtain(expressionPair);
+    }
+
+    /**
+     * merge identical subtrees of all bound expressions and the exit expression, so that each of them
+     * is evaluated only once per event.
+     * Compiled expressions in the cache are left untouched, holders get rewritten copies instead.
+     * */
+    private void shareSubexpressions() {
+        boolean hasExit = mExitExpression != null && mExitExpression.isValid();
+        if (mExpressionHoldersMap == null && !hasExit) {
+            return;
+        }
+        CommonSubexpressionEliminator eliminator = new CommonSubexpressionEliminator();
+        if (mExpressionHoldersMap != null) {
+            for (List<ExpressionHolder> holders : mExpressionHoldersMap.values()) {
+                for (ExpressionHolder holder : holders) {
+                    // a batch evaluates its own lowered copy of the expression
+                    if (holder.batch == null && holder.expression != null && holder.expression.isValid()) {
+                        eliminator.add(holder.expression.root);
+                    }
+                }
+            }
+        }
+        if (hasExit) {
+            eliminator.add(mExitExpression.root);
+        }
 
-            List<ExpressionHolder> holders = mExpressionHoldersMap.get(targetRef);
-            if (holders == null) {
-                holders = new ArrayList<>(4);
-                mExpressionHoldersMap.put(targetRef, holders);
-                holders.add(holder);
-            } else if (!holders.contains(holder)) {
-                holders.add(holder);
+        Map<Expression, Expression> rewritten = new HashMap<>();
+        if (mExpressionHoldersMap != null) {
+            for (List<ExpressionHolder> holders : mExpressionHoldersMap.values()) {
+                for (ExpressionHolder holder : holders) {
+                    if (holder.batch == null && holder.expression != null && holder.expression.isValid()) {
+                        holder.expression = rewrite(eliminator, rewritten, holder.expression);
+                    }
+                }
             }
         }
+        if (hasExit) {
+            mExitExpression = rewrite(eliminator, rewritten, mExitExpression);
+        }
+    }
+
+    private Expression rewrite(CommonSubexpressionEliminator eliminator, Map<Expression, Expression> rewritten,
+                               Expression origin) {
+        Expression expression = rewritten.get(origin);
+        if (expression == null) {
+            expression = new Expression(eliminator.rewrite(origin.root));
+            if (BindingXConstants.EXPRESSION_ENGINE_BYTECODE.equals(mExpressionEngine)) {
+                expression.compileProgram();
+            }
+            rewritten.put(origin, expression);
+        }
+        return expression;
     }
 
     /**
@@ -148,14 +358,21 @@ public abstract class AbstractEventHandler implements IEventHandler {
      *
      * @return true if expression return true and false otherwise
      * */
-    boolean evaluateExitExpression(ExpressionPair exitExpression, @NonNull Map<String,Object> scope) {
+    boolean evaluateExitExpression(ExpressionPair exitExpression, @NonNull ExpressionScope scope) {
         boolean exit = false;
-        if (exitExpression != null
-                && !TextUtils.isEmpty(exitExpression.transformed)
-                && !"{}".equals(exitExpression.transformed)) {
-            Expression expression = new Expression(exitExpression.transformed);
+        Expression expression = null;
+        if (exitExpression != null) {
+            // the exit expression is compiled when it is bound
+            expression = exitExpression.equals(mExitExpressionPair) ? mExitExpression : obtainExpression(exitExpression);
+        }
+        if (expression != null) {
             try {
-                exit = (boolean) expression.execute(scope);
+                if (expression.root != null && expression.root.isBoolean()) {
+                    exit = expression.executeBoolean(scope);
+                } else {
+                    // keep the old behavior for non boolean results, which never exit
+                    exit = (boolean) expression.execute(scope);
+                }
             } catch (Exception e) {
                 LogProxy.e("evaluateExitExpression failed. ", e);
             }
@@ -182,7 +399,7 @@ public abstract class AbstractEventHandler implements IEventHandler {
      * @param currentType current event type
      *
      * */
-    void consumeExpression(@Nullable Map<String, List<ExpressionHolder>> args, @NonNull Map<String,Object> scope,
+    void consumeExpression(@Nullable Map<String, List<ExpressionHolder>> args, @NonNull ExpressionScope scope,
                            @NonNull String currentType) throws IllegalArgumentException, JSONException {
         //https://developer.mozilla.org/zh-CN/docs/Web/CSS/transform
         if (args == null) {
@@ -194,56 +411,181 @@ public abstract class AbstractEventHandler implements IEventHandler {
             return;
         }
 
-        LogProxy.d(String.format(Locale.getDefault(), "consume expression with %d tasks. event type is %s",args.size(),currentType));
-        for (List<ExpressionHolder> holderList : args.values()) {
-            for (ExpressionHolder holder : holderList) {
-                if (!currentType.equals(holder.eventType)) {
-                    LogProxy.d("skip expression with wrong event type.[expected:" + currentType + ",found:" + holder.eventType + "]");
-                    continue;
-                }
-                String instanceId = TextUtils.isEmpty(holder.targetInstanceId)? mInstanceId : holder.targetInstanceId;
+        BindingProgram program = mBindingPrograms.get(currentType);
+        if (program == null || !program.isCompiledFrom(args)) {
+            // holders that have not been bound by onBindExpression
+            program = BindingProgram.compile(currentType, args, mInstanceId);
+        }
+        if (LogProxy.sEnableLog) {
+            LogProxy.d(String.format(Locale.getDefault(), "consume expression with %d tasks. event type is %s", program.size(), currentType));
+        }
+        PlatformManager.IViewUpdater viewUpdater = mPlatformManager.getViewUpdater();
+        PlatformManager.IBatchViewUpdater batchUpdater = viewUpdater instanceof PlatformManager.IBatchViewUpdater
+                ? (PlatformManager.IBatchViewUpdater) viewUpdater : null;
+        mEventSerial++;
+        mUpdatedTargets.clear();
+        try {
+            consumeProgram(program, scope, viewUpdater, batchUpdater);
+        } finally {
+            if (batchUpdater != null) {
+                dispatchUpdates(batchUpdater);
+            }
+        }
+    }
 
-                View targetView = mPlatformManager.getViewFinder().findViewBy(holder.targetRef, instanceId);
-                if (targetView == null) {
-                    LogProxy.e("failed to execute expression,target view not found.[ref:" + holder.targetRef + "]");
-                    continue;
-                }
+    private void consumeProgram(@NonNull BindingProgram program, @NonNull ExpressionScope scope,
+                                @NonNull PlatformManager.IViewUpdater viewUpdater,
+                                @Nullable PlatformManager.IBatchViewUpdater batchUpdater) throws JSONException {
+        for (int i = 0, size = program.size(); i < size; i++) {
+            ExpressionHolder holder = program.holderAt(i);
+            Expression expression = holder.expression;
+            TargetView target = program.targetAt(i);
+            String instanceId = target.instanceId;
+
+            View targetView = target.resolve(mPlatformManager.getViewFinder());
+            if (targetView == null) {
+                LogProxy.e("failed to execute expression,target view not found.[ref:" + holder.targetRef + "]");
+                continue;
+            }
+            if (holder.evaluatedGeneration != target.generation) {
+                // the view has been found again, e.g. re-rendered or recycled, and does not show the last value
+                holder.evaluatedGeneration = target.generation;
+                holder.evaluatedVersion = -1;
+                holder.lastTarget = null;
+            }
 
-                ExpressionPair expressionPair = holder.expressionPair;
-                if(expressionPair == null
-                        || TextUtils.isEmpty(expressionPair.transformed)
-                        || "{}".equals(expressionPair.transformed)) {
-                    continue;
-                }
-                Expression expression = mCachedExpressionMap.get(expressionPair.transformed);
-                if (expression == null) {
-                    expression = new Expression(expressionPair.transformed);
-                    mCachedExpressionMap.put(expressionPair.transformed, expression);
+            int[] dependencies = holder.batch != null ? holder.batch.dependencies() : expression.dependencies();
+            if (holder.evaluatedVersion >= 0 && !expression.hasSideEffects()
+                    && !scope.changedSince(dependencies, holder.evaluatedVersion)) {
+                // none of the variables it reads has changed, so the result is the same as last time.
+                continue;
+            }
+            Object obj;
+            try {
+                obj = evaluate(holder, expression, scope, dependencies);
+            } catch (RuntimeException e) {
+                // only this property is skipped, not the other bindings of the event
+                LogProxy.e("failed to execute expression.[ref:" + holder.targetRef + "," + holder.prop + "]", e);
+                continue;
+            }
+            if (obj == null) {
+                LogProxy.e("failed to execute expression,expression result is null");
+                continue;
+            }
+            if((obj instanceof Double) && Double.isNaN((Double) obj) ||
+                    (obj instanceof Float && Float.isNaN((Float)obj))) {
+                LogProxy.e("failed to execute expression,expression result is NaN");
+                continue;
+            }
+            // only a result marks the holder as evaluated, a failed one is tried again with the next event
+            holder.evaluatedVersion = scope.version();
+            if (holder.lastTarget != null && holder.lastTarget.get() == targetView
+                    && isSameValue(holder.lastValue, obj, mUpdateEpsilon)) {
+                // the view already shows this value
+                continue;
+            }
+            holder.lastValue = obj;
+            if (holder.lastTarget == null || holder.lastTarget.get() != targetView) {
+                holder.lastTarget = new WeakReference<>(targetView);
+            }
+            if (batchUpdater != null) {
+                // staged together with the other properties of the view when the event has been consumed
+                target.update().put(holder.prop, obj, holder.config);
+                if (target.updatedEvent != mEventSerial) {
+                    target.updatedEvent = mEventSerial;
+                    mUpdatedTargets.add(target);
                 }
+                continue;
+            }
+            //apply transform to target view.
+            viewUpdater.synchronouslyUpdateViewOnUIThread(
+                    targetView,
+                    holder.prop,
+                    // the updater may post the value to the UI thread, so it must not be reused
+                    obj instanceof VectorValue ? ((VectorValue) obj).copyInto(null) : obj,
+                    mPlatformManager.getResolutionTranslator(),
+                    holder.config,
+                    holder.targetRef,/*additional params for weex*/
+                    instanceId       /*additional params for weex*/
+            );
+        }
+    }
 
-                Object obj = expression.execute(scope);
-                if (obj == null) {
-                    LogProxy.e("failed to execute expression,expression result is null");
-                    continue;
-                }
-                if((obj instanceof Double) && Double.isNaN((Double) obj) ||
-                        (obj instanceof Float && Float.isNaN((Float)obj))) {
-                    LogProxy.e("failed to execute expression,expression result is NaN");
-                    continue;
-                }
-                //apply transform to target view.
-                mPlatformManager.getViewUpdater().synchronouslyUpdateViewOnUIThread(
-                        targetView,
-                        holder.prop,
-                        obj,
-                        mPlatformManager.getResolutionTranslator(),
-                        holder.config,
-                        holder.targetRef,/*additional params for weex*/
-                        instanceId       /*additional params for weex*/
-                );
+    @Nullable
+    private static Object evaluate(@NonNull ExpressionHolder holder, @NonNull Expression expression,
+                                   @NonNull ExpressionScope scope, @NonNull int[] dependencies) throws JSONException {
+        // a variable that has not been set is null like in the boxed evaluation, so that the property is skipped
+        boolean defined = scope.isDefined(dependencies);
+        if (holder.batch != null && defined) {
+            // all elements of the batch are evaluated when the first of them is consumed
+            return holder.batch.valueAt(scope, holder.lane);
+        }
+        if (expression.isNumeric() && defined) {
+            // numeric expressions are evaluated without boxing, only the result is boxed.
+            return expression.executeDouble(scope);
+        }
+        if (expression.isVector()) {
+            // reuse the value that is not the last one, which is kept to compare with. Neither of them
+            // leaves the holder, updaters get copies(see consumeProgram and ViewUpdate)
+            int index = holder.lastValue != null && holder.lastValue == holder.vectors[0] ? 1 : 0;
+            Object obj = expression.executeVector(scope, holder.vectors[index]);
+            if (obj instanceof VectorValue) {
+                holder.vectors[index] = (VectorValue) obj;
             }
+            return obj;
         }
+        return expression.execute(scope);
+    }
 
+    /**
+     * stage the properties collected for each view, they are applied with those of the other handlers
+     * in the next frame(see {@link FrameCommitter}).
+     * */
+    private void dispatchUpdates(@NonNull PlatformManager.IBatchViewUpdater batchUpdater) {
+        for (int i = 0, size = mUpdatedTargets.size(); i < size; i++) {
+            TargetView target = mUpdatedTargets.get(i);
+            View view = target.cachedView();
+            ViewUpdate update = target.update();
+            // an update that has been staged but not committed yet takes the new values along
+            if (view != null && update.schedule()) {
+                mFrameCommitter.stage(view, update, batchUpdater, mPlatformManager.getResolutionTranslator());
+            }
+        }
+        mUpdatedTargets.clear();
+    }
+
+    /**
+     * @return true if applying {@code value} to a view that shows {@code last} changes nothing.
+     * */
+    static boolean isSameValue(@Nullable Object last, @Nullable Object value, double epsilon) {
+        if (last == null || value == null) {
+            return false;
+        }
+        if (last instanceof Double && value instanceof Double) {
+            double a = (double) last;
+            double b = (double) value;
+            return a == b || Math.abs(a - b) <= epsilon;
+        }
+        if (last instanceof VectorValue && value instanceof VectorValue) {
+            return ((VectorValue) last).isCloseTo((VectorValue) value, epsilon);
+        }
+        if (last instanceof List && value instanceof List) {
+            List<?> lastList = (List<?>) last;
+            List<?> list = (List<?>) value;
+            if (lastList.size() != list.size()) {
+                return false;
+            }
+            for (int i = 0; i < list.size(); i++) {
+                if (!isSameValue(lastList.get(i), list.get(i), epsilon)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (last instanceof String || last instanceof Integer || last instanceof Boolean) {
+            return last.equals(value);
+        }
+        return false;
     }
 
     protected abstract void onExit(@NonNull Map<String, Object> scope);
@@ -254,25 +596,21 @@ public abstract class AbstractEventHandler implements IEventHandler {
             mExpressionHoldersMap.clear();
             mExpressionHoldersMap = null;
         }
+        releaseBindingPrograms();
         mExitExpressionPair = null;
+        mExitExpression = null;
+    }
+
+    private void releaseBindingPrograms() {
+        Map<String, BindingProgram> programs = mBindingPrograms;
+        mBindingPrograms = Collections.emptyMap();
+        for (BindingProgram program : programs.values()) {
+            program.release();
+        }
     }
 
     @Override
     public void setToken(String token) {
         this.mToken = token;
     }
-
-    static class Cache<K, V> extends LinkedHashMap<K, V> {
-        private int maxSize;
-
-        Cache(int maxSize) {
-            super(4, 0.75f, true);
-            this.maxSize = Math.max(maxSize, 4);
-        }
-
-        @Override
-        protected boolean removeEldestEntry(Entry eldest) {
-            return size() > maxSize;
-        }
-    }
 }
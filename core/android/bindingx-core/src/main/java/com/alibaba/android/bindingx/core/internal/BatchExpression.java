@@ -0,0 +1,500 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.json.JSONException;
+
+import java.util.Arrays;
+
+/**
+ * Description:
+ *
+ * One numeric expression bound to many targets that differ only in a few numbers, e.g. the index of a
+ * cell in a staggered list animation. The parameters are variables of the expression whose values are
+ * given per target(a lane) in a structure-of-arrays layout, {@code parameters[variable][lane]}.
+ *
+ * The expression tree is lowered into columns when it is bound. Subtrees that do not read any parameter
+ * are evaluated once per event by the tree and broadcast to all lanes, every other node becomes a loop over
+ * {@code double[]}, so evaluating N targets is one walk over the columns instead of N walks over the tree.
+ * All lanes are evaluated together the first time any of them is read after the scope has changed.
+ *
+ * Expressions that can not be lowered(e.g. they produce strings or call functions other than a
+ * {@link NativeFunction}) are bound per lane instead, see {@link #bindLane(Expression, String[], double[][], int)}.
+ *
+ */
+final class BatchExpression {
+
+    private final Column mRoot;
+    private final int[] mDependencies;
+
+    private ExpressionScope mEvaluatedScope;
+    private long mEvaluatedVersion = -1;
+
+    private BatchExpression(Column root, int[] dependencies) {
+        this.mRoot = root;
+        this.mDependencies = dependencies;
+    }
+
+    /**
+     * @param expression a valid compiled expression
+     * @param names the variables that are parameters
+     * @param parameters values of each parameter, {@code parameters[i][lane]} is the value of {@code names[i]}
+     * @param lanes number of targets, the length of every array of {@code parameters}
+     *
+     * @return the batch or null if the expression can not be evaluated in columns
+     * */
+    @Nullable
+    static BatchExpression create(@NonNull Expression expression, @NonNull String[] names,
+                                  @NonNull double[][] parameters, int lanes) {
+        // columns evaluate both branches of a conditional and share calls between lanes, so every call
+        // of a function that is not pure has to stay in its own lane
+        if (expression.root == null || lanes <= 0 || expression.hasSideEffects()) {
+            return null;
+        }
+        int[] slots = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            slots[i] = ExpressionScope.slotOf(names[i]);
+            if (slots[i] == ExpressionScope.NO_SLOT) {
+                // parameters are told apart by their slots
+                return null;
+            }
+        }
+        Column root = new Lowering(slots, parameters, lanes).lower(expression.root, false);
+        if (root == null || root.isBoolean) {
+            return null;
+        }
+
+        // parameters are never written to the scope, so only the other variables decide when to evaluate again
+        int[] dependencies = expression.dependencies();
+        int count = 0;
+        int[] result = new int[dependencies.length];
+        for (int slot : dependencies) {
+            if (indexOf(slots, slot) < 0) {
+                result[count++] = slot;
+            }
+        }
+        return new BatchExpression(root, Arrays.copyOf(result, count));
+    }
+
+    /**
+     * @return the expression of a single lane, with the parameters replaced by their values and folded
+     * */
+    @NonNull
+    static Expression bindLane(@NonNull Expression expression, @NonNull String[] names,
+                               @NonNull double[][] parameters, int lane) {
+        if (expression.root == null) {
+            return expression;
+        }
+        double[] values = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = parameters[i][lane];
+        }
+        return new Expression(ExpressionOptimizer.optimize(substitute(expression.root, names, values)));
+    }
+
+    private static ExpressionNode substitute(ExpressionNode node, String[] names, double[] values) {
+        if (node instanceof ExpressionNode.Identifier) {
+            // by name, parameters may have no slot
+            int index = Arrays.asList(names).indexOf(((ExpressionNode.Identifier) node).name);
+            return index < 0 ? node : new ExpressionNode.Literal(values[index]);
+        }
+        if (node instanceof ExpressionNode.Shared) {
+            return substitute(((ExpressionNode.Shared) node).node, names, values);
+        }
+        ExpressionNode[] children = node.children();
+        if (children.length == 0) {
+            return node;
+        }
+        ExpressionNode[] substituted = new ExpressionNode[children.length];
+        for (int i = 0; i < children.length; i++) {
+            substituted[i] = substitute(children[i], names, values);
+        }
+        return node.withChildren(substituted);
+    }
+
+    /**
+     * @return slots of the variables other than the parameters that the expression reads.
+     * */
+    int[] dependencies() {
+        return mDependencies;
+    }
+
+    int lanes() {
+        return mRoot.values.length;
+    }
+
+    /**
+     * @return the result of {@code lane}. All lanes are evaluated if the scope has changed since the last call.
+     * */
+    double valueAt(@NonNull ExpressionScope scope, int lane) throws IllegalArgumentException, JSONException {
+        if (mEvaluatedScope != scope || mEvaluatedVersion != scope.version()) {
+            execute(scope);
+        }
+        return mRoot.values[lane];
+    }
+
+    /**
+     * evaluate all lanes.
+     *
+     * @return results of all lanes, the array is reused by the next execution
+     * */
+    @NonNull
+    double[] execute(@NonNull ExpressionScope scope) throws IllegalArgumentException, JSONException {
+        // a failed execution is not cached
+        mEvaluatedScope = null;
+        mRoot.evaluate(scope);
+        mEvaluatedScope = scope;
+        mEvaluatedVersion = scope.version();
+        return mRoot.values;
+    }
+
+    private static int indexOf(int[] slots, int slot) {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == slot) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Lowering {
+        private final int[] mSlots;
+        private final double[][] mParameters;
+        private final int mLanes;
+
+        Lowering(int[] slots, double[][] parameters, int lanes) {
+            this.mSlots = slots;
+            this.mParameters = parameters;
+            this.mLanes = lanes;
+        }
+
+        /**
+         * @param toNumber true if the parent converts the value with toNumber, so that any node is accepted
+         * @return the column of {@code node} or null if it can not be lowered
+         * */
+        @Nullable
+        Column lower(ExpressionNode node, boolean toNumber) {
+            if (!readsParameter(node)) {
+                if (toNumber || node.isNumeric()) {
+                    return new Uniform(node, mLanes, false);
+                }
+                return node.isBoolean() ? new Uniform(node, mLanes, true) : null;
+            }
+            if (node instanceof ExpressionNode.Shared) {
+                return lower(((ExpressionNode.Shared) node).node, toNumber);
+            }
+            if (node instanceof ExpressionNode.Identifier) {
+                return new Parameter(mParameters[indexOf(mSlots, ((ExpressionNode.Identifier) node).slot)]);
+            }
+            if (node instanceof ExpressionNode.Binary) {
+                return lowerBinary((ExpressionNode.Binary) node);
+            }
+            if (node instanceof ExpressionNode.Not) {
+                Column operand = lower(((ExpressionNode.Not) node).operand, false);
+                return operand == null ? null : new Not(operand);
+            }
+            if (node instanceof ExpressionNode.Conditional) {
+                ExpressionNode.Conditional conditional = (ExpressionNode.Conditional) node;
+                Column test = lower(conditional.test, false);
+                Column consequent = lower(conditional.consequent, false);
+                Column alternate = lower(conditional.alternate, false);
+                if (test == null || consequent == null || alternate == null || consequent.isBoolean != alternate.isBoolean) {
+                    return null;
+                }
+                return new Conditional(test, consequent, alternate);
+            }
+            if (node instanceof ExpressionNode.Call && node.isNumeric()) {
+                ExpressionNode.Call call = (ExpressionNode.Call) node;
+                Column[] arguments = new Column[call.arguments.length];
+                for (int i = 0; i < arguments.length; i++) {
+                    if ((arguments[i] = lower(call.arguments[i], true)) == null) {
+                        return null;
+                    }
+                }
+                return new Call((NativeFunction) ExpressionNode.Call.resolve(call.callee), arguments);
+            }
+            return null;
+        }
+
+        private Column lowerBinary(ExpressionNode.Binary node) {
+            switch (node.operator) {
+                case ExpressionNode.Binary.AND:
+                case ExpressionNode.Binary.OR:
+                case ExpressionNode.Binary.EQ:
+                case ExpressionNode.Binary.NE:
+                case ExpressionNode.Binary.STRICT_EQ:
+                case ExpressionNode.Binary.STRICT_NE: {
+                    Column left = lower(node.left, false);
+                    Column right = lower(node.right, false);
+                    // a boolean and a number would mix types in the result, or never be strictly equal
+                    boolean mixed = left != null && right != null && left.isBoolean != right.isBoolean;
+                    if (left == null || right == null || (mixed && node.operator != ExpressionNode.Binary.EQ
+                            && node.operator != ExpressionNode.Binary.NE)) {
+                        return null;
+                    }
+                    return new Binary(node.operator, left, right);
+                }
+                default: {
+                    Column left = lower(node.left, true);
+                    Column right = lower(node.right, true);
+                    return left == null || right == null ? null : new Binary(node.operator, left, right);
+                }
+            }
+        }
+
+        private boolean readsParameter(ExpressionNode node) {
+            if (node instanceof ExpressionNode.Identifier) {
+                return indexOf(mSlots, ((ExpressionNode.Identifier) node).slot) >= 0;
+            }
+            if (node instanceof ExpressionNode.Shared) {
+                return readsParameter(((ExpressionNode.Shared) node).node);
+            }
+            for (ExpressionNode child : node.children()) {
+                if (readsParameter(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The values of a node for all lanes. Booleans are kept as 1 or 0.
+     * */
+    private abstract static class Column {
+        final double[] values;
+        final boolean isBoolean;
+
+        Column(double[] values, boolean isBoolean) {
+            this.values = values;
+            this.isBoolean = isBoolean;
+        }
+
+        abstract void evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException;
+    }
+
+    private static final class Parameter extends Column {
+        Parameter(double[] values) {
+            super(values, false);
+        }
+
+        @Override
+        void evaluate(ExpressionScope scope) {
+            // given when bound
+        }
+    }
+
+    private static final class Uniform extends Column {
+        private final ExpressionNode node;
+
+        Uniform(ExpressionNode node, int lanes, boolean isBoolean) {
+            super(new double[lanes], isBoolean);
+            this.node = node;
+        }
+
+        @Override
+        void evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            Arrays.fill(values, isBoolean ? (node.evaluateBoolean(scope) ? 1 : 0) : node.evaluateDouble(scope));
+        }
+    }
+
+    private static final class Binary extends Column {
+        private final int operator;
+        private final Column left;
+        private final Column right;
+
+        Binary(int operator, Column left, Column right) {
+            super(new double[left.values.length], isBoolean(operator, left));
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        private static boolean isBoolean(int operator, Column left) {
+            switch (operator) {
+                case ExpressionNode.Binary.ADD:
+                case ExpressionNode.Binary.SUB:
+                case ExpressionNode.Binary.MUL:
+                case ExpressionNode.Binary.DIV:
+                case ExpressionNode.Binary.MOD:
+                case ExpressionNode.Binary.POW:
+                    return false;
+                case ExpressionNode.Binary.AND:
+                case ExpressionNode.Binary.OR:
+                    return left.isBoolean;
+                default:
+                    return true;
+            }
+        }
+
+        @Override
+        void evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            left.evaluate(scope);
+            right.evaluate(scope);
+            double[] a = left.values;
+            double[] b = right.values;
+            double[] out = values;
+            int n = out.length;
+            switch (operator) {
+                case ExpressionNode.Binary.ADD:
+                    for (int i = 0; i < n; i++) out[i] = a[i] + b[i];
+                    break;
+                case ExpressionNode.Binary.SUB:
+                    for (int i = 0; i < n; i++) out[i] = a[i] - b[i];
+                    break;
+                case ExpressionNode.Binary.MUL:
+                    for (int i = 0; i < n; i++) out[i] = a[i] * b[i];
+                    break;
+                case ExpressionNode.Binary.DIV:
+                    for (int i = 0; i < n; i++) out[i] = a[i] / b[i];
+                    break;
+                case ExpressionNode.Binary.MOD:
+                    for (int i = 0; i < n; i++) out[i] = a[i] % b[i];
+                    break;
+                case ExpressionNode.Binary.POW:
+                    for (int i = 0; i < n; i++) out[i] = Math.pow(a[i], b[i]);
+                    break;
+                case ExpressionNode.Binary.GT:
+                    for (int i = 0; i < n; i++) out[i] = a[i] > b[i] ? 1 : 0;
+                    break;
+                case ExpressionNode.Binary.LT:
+                    for (int i = 0; i < n; i++) out[i] = a[i] < b[i] ? 1 : 0;
+                    break;
+                case ExpressionNode.Binary.GE:
+                    for (int i = 0; i < n; i++) out[i] = a[i] >= b[i] ? 1 : 0;
+                    break;
+                case ExpressionNode.Binary.LE:
+                    for (int i = 0; i < n; i++) out[i] = a[i] <= b[i] ? 1 : 0;
+                    break;
+                case ExpressionNode.Binary.EQ:
+                case ExpressionNode.Binary.STRICT_EQ:
+                    for (int i = 0; i < n; i++) out[i] = a[i] == b[i] ? 1 : 0;
+                    break;
+                case ExpressionNode.Binary.NE:
+                case ExpressionNode.Binary.STRICT_NE:
+                    for (int i = 0; i < n; i++) out[i] = a[i] != b[i] ? 1 : 0;
+                    break;
+                case ExpressionNode.Binary.AND:
+                    for (int i = 0; i < n; i++) out[i] = a[i] == 0 ? a[i] : b[i];
+                    break;
+                case ExpressionNode.Binary.OR:
+                    for (int i = 0; i < n; i++) out[i] = a[i] != 0 ? a[i] : b[i];
+                    break;
+            }
+        }
+    }
+
+    private static final class Not extends Column {
+        private final Column operand;
+
+        Not(Column operand) {
+            super(new double[operand.values.length], true);
+            this.operand = operand;
+        }
+
+        @Override
+        void evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            operand.evaluate(scope);
+            double[] a = operand.values;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = a[i] == 0 ? 1 : 0;
+            }
+        }
+    }
+
+    private static final class Conditional extends Column {
+        private final Column test;
+        private final Column consequent;
+        private final Column alternate;
+
+        Conditional(Column test, Column consequent, Column alternate) {
+            super(new double[test.values.length], consequent.isBoolean);
+            this.test = test;
+            this.consequent = consequent;
+            this.alternate = alternate;
+        }
+
+        @Override
+        void evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            // both branches are evaluated for all lanes, which is fine since neither has side effects
+            test.evaluate(scope);
+            consequent.evaluate(scope);
+            alternate.evaluate(scope);
+            double[] t = test.values;
+            double[] a = consequent.values;
+            double[] b = alternate.values;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = t[i] != 0 ? a[i] : b[i];
+            }
+        }
+    }
+
+    private static final class Call extends Column {
+        private final NativeFunction function;
+        private final Column[] arguments;
+        // arguments of one lane, for functions with more than 4 parameters
+        private final double[] scratch;
+
+        Call(NativeFunction function, Column[] arguments) {
+            super(new double[arguments[0].values.length], false);
+            this.function = function;
+            this.arguments = arguments;
+            this.scratch = new double[arguments.length];
+        }
+
+        @Override
+        void evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            for (Column argument : arguments) {
+                argument.evaluate(scope);
+            }
+            double[] out = values;
+            int n = out.length;
+            switch (arguments.length) {
+                case 1: {
+                    double[] a = arguments[0].values;
+                    for (int i = 0; i < n; i++) out[i] = function.call1(a[i]);
+                    break;
+                }
+                case 2: {
+                    double[] a = arguments[0].values, b = arguments[1].values;
+                    for (int i = 0; i < n; i++) out[i] = function.call2(a[i], b[i]);
+                    break;
+                }
+                case 3: {
+                    double[] a = arguments[0].values, b = arguments[1].values, c = arguments[2].values;
+                    for (int i = 0; i < n; i++) out[i] = function.call3(a[i], b[i], c[i]);
+                    break;
+                }
+                case 4: {
+                    double[] a = arguments[0].values, b = arguments[1].values;
+                    double[] c = arguments[2].values, d = arguments[3].values;
+                    for (int i = 0; i < n; i++) out[i] = function.call4(a[i], b[i], c[i], d[i]);
+                    break;
+                }
+                default:
+                    for (int i = 0; i < n; i++) {
+                        for (int j = 0; j < scratch.length; j++) {
+                            scratch[j] = arguments[j].values[i];
+                        }
+                        out[i] = function.call(scratch);
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import com.alibaba.android.bindingx.core.LogProxy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description:
+ *
+ * The expressions bound to one event type, flattened into arrays when they are bound so that
+ * consuming an event is an indexed loop over them: holders of other event types and holders
+ * without a compiled expression are filtered out beforehand, and the instance id of every
+ * target is resolved once. Holders of the same target share one {@link TargetView}, so its
+ * view is found only once.
+ *
+ * A program is immutable. It is compiled from a map of holders and is only used with that map,
+ * so a handler that replaces or clears its holders never runs a stale program.
+ *
+ */
+final class BindingProgram {
+
+    private final Map<String, List<ExpressionHolder>> mSource;
+    private final ExpressionHolder[] mHolders;
+    private final TargetView[] mTargets;
+
+    private BindingProgram(Map<String, List<ExpressionHolder>> source, ExpressionHolder[] holders, TargetView[] targets) {
+        this.mSource = source;
+        this.mHolders = holders;
+        this.mTargets = targets;
+    }
+
+    /**
+     * @param defaultInstanceId instance id of the targets whose holder does not specify one
+     * */
+    @NonNull
+    static BindingProgram compile(@NonNull String eventType, @NonNull Map<String, List<ExpressionHolder>> source,
+                                  @Nullable String defaultInstanceId) {
+        List<ExpressionHolder> holders = new ArrayList<>();
+        for (List<ExpressionHolder> holderList : source.values()) {
+            for (ExpressionHolder holder : holderList) {
+                if (!eventType.equals(holder.eventType)) {
+                    continue;
+                }
+                if (holder.expression == null) {
+                    LogProxy.e("skip expression that failed to compile.[ref:" + holder.targetRef + "," + holder.prop + "]");
+                    continue;
+                }
+                holders.add(holder);
+            }
+        }
+        int size = holders.size();
+        TargetView[] targets = new TargetView[size];
+        Map<String, TargetView> shared = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            ExpressionHolder holder = holders.get(i);
+            String instanceId = TextUtils.isEmpty(holder.targetInstanceId) ? defaultInstanceId : holder.targetInstanceId;
+            if (holder.target == null || !holder.target.matches(holder.targetRef, instanceId)) {
+                String key = keyOf(holder.targetRef, instanceId);
+                TargetView target = shared.get(key);
+                if (target == null) {
+                    target = new TargetView(holder.targetRef, instanceId);
+                    shared.put(key, target);
+                }
+                holder.target = target;
+            }
+            targets[i] = holder.target;
+        }
+        return new BindingProgram(source, holders.toArray(new ExpressionHolder[size]), targets);
+    }
+
+    private static String keyOf(String targetRef, String instanceId) {
+        return targetRef + '\u0000' + instanceId;
+    }
+
+    /**
+     * compile a program for every event type found in {@code source}.
+     * */
+    @NonNull
+    static Map<String, BindingProgram> compileAll(@Nullable Map<String, List<ExpressionHolder>> source,
+                                                  @Nullable String defaultInstanceId) {
+        if (source == null || source.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, BindingProgram> programs = new HashMap<>(4);
+        for (List<ExpressionHolder> holderList : source.values()) {
+            for (ExpressionHolder holder : holderList) {
+                if (holder.eventType != null && !programs.containsKey(holder.eventType)) {
+                    programs.put(holder.eventType, compile(holder.eventType, source, defaultInstanceId));
+                }
+            }
+        }
+        return Collections.unmodifiableMap(programs);
+    }
+
+    /**
+     * @return true if this program has been compiled from {@code source}
+     * */
+    boolean isCompiledFrom(@Nullable Map<String, List<ExpressionHolder>> source) {
+        return mSource == source;
+    }
+
+    int size() {
+        return mHolders.length;
+    }
+
+    @NonNull
+    ExpressionHolder holderAt(int index) {
+        return mHolders[index];
+    }
+
+    @NonNull
+    TargetView targetAt(int index) {
+        return mTargets[index];
+    }
+
+    /**
+     * forget the views cached by the targets of this program.
+     * */
+    void release() {
+        for (TargetView target : mTargets) {
+            target.release();
+        }
+    }
+}
@@ -43,6 +43,8 @@ public class BindingXConstants {
     public static final String KEY_EXPRESSION = "expression";
     public static final String KEY_CONFIG = "config";
     public static final String KEY_OPTIONS = "options";
+    // per element values of the variables of a binding whose element is a list, see BatchExpression
+    public static final String KEY_PARAMS = "params";
 
 
     public static final String KEY_ANCHOR = "anchor";
@@ -53,10 +55,28 @@ public class BindingXConstants {
     public static final String KEY_TOKEN = "token";
 
     public static final String KEY_SCENE_TYPE = "sceneType";
+    public static final String KEY_UPDATE_EPSILON = "updateEpsilon";
 
     public static final String KEY_TRANSFORMED = "transformed";
     public static final String KEY_ORIGIN = "origin";
 
+    public static final String EXPRESSION_ENGINE_INTERPRETER = "interpreter";
+    public static final String EXPRESSION_ENGINE_BYTECODE = "bytecode";
+
+    @Retention(RetentionPolicy.SOURCE)
+    @StringDef({BindingXConstants.EXPRESSION_ENGINE_INTERPRETER, BindingXConstants.EXPRESSION_ENGINE_BYTECODE})
+    public @interface ExpressionEngine {
+    }
+
+    public static final String EASING_INTERPOLATION_LINEAR = "linear";
+    public static final String EASING_INTERPOLATION_CUBIC = "cubic";
+    public static final int EASING_TABLE_RESOLUTION = 512;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @StringDef({BindingXConstants.EASING_INTERPOLATION_LINEAR, BindingXConstants.EASING_INTERPOLATION_CUBIC})
+    public @interface EasingInterpolation {
+    }
+
     @Retention(RetentionPolicy.SOURCE)
     @StringDef({BindingXConstants.STATE_START, BindingXConstants.STATE_END,
             BindingXConstants.STATE_CANCEL, BindingXConstants.STATE_EXIT, BindingXConstants.STATE_TURNING})
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.text.TextUtils;
+
+import com.alibaba.android.bindingx.core.ExpressionFunction;
+import com.alibaba.android.bindingx.core.LogProxy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Description:
+ *
+ * The functions and constants of {@link JSMath} and {@link TimingFunctions} by name, so that calls
+ * of built-in functions can be resolved when an expression is compiled. Functions registered by users
+ * (see {@link ExpressionFunction}) are added here too and are treated like the built-in ones.
+ *
+ * Registration replaces the tables as a whole, so readers need no lock.
+ *
+ */
+final class Builtins {
+
+    // built-in functions without side effects. functions that return their argument list are excluded
+    // because the folded list would be shared by every evaluation.
+    private static final Set<String> PURE_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "sin", "cos", "tan", "asin", "acos", "atan", "atan2", "pow", "exp", "sqrt", "cbrt", "log",
+            "abs", "sign", "ceil", "floor", "round", "max", "min", "rgb", "rgba", "evaluateColor",
+            "linear", "easeInQuad", "easeOutQuad", "easeInOutQuad", "easeInCubic", "easeOutCubic",
+            "easeInOutCubic", "easeInQuart", "easeOutQuart", "easeInOutQuart", "easeInQuint",
+            "easeOutQuint", "easeInOutQuint", "easeInSine", "easeOutSine", "easeInOutSine",
+            "easeInExpo", "easeOutExpo", "easeInOutExpo", "easeInCirc", "easeOutCirc", "easeInOutCirc",
+            "easeInElastic", "easeOutElastic", "easeInOutElastic", "easeInBack", "easeOutBack",
+            "easeInOutBack", "easeInBounce", "easeOutBounce", "easeInOutBounce", "cubicBezier"
+    ));
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    // parsed as literals, never looked up
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList("true", "false", "null"));
+
+    private static final Map<String, Object> BUILTINS;
+
+    private static volatile Map<String, Object> sBuiltins;
+    private static volatile Set<String> sPureFunctions = PURE_FUNCTIONS;
+    // the same as sBuiltins, only read by ExpressionOptimizer to fold constants
+    private static volatile ExpressionScope sScope;
+
+    static {
+        Map<String, Object> builtins = new HashMap<>();
+        JSMath.applyToScope(builtins);
+        TimingFunctions.applyToScope(builtins);
+        BUILTINS = Collections.unmodifiableMap(builtins);
+        sBuiltins = BUILTINS;
+        sScope = new ExpressionScope(BUILTINS);
+    }
+
+    private Builtins() {
+    }
+
+    @Nullable
+    static Object get(String name) {
+        return sBuiltins.get(name);
+    }
+
+    /**
+     * @return true if calls of {@code name} with constant arguments can be evaluated when compiled.
+     * */
+    static boolean isPure(String name) {
+        return sPureFunctions.contains(name);
+    }
+
+    /**
+     * @return true if {@code name} is a registered function that is not pure, so that every call has to be
+     * evaluated even if its arguments have not changed.
+     * */
+    static boolean hasSideEffects(String name) {
+        Object function = sBuiltins.get(name);
+        return function instanceof UserFunction && !((UserFunction) function).function.isPure();
+    }
+
+    /**
+     * @return the scope with all functions and constants. It must not be modified.
+     * */
+    @NonNull
+    static ExpressionScope scope() {
+        return sScope;
+    }
+
+    static void applyToScope(@NonNull Map<String, Object> scope) {
+        scope.putAll(sBuiltins);
+    }
+
+    /**
+     * make {@code function} callable as {@code name} from expressions compiled afterwards. A function
+     * registered with the same name before is replaced. Built-in functions can not be replaced.
+     *
+     * @return false if the name is illegal, a keyword, a variable of handlers or taken by a built-in function
+     * */
+    static synchronized boolean register(@NonNull String name, @NonNull ExpressionFunction function) {
+        if (TextUtils.isEmpty(name) || !IDENTIFIER.matcher(name).matches() || KEYWORDS.contains(name)
+                || ExpressionScope.isWellKnownVariable(name) || BUILTINS.containsKey(name)) {
+            LogProxy.e("can not register function with illegal name: " + name);
+            return false;
+        }
+        Map<String, Object> builtins = new HashMap<>(sBuiltins);
+        builtins.put(name, new UserFunction(function));
+        Set<String> pureFunctions = new HashSet<>(sPureFunctions);
+        if (function.isPure()) {
+            pureFunctions.add(name);
+        } else {
+            pureFunctions.remove(name);
+        }
+        sScope = new ExpressionScope(builtins);
+        sPureFunctions = Collections.unmodifiableSet(pureFunctions);
+        sBuiltins = Collections.unmodifiableMap(builtins);
+        // expressions compiled before did not know the function, compile them again when they are bound next time
+        ExpressionCache.getInstance().clear();
+        return true;
+    }
+
+    /**
+     * forget all registered functions.
+     * */
+    @VisibleForTesting
+    static synchronized void reset() {
+        sScope = new ExpressionScope(BUILTINS);
+        sPureFunctions = PURE_FUNCTIONS;
+        sBuiltins = BUILTINS;
+        ExpressionCache.getInstance().clear();
+    }
+
+    /**
+     * adapts a user function to the primitive entry points that evaluators call.
+     * */
+    private static final class UserFunction extends NativeFunction {
+        private final ExpressionFunction function;
+
+        UserFunction(ExpressionFunction function) {
+            super(function.getArity() == ExpressionFunction.VARIADIC ? VARIADIC : function.getArity());
+            this.function = function;
+        }
+
+        @Override
+        boolean accepts(int count) {
+            // a function of no arguments is still called with primitives
+            return arity == 0 ? count == 0 : super.accepts(count);
+        }
+
+        @Override
+        double call1(double a) {
+            return arity == 1 || arity == VARIADIC ? function.call(a) : super.call1(a);
+        }
+
+        @Override
+        double call2(double a, double b) {
+            return arity == 2 || arity == VARIADIC ? function.call(a, b) : super.call2(a, b);
+        }
+
+        @Override
+        double call3(double a, double b, double c) {
+            return arity == 3 || arity == VARIADIC ? function.call(a, b, c) : super.call3(a, b, c);
+        }
+
+        @Override
+        double call4(double a, double b, double c, double d) {
+            return arity == 4 || arity == VARIADIC ? function.call(a, b, c, d) : super.call4(a, b, c, d);
+        }
+
+        @Override
+        double callN(double[] args) {
+            return function.call(args);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.os.Build;
+
+import java.util.ArrayList;
+
+/**
+ * Description:
+ *
+ * A {@link NativeFunction} that produces a color packed into an argb int, which evaluators box as
+ * {@link Integer} like view updaters expect. Color arguments are passed as packed ints as well. Color
+ * string literals are converted when the expression is compiled(see {@link ExpressionOptimizer}), so
+ * nothing is parsed while evaluating.
+ *
+ * {@link #execute(ArrayList)} still accepts color strings for arguments that are only known at runtime.
+ *
+ */
+abstract class ColorFunction extends NativeFunction {
+
+    // android.animation.ArgbEvaluator interpolates in linear RGB since android O
+    private static final boolean LINEAR_INTERPOLATION = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O;
+
+    ColorFunction(int arity) {
+        super(arity);
+    }
+
+    /**
+     * @return true if the argument at {@code index} is a color rather than a number
+     * */
+    boolean isColorArgument(int index) {
+        return false;
+    }
+
+    @Override
+    public Object execute(ArrayList<Object> arguments) {
+        if (arguments == null || arguments.size() < arity) {
+            return null;
+        }
+        double[] args = new double[arity];
+        for (int i = 0; i < arity; i++) {
+            Object argument = arguments.get(i);
+            if (isColorArgument(i) && !(argument instanceof Number)) {
+                args[i] = JSMath.parseColor((String) argument);
+            } else {
+                args[i] = ((Number) argument).doubleValue();
+            }
+        }
+        return (int) call(args);
+    }
+
+    /**
+     * interpolate between two colors in the same way as {@link android.animation.ArgbEvaluator} of the
+     * running platform, but without boxing.
+     * */
+    static int interpolate(int fromColor, int toColor, double fraction) {
+        return LINEAR_INTERPOLATION
+                ? interpolateLinear(fromColor, toColor, (float) fraction)
+                : interpolateGamma(fromColor, toColor, (float) fraction);
+    }
+
+    static int interpolateGamma(int fromColor, int toColor, float fraction) {
+        int startA = (fromColor >> 24) & 0xff;
+        int startR = (fromColor >> 16) & 0xff;
+        int startG = (fromColor >> 8) & 0xff;
+        int startB = fromColor & 0xff;
+
+        int endA = (toColor >> 24) & 0xff;
+        int endR = (toColor >> 16) & 0xff;
+        int endG = (toColor >> 8) & 0xff;
+        int endB = toColor & 0xff;
+
+        return ((startA + (int) (fraction * (endA - startA))) << 24) |
+                ((startR + (int) (fraction * (endR - startR))) << 16) |
+                ((startG + (int) (fraction * (endG - startG))) << 8) |
+                ((startB + (int) (fraction * (endB - startB))));
+    }
+
+    static int interpolateLinear(int fromColor, int toColor, float fraction) {
+        float startA = ((fromColor >> 24) & 0xff) / 255.0f;
+        float startR = toLinear(((fromColor >> 16) & 0xff) / 255.0f);
+        float startG = toLinear(((fromColor >> 8) & 0xff) / 255.0f);
+        float startB = toLinear((fromColor & 0xff) / 255.0f);
+
+        float endA = ((toColor >> 24) & 0xff) / 255.0f;
+        float endR = toLinear(((toColor >> 16) & 0xff) / 255.0f);
+        float endG = toLinear(((toColor >> 8) & 0xff) / 255.0f);
+        float endB = toLinear((toColor & 0xff) / 255.0f);
+
+        float a = startA + fraction * (endA - startA);
+        float r = startR + fraction * (endR - startR);
+        float g = startG + fraction * (endG - startG);
+        float b = startB + fraction * (endB - startB);
+
+        return Math.round(a * 255.0f) << 24 | Math.round(toGamma(r) * 255.0f) << 16
+                | Math.round(toGamma(g) * 255.0f) << 8 | Math.round(toGamma(b) * 255.0f);
+    }
+
+    private static float toLinear(float value) {
+        return (float) Math.pow(value, 2.2);
+    }
+
+    private static float toGamma(float value) {
+        return (float) Math.pow(value, 1.0 / 2.2);
+    }
+}
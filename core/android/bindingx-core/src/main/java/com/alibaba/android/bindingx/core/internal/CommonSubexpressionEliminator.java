@@ -0,0 +1,87 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Description:
+ *
+ * Merge identical subtrees of all the expressions bound to one event handler. Every subtree that
+ * occurs more than once is replaced by a single {@link ExpressionNode.Shared} instance, so it is
+ * evaluated only once per event no matter how many expressions reference it. Subtrees that call a
+ * function which is not pure are left alone.
+ *
+ * Usage: {@link #add(ExpressionNode)} every root first, then {@link #rewrite(ExpressionNode)} them.
+ *
+ */
+final class CommonSubexpressionEliminator {
+
+    private final Map<ExpressionNode, Integer> mCounts = new HashMap<>();
+    private final Map<ExpressionNode, ExpressionNode> mRewritten = new HashMap<>();
+
+    void add(@NonNull ExpressionNode root) {
+        Integer count = mCounts.get(root);
+        mCounts.put(root, count == null ? 1 : count + 1);
+        for (ExpressionNode child : root.children()) {
+            add(child);
+        }
+    }
+
+    @NonNull
+    ExpressionNode rewrite(@NonNull ExpressionNode root) {
+        return rewrite(root, 1);
+    }
+
+    /**
+     * @param parentCount occurrences of the parent. A child is only worth sharing if it also occurs
+     *                    somewhere else, otherwise it is already evaluated once with its shared parent.
+     * */
+    private ExpressionNode rewrite(ExpressionNode node, int parentCount) {
+        ExpressionNode rewritten = mRewritten.get(node);
+        if (rewritten != null) {
+            return rewritten;
+        }
+        Integer count = mCounts.get(node);
+        int occurrences = count == null ? 1 : count;
+
+        ExpressionNode[] children = node.children();
+        ExpressionNode result = node;
+        // a node with side effects is not shared, so each of its occurrences evaluates its children again
+        boolean shareable = !node.hasSideEffects();
+        if (children.length > 0) {
+            boolean changed = false;
+            ExpressionNode[] newChildren = new ExpressionNode[children.length];
+            for (int i = 0; i < children.length; i++) {
+                newChildren[i] = rewrite(children[i], shareable ? occurrences : 1);
+                changed |= newChildren[i] != children[i];
+            }
+            if (changed) {
+                result = node.withChildren(newChildren);
+            }
+        }
+        // literals and variables are cheaper to evaluate than to look up a cached value.
+        // a call of a function that is not pure has to be evaluated every time it occurs.
+        if (occurrences > parentCount && children.length > 0 && shareable) {
+            result = new ExpressionNode.Shared(result);
+        }
+        mRewritten.put(node, result);
+        return result;
+    }
+}
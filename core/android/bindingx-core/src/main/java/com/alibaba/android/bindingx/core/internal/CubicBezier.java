@@ -0,0 +1,193 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Description:
+ *
+ * A css cubic-bezier timing curve through (0,0), (x1,y1), (x2,y2) and (1,1), solved like WebKit's
+ * {@code UnitBezier}: the parameter {@code t} of a given {@code x} is guessed from a table of samples of
+ * {@code x(t)} and refined with Newton-Raphson, falling back to bisection where the curve is too flat.
+ *
+ * Solvers are immutable and cached process-wide in a small hash table keyed on the control points, so
+ * looking one up on every frame allocates nothing.
+ *
+ */
+final class CubicBezier {
+
+    private static final int SAMPLES = 11;
+    private static final double SAMPLE_STEP = 1.0 / (SAMPLES - 1);
+
+    private static final int NEWTON_ITERATIONS = 8;
+    private static final double NEWTON_MIN_SLOPE = 1e-3;
+    private static final int SUBDIVISION_MAX_ITERATIONS = 40;
+    // of x
+    private static final double PRECISION = 1e-9;
+
+    // a power of 2
+    private static final int CACHE_SIZE = 64;
+    private static final int CACHE_PROBES = 4;
+
+    // slots are replaced as a whole and entries are immutable, so readers need no lock
+    private static final CubicBezier[] sCache = new CubicBezier[CACHE_SIZE];
+
+    final float x1;
+    final float y1;
+    final float x2;
+    final float y2;
+
+    // polynomial coefficients of x(t) and y(t)
+    private final double ax, bx, cx;
+    private final double ay, by, cy;
+
+    private final double[] mSamples = new double[SAMPLES];
+
+    CubicBezier(float x1, float y1, float x2, float y2) {
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+
+        // x must be monotonic, as css requires
+        double px1 = Math.min(Math.max(x1, 0), 1);
+        double px2 = Math.min(Math.max(x2, 0), 1);
+        cx = 3 * px1;
+        bx = 3 * (px2 - px1) - cx;
+        ax = 1 - cx - bx;
+        cy = 3 * y1;
+        by = 3 * (y2 - y1) - cy;
+        ay = 1 - cy - by;
+
+        for (int i = 0; i < SAMPLES; i++) {
+            mSamples[i] = sampleX(i * SAMPLE_STEP);
+        }
+    }
+
+    /**
+     * @return the cached solver of the curve, which is created if needed
+     * */
+    @NonNull
+    static CubicBezier obtain(float x1, float y1, float x2, float y2) {
+        int hash = Float.floatToIntBits(x1);
+        hash = 31 * hash + Float.floatToIntBits(y1);
+        hash = 31 * hash + Float.floatToIntBits(x2);
+        hash = 31 * hash + Float.floatToIntBits(y2);
+        hash ^= hash >>> 16;
+
+        int home = hash & (CACHE_SIZE - 1);
+        for (int i = 0; i < CACHE_PROBES; i++) {
+            CubicBezier bezier = sCache[(home + i) & (CACHE_SIZE - 1)];
+            if (bezier == null) {
+                break;
+            }
+            if (bezier.matches(x1, y1, x2, y2)) {
+                return bezier;
+            }
+        }
+
+        CubicBezier bezier = new CubicBezier(x1, y1, x2, y2);
+        // take the first free slot, or evict the curve in the home slot
+        int slot = home;
+        for (int i = 0; i < CACHE_PROBES; i++) {
+            int index = (home + i) & (CACHE_SIZE - 1);
+            if (sCache[index] == null) {
+                slot = index;
+                break;
+            }
+        }
+        sCache[slot] = bezier;
+        return bezier;
+    }
+
+    private boolean matches(float x1, float y1, float x2, float y2) {
+        return Float.compare(this.x1, x1) == 0 && Float.compare(this.y1, y1) == 0
+                && Float.compare(this.x2, x2) == 0 && Float.compare(this.y2, y2) == 0;
+    }
+
+    /**
+     * @param x the progress in time, clamped to [0,1]
+     * @return the progress of the value
+     * */
+    double solve(double x) {
+        if (!(x > 0)) {
+            return 0;
+        }
+        if (x >= 1) {
+            return 1;
+        }
+        if (x1 == y1 && x2 == y2) {
+            return x;
+        }
+        return sampleY(solveT(x));
+    }
+
+    private double solveT(double x) {
+        // the interval of samples that contains x gives the initial guess
+        int i = 1;
+        while (i < SAMPLES - 1 && mSamples[i] <= x) {
+            i++;
+        }
+        i--;
+        double start = i * SAMPLE_STEP;
+        double span = mSamples[i + 1] - mSamples[i];
+        double guess = span > 0 ? start + (x - mSamples[i]) / span * SAMPLE_STEP : start;
+
+        // Newton-Raphson converges quickly unless the curve is nearly flat. if it does not, bisect the interval.
+        for (int n = 0; n < NEWTON_ITERATIONS; n++) {
+            double error = sampleX(guess) - x;
+            if (Math.abs(error) <= PRECISION) {
+                return guess;
+            }
+            double slope = sampleDerivativeX(guess);
+            if (slope < NEWTON_MIN_SLOPE) {
+                break;
+            }
+            guess -= error / slope;
+        }
+        return subdivide(x, start, start + SAMPLE_STEP);
+    }
+
+    private double subdivide(double x, double low, double high) {
+        double t = low;
+        for (int n = 0; n < SUBDIVISION_MAX_ITERATIONS; n++) {
+            t = low + (high - low) / 2;
+            double error = sampleX(t) - x;
+            if (Math.abs(error) <= PRECISION) {
+                break;
+            }
+            if (error > 0) {
+                high = t;
+            } else {
+                low = t;
+            }
+        }
+        return t;
+    }
+
+    private double sampleX(double t) {
+        return ((ax * t + bx) * t + cx) * t;
+    }
+
+    private double sampleY(double t) {
+        return ((ay * t + by) * t + cy) * t;
+    }
+
+    private double sampleDerivativeX(double t) {
+        return (3 * ax * t + 2 * bx) * t + cx;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Description:
+ *
+ * An easing curve {@code f(x)}, {@code x} in [0,1], sampled at {@code resolution + 1} evenly spaced
+ * points. Values between the samples are interpolated linearly or with a Catmull-Rom spline, so
+ * looking up a value costs a few multiplications instead of {@code Math.pow}/{@code Math.sin}.
+ *
+ * The table is immutable and can be shared by any number of threads.
+ *
+ */
+final class EasingTable {
+
+    // probes per interval when measuring the error of the table
+    private static final int PROBES = 4;
+
+    private static final double EDGE = 1e-9;
+
+    /**
+     * the curve to sample
+     * */
+    interface Curve {
+        double valueAt(double x);
+    }
+
+    final int resolution;
+    final boolean cubic;
+
+    private final float[] samples;
+    private final double maxError;
+
+    private EasingTable(float[] samples, boolean cubic, double maxError) {
+        this.samples = samples;
+        this.resolution = samples.length - 1;
+        this.cubic = cubic;
+        this.maxError = maxError;
+    }
+
+    /**
+     * sample {@code curve} into a table.
+     *
+     * @param resolution the number of intervals between samples, at least 1
+     * @param cubic true to interpolate with a Catmull-Rom spline, false to interpolate linearly
+     * */
+    @NonNull
+    static EasingTable sample(@NonNull Curve curve, int resolution, boolean cubic) {
+        resolution = Math.max(resolution, 1);
+        float[] samples = new float[resolution + 1];
+        for (int i = 0; i <= resolution; i++) {
+            samples[i] = (float) curve.valueAt((double) i / resolution);
+        }
+        // some curves jump at the ends(e.g. easeInExpo is exactly 0 at 0 but 2^-10 right after it), so the
+        // samples at the ends are the limits next to them. the ends themselves are up to the caller.
+        samples[0] = (float) curve.valueAt(EDGE);
+        samples[resolution] = (float) curve.valueAt(1 - EDGE);
+
+        EasingTable table = new EasingTable(samples, cubic, 0);
+        double maxError = 0;
+        for (int i = 0; i < resolution; i++) {
+            for (int j = 1; j <= PROBES; j++) {
+                double x = (i + (double) j / (PROBES + 1)) / resolution;
+                maxError = Math.max(maxError, Math.abs(table.valueAt(x) - curve.valueAt(x)));
+            }
+        }
+        return new EasingTable(samples, cubic, maxError);
+    }
+
+    /**
+     * @param x the progress, clamped to [0,1]
+     * */
+    double valueAt(double x) {
+        if (!(x > 0)) {
+            return samples[0];
+        }
+        if (x >= 1) {
+            return samples[resolution];
+        }
+        double position = x * resolution;
+        int i = (int) position;
+        double fraction = position - i;
+        float p1 = samples[i];
+        float p2 = samples[i + 1];
+        if (!cubic) {
+            return p1 + (p2 - p1) * fraction;
+        }
+        // Catmull-Rom through the neighbouring samples. the curve is extrapolated quadratically beyond the ends.
+        double p0 = i > 0 ? samples[i - 1] : 3 * p1 - 3 * p2 + samples[Math.min(i + 2, resolution)];
+        double p3 = i + 2 <= resolution ? samples[i + 2] : 3 * p2 - 3 * p1 + samples[Math.max(i - 1, 0)];
+        double f2 = fraction * fraction;
+        double f3 = f2 * fraction;
+        return 0.5 * (2 * p1
+                + (p2 - p0) * fraction
+                + (2 * p0 - 5 * p1 + 4 * p2 - p3) * f2
+                + (3 * p1 - p0 - 3 * p2 + p3) * f3);
+    }
+
+    /**
+     * @return the largest difference from the sampled curve that was measured between the samples,
+     * in units of the curve(i.e. relative to {@code c} of an easing).
+     * */
+    double maxError() {
+        return maxError;
+    }
+
+    @Override
+    public String toString() {
+        return "EasingTable{resolution=" + resolution + ", cubic=" + cubic + ", maxError=" + maxError + "}";
+    }
+}
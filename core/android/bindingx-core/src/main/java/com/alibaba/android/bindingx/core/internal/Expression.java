@@ -16,177 +16,230 @@
 package com.alibaba.android.bindingx.core.internal;
 
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
 import com.alibaba.android.bindingx.core.LogProxy;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
-import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
- * Execute transformed expression use recursive way
+ * Execute transformed expression. The json syntax tree is compiled into a tree of
+ * {@link ExpressionNode} once by {@link ExpressionCompiler} and simplified by {@link ExpressionOptimizer},
+ * then evaluated recursively.
+ * If {@link #compileProgram()} has been called, the tree is lowered into an {@link ExpressionProgram}
+ * and executed by its bytecode loop instead.
  * */
 class Expression {
 
 
-    JSONObject root;
+    ExpressionNode root;
+
+    // bytecode form of root, only created for the bytecode engine
+    private ExpressionProgram program;
+
+    // slots of all variables that root reads, collected on first use
+    private int[] dependencies;
+    // whether root calls a function that is not pure, resolved on first use
+    private Boolean hasSideEffects;
 
     Expression(String json) {
         try {
-            this.root = (JSONObject) new JSONTokener(json).nextValue();
+            this.root = prepare(ExpressionCompiler.compile((JSONObject) new JSONTokener(json).nextValue()));
         } catch (Throwable e) {
             LogProxy.e("[Expression] expression is illegal. \n ", e);
         }
     }
 
     Expression(JSONObject root) {
+        try {
+            this.root = prepare(ExpressionCompiler.compile(root));
+        } catch (Throwable e) {
+            LogProxy.e("[Expression] expression is illegal. \n ", e);
+        }
+    }
+
+    Expression(ExpressionNode root) {
         this.root = root;
     }
 
+    /**
+     * compile the transformed expression, either in the binary form(see {@link ExpressionDecoder}) or as json,
+     * so that the result is the one that bindingx-parser meant. The origin expression is only compiled with
+     * {@link ExpressionParser} if there is no transformed one or it is illegal.
+     *
+     * @return compiled expression or null if there is nothing to execute
+     * */
+    @Nullable
+    static Expression compile(@NonNull ExpressionPair expressionPair) {
+        if (ExpressionDecoder.isBinary(expressionPair.transformed)) {
+            try {
+                return new Expression(prepare(ExpressionDecoder.decode(expressionPair.transformed)));
+            } catch (Throwable e) {
+                LogProxy.e("[Expression] binary expression is illegal. \n ", e);
+                return compileOrigin(expressionPair.origin);
+            }
+        }
+        if (!TextUtils.isEmpty(expressionPair.transformed) && !"{}".equals(expressionPair.transformed)) {
+            Expression expression = new Expression(expressionPair.transformed);
+            if (expression.isValid() || TextUtils.isEmpty(expressionPair.origin)) {
+                return expression;
+            }
+            LogProxy.d("[Expression] transformed expression is illegal, parse origin instead.");
+        }
+        return compileOrigin(expressionPair.origin);
+    }
+
+    @Nullable
+    private static Expression compileOrigin(@Nullable String origin) {
+        if (TextUtils.isEmpty(origin)) {
+            return null;
+        }
+        try {
+            return new Expression(prepare(ExpressionParser.parse(origin)));
+        } catch (Throwable e) {
+            LogProxy.e("[Expression] expression is illegal. \n ", e);
+            return null;
+        }
+    }
+
+    /**
+     * optimize a freshly compiled tree and check its types, so that an expression which can never be
+     * evaluated is rejected once here rather than on every frame(see {@link ExpressionTypeChecker}).
+     * */
+    @NonNull
+    private static ExpressionNode prepare(@NonNull ExpressionNode root) throws IllegalArgumentException {
+        ExpressionNode optimized = ExpressionOptimizer.optimize(root);
+        ExpressionTypeChecker.check(optimized);
+        return optimized;
+    }
+
+    boolean isValid() {
+        return root != null;
+    }
+
+    /**
+     * @return slots of the variables that this expression reads. The result will not change
+     * as long as none of them changes.
+     * */
+    int[] dependencies() {
+        if (dependencies == null) {
+            Set<Integer> slots = new LinkedHashSet<>();
+            if (root != null) {
+                collectDependencies(root, slots);
+            }
+            int[] result = new int[slots.size()];
+            int i = 0;
+            for (int slot : slots) {
+                result[i++] = slot;
+            }
+            dependencies = result;
+        }
+        return dependencies;
+    }
+
+    private static void collectDependencies(ExpressionNode node, Set<Integer> slots) {
+        if (node instanceof ExpressionNode.Identifier) {
+            slots.add(((ExpressionNode.Identifier) node).slot);
+        } else if (node instanceof ExpressionNode.Shared) {
+            collectDependencies(((ExpressionNode.Shared) node).node, slots);
+        }
+        for (ExpressionNode child : node.children()) {
+            collectDependencies(child, slots);
+        }
+    }
+
+    /**
+     * @return true if the expression calls a function that is not pure, so that it may give another result
+     * even if none of its {@link #dependencies()} has changed.
+     * */
+    boolean hasSideEffects() {
+        if (hasSideEffects == null) {
+            hasSideEffects = root != null && root.hasSideEffects();
+        }
+        return hasSideEffects;
+    }
+
+    /**
+     * lower the compiled tree into bytecode, so that the following executions run on {@link ExpressionProgram}.
+     * */
+    void compileProgram() {
+        if (root == null || program != null) {
+            return;
+        }
+        try {
+            program = ExpressionProgram.compile(root);
+        } catch (Throwable e) {
+            LogProxy.e("[Expression] compile program failed. \n ", e);
+        }
+    }
+
     Object execute(Map<String, Object> scope) throws IllegalArgumentException, JSONException {
-        return execute(this.root, scope);
-    }
-
-    private double toNumber(Object value) {
-        if (value instanceof String)
-            return Double.parseDouble((String) value);
-        if (value instanceof Boolean)
-            return (boolean) value ? 1.0 : 0.0;
-        return (double) value;
-    }
-
-    private boolean toBoolean(Object value) {
-        if (value instanceof String)
-            return (String) value == "";
-        if (value instanceof Double)
-            return (double) value != 0;
-        return ((Boolean) value).booleanValue();
-    }
-
-    private Object toPrimitive(Object value) {
-        if (value instanceof JSObjectInterface)
-            return "[object Object]";
-        return value;
-    }
-
-
-    private String toString(Object value) {
-        if (value instanceof Boolean)
-            return ((Boolean) value).booleanValue() ? "true" : "false";
-        if (value instanceof Double)
-            return Double.toString((Double) value);
-        return (String) value;
-    }
-
-    private boolean equal(Object v1, Object v2) {
-        if (v1 instanceof JSObjectInterface
-                && v2 instanceof JSObjectInterface)
-            return v1 == v2;
-        if (v1 instanceof String
-                && v2 instanceof String)
-            return v1.equals(v2);
-        if (v1 instanceof Boolean
-                && v2 instanceof Boolean)
-            return toBoolean(v1) == toBoolean(v2);
-        return toNumber(v1) == toNumber(v2);
-    }
-
-    private boolean strictlyEqual(Object v1, Object v2) {
-        if (v1 instanceof JSObjectInterface
-                && !(v2 instanceof JSObjectInterface))
-            return false;
-
-        if (v1 instanceof Boolean
-                && !(v2 instanceof Boolean))
-            return false;
-
-        if (v1 instanceof Double
-                && !(v2 instanceof Double))
-            return false;
-
-        if (v1 instanceof String
-                && !(v2 instanceof String))
-            return false;
-        return v1 == v2;
-    }
-
-    private Object execute(JSONObject node, Map<String, Object> scope) throws IllegalArgumentException, JSONException {
-
-        String type = node.getString("type");
-        JSONArray children = node.optJSONArray("children");
-        switch (type) {
-            case "StringLiteral":
-                return node.getString("value");
-            case "NumericLiteral":
-                return node.getDouble("value");
-            case "BooleanLiteral":
-                return node.getBoolean("value");
-            case "Identifier":
-                return scope.get(node.getString("value"));
-            case "CallExpression":
-                JSFunctionInterface function = (JSFunctionInterface) execute(children.getJSONObject(0), scope);
-                ArrayList<Object> arguments = new ArrayList<Object>();
-                JSONArray jsonArguments = children.getJSONObject(1).getJSONArray("children");
-                for (int i = 0; i < jsonArguments.length(); i++)
-                    arguments.add(execute(jsonArguments.getJSONObject(i), scope));
-                return function.execute(arguments);
-
-            case "?":
-                if ((Boolean) execute(children.getJSONObject(0), scope))
-                    return execute(children.getJSONObject(1), scope);
-                else
-                    return execute(children.getJSONObject(2), scope);
-
-            case "+":
-                return toNumber(execute(children.getJSONObject(0), scope)) + toNumber(execute(children.getJSONObject(1), scope));
-            case "-":
-                return toNumber(execute(children.getJSONObject(0), scope)) - toNumber(execute(children.getJSONObject(1), scope));
-            case "*":
-                return toNumber(execute(children.getJSONObject(0), scope)) * toNumber(execute(children.getJSONObject(1), scope));
-            case "/":
-                return toNumber(execute(children.getJSONObject(0), scope)) / toNumber(execute(children.getJSONObject(1), scope));
-            case "%":
-                return toNumber(execute(children.getJSONObject(0), scope)) % toNumber(execute(children.getJSONObject(1), scope));
-            case "**":
-                return Math.pow(toNumber(execute(children.getJSONObject(0), scope)), toNumber(execute(children.getJSONObject(1), scope)));
-
-            case ">":
-                return toNumber(execute(children.getJSONObject(0), scope)) > toNumber(execute(children.getJSONObject(1), scope));
-            case "<":
-                return toNumber(execute(children.getJSONObject(0), scope)) < toNumber(execute(children.getJSONObject(1), scope));
-            case ">=":
-                return toNumber(execute(children.getJSONObject(0), scope)) >= toNumber(execute(children.getJSONObject(1), scope));
-            case "<=":
-                return toNumber(execute(children.getJSONObject(0), scope)) <= toNumber(execute(children.getJSONObject(1), scope));
-
-            case "==":
-                return equal(execute(children.getJSONObject(0), scope), execute(children.getJSONObject(1), scope));
-            case "===":
-                return strictlyEqual(execute(children.getJSONObject(0), scope), execute(children.getJSONObject(1), scope));
-            case "!=":
-                return !equal(execute(children.getJSONObject(0), scope), execute(children.getJSONObject(1), scope));
-            case "!==":
-                return !strictlyEqual(execute(children.getJSONObject(0), scope), execute(children.getJSONObject(1), scope));
-
-            case "&&":
-                Object result;
-                result = execute(children.getJSONObject(0), scope);
-                if (!toBoolean(result))
-                    return result;
-                return execute(children.getJSONObject(1), scope);
-            case "||":
-                result = execute(children.getJSONObject(0), scope);
-                if (toBoolean(result))
-                    return result;
-                return execute(children.getJSONObject(1), scope);
-            case "!":
-                return !toBoolean(execute(children.getJSONObject(0), scope));
-
-        }
-        return null;
+        if (root == null) {
+            return null;
+        }
+        if (program != null) {
+            return program.execute(asExpressionScope(scope));
+        }
+        return root.evaluate(asExpressionScope(scope));
+    }
+
+    /**
+     * @return true if the expression always produces a number, so that
+     * {@link #executeDouble(Map)} can be used to avoid boxing.
+     * */
+    boolean isNumeric() {
+        return root != null && root.isNumeric();
+    }
+
+    /**
+     * @return true if the expression is a call of a {@link VectorFunction} with numeric arguments, so that
+     * {@link #executeVector(Map, VectorValue)} can reuse the value of an earlier execution.
+     * */
+    boolean isVector() {
+        return root instanceof ExpressionNode.Call && ((ExpressionNode.Call) root).isVector();
+    }
+
+    /**
+     * execute a {@link #isVector() vector} expression. The arguments are always evaluated by the tree,
+     * they are usually too simple to be worth a program of their own.
+     *
+     * @param reuse a value of an earlier execution that is no longer used, or null
+     * */
+    Object executeVector(Map<String, Object> scope, @Nullable VectorValue reuse) throws IllegalArgumentException, JSONException {
+        return ((ExpressionNode.Call) root).evaluateVector(asExpressionScope(scope), reuse);
+    }
+
+    double executeDouble(Map<String, Object> scope) throws IllegalArgumentException, JSONException {
+        if (root == null) {
+            return Double.NaN;
+        }
+        if (program != null) {
+            return program.executeDouble(asExpressionScope(scope));
+        }
+        return root.evaluateDouble(asExpressionScope(scope));
+    }
+
+    boolean executeBoolean(Map<String, Object> scope) throws IllegalArgumentException, JSONException {
+        if (program != null) {
+            return program.executeBoolean(asExpressionScope(scope));
+        }
+        return root != null && root.evaluateBoolean(asExpressionScope(scope));
+    }
+
+    private static ExpressionScope asExpressionScope(Map<String, Object> scope) {
+        if (scope instanceof ExpressionScope) {
+            return (ExpressionScope) scope;
+        }
+        // copy variables of a plain map into slots
+        return new ExpressionScope(scope);
     }
 
 }
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Description:
+ *
+ * Process-wide LRU cache of compiled expressions, shared by all the event handlers of all instances.
+ * It is bounded by both the number of entries and the estimated memory of the entries.
+ *
+ * Cached expressions are shared, so they must never be modified. Event handlers that need to
+ * rewrite an expression work on a copy.
+ *
+ * The result of a pair is cached whatever it is: the origin that was parsed because the transformed
+ * expression is illegal, as well as an expression that could not be compiled at all. Otherwise they
+ * would be parsed and logged again every time they are bound.
+ *
+ */
+final class ExpressionCache {
+
+    private static final int MAX_ENTRIES = 256;
+    private static final long MAX_BYTES = 256 * 1024;
+
+    // rough sizes of an object header with a few fields, used to estimate the memory of an entry
+    private static final int OBJECT_BYTES = 32;
+    private static final int NODE_BYTES = 48;
+
+    private static final ExpressionCache sInstance = new ExpressionCache(MAX_ENTRIES, MAX_BYTES);
+
+    private final int mMaxEntries;
+    private final long mMaxBytes;
+
+    private final LinkedHashMap<ExpressionPair, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mBytes;
+
+    private long mHitCount;
+    private long mMissCount;
+    private long mEvictionCount;
+
+    private static class Entry {
+        // null or invalid if the pair could not be compiled
+        final Expression expression;
+        final int bytes;
+
+        Entry(Expression expression, int bytes) {
+            this.expression = expression;
+            this.bytes = bytes;
+        }
+    }
+
+    ExpressionCache(int maxEntries, long maxBytes) {
+        this.mMaxEntries = Math.max(maxEntries, 1);
+        this.mMaxBytes = Math.max(maxBytes, 0);
+    }
+
+    @NonNull
+    static ExpressionCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * @return the compiled expression, which is compiled now if it is not cached yet. null or invalid if
+     * there is nothing to execute or the expression is illegal.
+     * */
+    @Nullable
+    Expression obtain(@NonNull ExpressionPair expressionPair) {
+        synchronized (this) {
+            Entry entry = mEntries.get(expressionPair);
+            if (entry != null) {
+                mHitCount++;
+                return entry.expression;
+            }
+            mMissCount++;
+        }
+
+        // compile outside the lock. if two threads compile the same pair, the later one wins.
+        Expression expression = Expression.compile(expressionPair);
+        if (expression == null && isEmpty(expressionPair)) {
+            return null;
+        }
+        Entry entry = new Entry(expression, estimateBytes(expressionPair, expression == null ? null : expression.root));
+        synchronized (this) {
+            Entry previous = mEntries.put(expressionPair, entry);
+            if (previous != null) {
+                mBytes -= previous.bytes;
+            }
+            mBytes += entry.bytes;
+            trimToSize();
+        }
+        return expression;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<ExpressionPair, Entry>> iterator = mEntries.entrySet().iterator();
+        while ((mEntries.size() > mMaxEntries || mBytes > mMaxBytes) && iterator.hasNext()) {
+            mBytes -= iterator.next().getValue().bytes;
+            iterator.remove();
+            mEvictionCount++;
+        }
+    }
+
+    synchronized void clear() {
+        mEntries.clear();
+        mBytes = 0;
+    }
+
+    synchronized int size() {
+        return mEntries.size();
+    }
+
+    synchronized long sizeInBytes() {
+        return mBytes;
+    }
+
+    synchronized long hitCount() {
+        return mHitCount;
+    }
+
+    synchronized long missCount() {
+        return mMissCount;
+    }
+
+    synchronized long evictionCount() {
+        return mEvictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ExpressionCache{size=" + mEntries.size() + ", bytes=" + mBytes + ", hits=" + mHitCount
+                + ", misses=" + mMissCount + ", evictions=" + mEvictionCount + "}";
+    }
+
+    private static boolean isEmpty(@NonNull ExpressionPair expressionPair) {
+        return TextUtils.isEmpty(expressionPair.origin)
+                && (TextUtils.isEmpty(expressionPair.transformed) || "{}".equals(expressionPair.transformed));
+    }
+
+    private static int estimateBytes(ExpressionPair expressionPair, @Nullable ExpressionNode root) {
+        return OBJECT_BYTES * 3 + estimateBytes(expressionPair.origin) + estimateBytes(expressionPair.transformed)
+                + (root == null ? 0 : estimateBytes(root));
+    }
+
+    private static int estimateBytes(@Nullable String text) {
+        return text == null ? 0 : OBJECT_BYTES + 2 * text.length();
+    }
+
+    private static int estimateBytes(ExpressionNode node) {
+        int bytes = NODE_BYTES;
+        if (node instanceof ExpressionNode.Literal && ((ExpressionNode.Literal) node).value instanceof String) {
+            bytes += estimateBytes((String) ((ExpressionNode.Literal) node).value);
+        }
+        for (ExpressionNode child : node.children()) {
+            bytes += estimateBytes(child);
+        }
+        return bytes;
+    }
+}
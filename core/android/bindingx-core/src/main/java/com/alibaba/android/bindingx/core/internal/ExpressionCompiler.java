@@ -0,0 +1,112 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Description:
+ *
+ * Compile the transformed expression(json syntax tree produced by bindingx-parser)
+ * into a tree of {@link ExpressionNode}. This happens once when expressions are bound,
+ * so that per-frame evaluation does not need any json lookup or string comparison.
+ *
+ */
+final class ExpressionCompiler {
+
+    private ExpressionCompiler() {
+    }
+
+    @NonNull
+    static ExpressionNode compile(@NonNull JSONObject node) throws JSONException {
+        String type = node.getString("type");
+        JSONArray children = node.optJSONArray("children");
+        switch (type) {
+            case "StringLiteral":
+                return new ExpressionNode.Literal(node.getString("value"));
+            case "NumericLiteral":
+                return new ExpressionNode.Literal(node.getDouble("value"));
+            case "BooleanLiteral":
+                return new ExpressionNode.Literal(node.getBoolean("value"));
+            case "Identifier":
+                return new ExpressionNode.Identifier(node.getString("value"));
+            case "CallExpression":
+                JSONArray jsonArguments = children.getJSONObject(1).getJSONArray("children");
+                ExpressionNode[] arguments = new ExpressionNode[jsonArguments.length()];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = compile(jsonArguments.getJSONObject(i));
+                }
+                return new ExpressionNode.Call(compile(children.getJSONObject(0)), arguments);
+
+            case "?":
+                return new ExpressionNode.Conditional(
+                        compile(children.getJSONObject(0)),
+                        compile(children.getJSONObject(1)),
+                        compile(children.getJSONObject(2)));
+
+            case "!":
+                return new ExpressionNode.Not(compile(children.getJSONObject(0)));
+
+            case "+":
+                return binary(ExpressionNode.Binary.ADD, children);
+            case "-":
+                return binary(ExpressionNode.Binary.SUB, children);
+            case "*":
+                return binary(ExpressionNode.Binary.MUL, children);
+            case "/":
+                return binary(ExpressionNode.Binary.DIV, children);
+            case "%":
+                return binary(ExpressionNode.Binary.MOD, children);
+            case "**":
+                return binary(ExpressionNode.Binary.POW, children);
+
+            case ">":
+                return binary(ExpressionNode.Binary.GT, children);
+            case "<":
+                return binary(ExpressionNode.Binary.LT, children);
+            case ">=":
+                return binary(ExpressionNode.Binary.GE, children);
+            case "<=":
+                return binary(ExpressionNode.Binary.LE, children);
+
+            case "==":
+                return binary(ExpressionNode.Binary.EQ, children);
+            case "===":
+                return binary(ExpressionNode.Binary.STRICT_EQ, children);
+            case "!=":
+                return binary(ExpressionNode.Binary.NE, children);
+            case "!==":
+                return binary(ExpressionNode.Binary.STRICT_NE, children);
+
+            case "&&":
+                return binary(ExpressionNode.Binary.AND, children);
+            case "||":
+                return binary(ExpressionNode.Binary.OR, children);
+        }
+        // unknown node always evaluates to null
+        return new ExpressionNode.Literal(null);
+    }
+
+    private static ExpressionNode binary(int operator, JSONArray children) throws JSONException {
+        return new ExpressionNode.Binary(operator,
+                compile(children.getJSONObject(0)),
+                compile(children.getJSONObject(1)));
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Base64;
+
+import java.nio.charset.Charset;
+
+/**
+ * Description:
+ *
+ * Decode the compact binary form of the transformed expression(emitted by {@code parseBinary} of
+ * bindingx-parser) directly into a tree of {@link ExpressionNode}, without going through json.
+ *
+ * <pre>
+ *   "bx1:" + base64(constants identifiers node)
+ *
+ *   constants:   varint count, then per constant a tag and its value
+ *                0 null, 1 true, 2 false, 3 integer(zigzag varint), 4 double(8 bytes big endian),
+ *                5 string(varint byte length + utf-8)
+ *   identifiers: varint count, then per identifier varint byte length + utf-8
+ *   node:        prefix order, one opcode per node
+ *                0x01 constant(varint index), 0x02 identifier(varint index),
+ *                0x03 call(varint argument count, callee, arguments...), 0x04 conditional(test, consequent, alternate),
+ *                0x05 not(operand), 0x10 + operator index(left, right) for {@link #BINARY_OPERATORS}
+ * </pre>
+ *
+ */
+final class ExpressionDecoder {
+
+    static final String PREFIX = "bx1:";
+
+    private static final int OP_CONSTANT = 0x01;
+    private static final int OP_IDENTIFIER = 0x02;
+    private static final int OP_CALL = 0x03;
+    private static final int OP_CONDITIONAL = 0x04;
+    private static final int OP_NOT = 0x05;
+    private static final int OP_BINARY = 0x10;
+
+    // + - * / % ** > < >= <= == === != !== && ||, in the order of the wire format
+    private static final int[] BINARY_OPERATORS = {
+            ExpressionNode.Binary.ADD, ExpressionNode.Binary.SUB, ExpressionNode.Binary.MUL,
+            ExpressionNode.Binary.DIV, ExpressionNode.Binary.MOD, ExpressionNode.Binary.POW,
+            ExpressionNode.Binary.GT, ExpressionNode.Binary.LT, ExpressionNode.Binary.GE,
+            ExpressionNode.Binary.LE, ExpressionNode.Binary.EQ, ExpressionNode.Binary.STRICT_EQ,
+            ExpressionNode.Binary.NE, ExpressionNode.Binary.STRICT_NE, ExpressionNode.Binary.AND,
+            ExpressionNode.Binary.OR
+    };
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_TRUE = 1;
+    private static final int TAG_FALSE = 2;
+    private static final int TAG_INTEGER = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_STRING = 5;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] mBytes;
+    private int mPosition;
+
+    private Object[] mConstants;
+    private String[] mIdentifiers;
+
+    private ExpressionDecoder(byte[] bytes) {
+        this.mBytes = bytes;
+    }
+
+    /**
+     * @return true if {@code transformed} is in the binary form rather than json
+     * */
+    static boolean isBinary(@Nullable String transformed) {
+        return transformed != null && transformed.startsWith(PREFIX);
+    }
+
+    @NonNull
+    static ExpressionNode decode(@NonNull String transformed) throws IllegalArgumentException {
+        if (!isBinary(transformed)) {
+            throw new IllegalArgumentException("not a binary expression");
+        }
+        ExpressionDecoder decoder = new ExpressionDecoder(Base64.decode(transformed.substring(PREFIX.length()), Base64.DEFAULT));
+        try {
+            decoder.readTables();
+            ExpressionNode root = decoder.readNode();
+            if (decoder.mPosition != decoder.mBytes.length) {
+                throw new IllegalArgumentException("unexpected trailing bytes at " + decoder.mPosition);
+            }
+            return root;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated binary expression", e);
+        }
+    }
+
+    private void readTables() {
+        mConstants = new Object[readCount()];
+        for (int i = 0; i < mConstants.length; i++) {
+            int tag = mBytes[mPosition++];
+            switch (tag) {
+                case TAG_NULL:
+                    mConstants[i] = null;
+                    break;
+                case TAG_TRUE:
+                    mConstants[i] = true;
+                    break;
+                case TAG_FALSE:
+                    mConstants[i] = false;
+                    break;
+                case TAG_INTEGER:
+                    int zigzag = readVarint();
+                    mConstants[i] = (double) ((zigzag >>> 1) ^ -(zigzag & 1));
+                    break;
+                case TAG_DOUBLE:
+                    long bits = 0;
+                    for (int j = 0; j < 8; j++) {
+                        bits = (bits << 8) | (mBytes[mPosition++] & 0xff);
+                    }
+                    mConstants[i] = Double.longBitsToDouble(bits);
+                    break;
+                case TAG_STRING:
+                    mConstants[i] = readString();
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown constant tag " + tag);
+            }
+        }
+        mIdentifiers = new String[readCount()];
+        for (int i = 0; i < mIdentifiers.length; i++) {
+            mIdentifiers[i] = readString();
+        }
+    }
+
+    private ExpressionNode readNode() {
+        int op = mBytes[mPosition++] & 0xff;
+        switch (op) {
+            case OP_CONSTANT:
+                return new ExpressionNode.Literal(mConstants[readIndex(mConstants.length)]);
+            case OP_IDENTIFIER:
+                return new ExpressionNode.Identifier(mIdentifiers[readIndex(mIdentifiers.length)]);
+            case OP_CALL: {
+                int count = readCount();
+                ExpressionNode callee = readNode();
+                ExpressionNode[] arguments = new ExpressionNode[count];
+                for (int i = 0; i < count; i++) {
+                    arguments[i] = readNode();
+                }
+                return new ExpressionNode.Call(callee, arguments);
+            }
+            case OP_CONDITIONAL: {
+                ExpressionNode test = readNode();
+                ExpressionNode consequent = readNode();
+                return new ExpressionNode.Conditional(test, consequent, readNode());
+            }
+            case OP_NOT:
+                return new ExpressionNode.Not(readNode());
+        }
+        if (op >= OP_BINARY && op < OP_BINARY + BINARY_OPERATORS.length) {
+            ExpressionNode left = readNode();
+            return new ExpressionNode.Binary(BINARY_OPERATORS[op - OP_BINARY], left, readNode());
+        }
+        throw new IllegalArgumentException("unknown opcode " + op + " at " + (mPosition - 1));
+    }
+
+    private String readString() {
+        int length = readCount();
+        if (length > mBytes.length - mPosition) {
+            throw new IllegalArgumentException("truncated string at " + mPosition);
+        }
+        String value = new String(mBytes, mPosition, length, UTF_8);
+        mPosition += length;
+        return value;
+    }
+
+    private int readIndex(int size) {
+        int index = readVarint();
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("index " + index + " out of " + size);
+        }
+        return index;
+    }
+
+    // a count can not be larger than the remaining bytes, which stops corrupt input from allocating a lot
+    private int readCount() {
+        int count = readVarint();
+        if (count < 0 || count > mBytes.length - mPosition) {
+            throw new IllegalArgumentException("illegal count " + count + " at " + mPosition);
+        }
+        return count;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = mBytes[mPosition++];
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint at " + mPosition);
+    }
+}
@@ -15,6 +15,9 @@
  */
 package com.alibaba.android.bindingx.core.internal;
 
+import android.view.View;
+
+import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.Map;
 
@@ -27,6 +30,28 @@ final class ExpressionHolder {
     String eventType;
     Map<String,Object> config;
 
+    // compiled form of expressionPair, created when the expression is bound
+    Expression expression;
+
+    // set if this is one of the elements of a batch binding, which evaluates all of them at once
+    BatchExpression batch;
+    int lane;
+
+    // the target and its cached view, shared by the holders of the same target(see BindingProgram)
+    TargetView target;
+
+    // scope version when the expression was evaluated last time, or -1 if it has never been evaluated
+    long evaluatedVersion = -1;
+    // generation of the target view that evaluatedVersion refers to(see TargetView#generation)
+    int evaluatedGeneration;
+
+    // the value that was applied to the view last time, and that view
+    Object lastValue;
+    WeakReference<View> lastTarget;
+
+    // vector values are evaluated into these two in turn, so that lastValue stays intact
+    final VectorValue[] vectors = new VectorValue[2];
+
     ExpressionHolder(String target, String targetInstanceId, ExpressionPair expressionPair, String prop, String eventType, Map<String,Object> config) {
         this.targetRef = target;
         this.targetInstanceId = targetInstanceId;
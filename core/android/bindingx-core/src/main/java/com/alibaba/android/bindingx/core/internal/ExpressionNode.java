@@ -0,0 +1,843 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.Nullable;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Description:
+ *
+ * A node of the compiled expression tree. Instances are created by {@link ExpressionCompiler}
+ * and are immutable, so that a compiled tree can be evaluated again and again without
+ * touching the original json.
+ *
+ * Besides the generic {@link #evaluate(ExpressionScope)}, every node can be evaluated through the primitive
+ * {@link #evaluateDouble(ExpressionScope)} and {@link #evaluateBoolean(ExpressionScope)}. Numeric and logical nodes
+ * override them, so that a numeric subtree is evaluated without boxing any intermediate value.
+ *
+ * Nodes implement structural {@link #equals(Object)} and {@link #hashCode()}, so that identical subtrees of
+ * different expressions can be found and merged(see {@link CommonSubexpressionEliminator}).
+ *
+ */
+abstract class ExpressionNode {
+
+    abstract Object evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException;
+
+    double evaluateDouble(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+        return toNumber(evaluate(scope));
+    }
+
+    boolean evaluateBoolean(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+        if (isNumeric()) {
+            // same as toBoolean of the boxed number
+            return evaluateDouble(scope) != 0;
+        }
+        return toBoolean(evaluate(scope));
+    }
+
+    /**
+     * @return true if this node always produces a number, which means
+     * {@link #evaluateDouble(ExpressionScope)} is the cheapest way to evaluate it.
+     * */
+    boolean isNumeric() {
+        return false;
+    }
+
+    /**
+     * @return true if this node always produces a boolean.
+     * */
+    boolean isBoolean() {
+        return false;
+    }
+
+    /**
+     * @return true if evaluating this node again may give another result for the same variables, because it
+     * calls a registered function that is not pure(see {@link Builtins#hasSideEffects(String)}).
+     * */
+    boolean hasSideEffects() {
+        for (ExpressionNode child : children()) {
+            if (child.hasSideEffects()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final ExpressionNode[] NO_CHILDREN = new ExpressionNode[0];
+
+    /**
+     * @return the direct children of this node, in evaluation order.
+     * */
+    ExpressionNode[] children() {
+        return NO_CHILDREN;
+    }
+
+    /**
+     * @return a node of the same type with {@code children} replaced, see {@link #children()}.
+     * */
+    ExpressionNode withChildren(ExpressionNode[] children) {
+        return this;
+    }
+
+    static int hash(int seed, Object... values) {
+        int hash = seed;
+        for (Object value : values) {
+            hash = 31 * hash + (value == null ? 0 : value.hashCode());
+        }
+        return hash;
+    }
+
+    static double toNumber(Object value) {
+        if (value instanceof Double)
+            return (double) value;
+        if (value instanceof String)
+            return Double.parseDouble((String) value);
+        if (value instanceof Boolean)
+            return (boolean) value ? 1.0 : 0.0;
+        if (value instanceof Number)
+            return ((Number) value).doubleValue();
+        return (double) value;
+    }
+
+    static boolean toBoolean(Object value) {
+        if (value instanceof String)
+            return (String) value == "";
+        if (value instanceof Double)
+            return (double) value != 0;
+        return ((Boolean) value).booleanValue();
+    }
+
+    static boolean equal(Object v1, Object v2) {
+        if (v1 instanceof JSObjectInterface
+                && v2 instanceof JSObjectInterface)
+            return v1 == v2;
+        if (v1 instanceof String
+                && v2 instanceof String)
+            return v1.equals(v2);
+        if (v1 instanceof Boolean
+                && v2 instanceof Boolean)
+            return toBoolean(v1) == toBoolean(v2);
+        return toNumber(v1) == toNumber(v2);
+    }
+
+    static boolean strictlyEqual(Object v1, Object v2) {
+        if (v1 instanceof JSObjectInterface
+                && !(v2 instanceof JSObjectInterface))
+            return false;
+
+        if (v1 instanceof Boolean
+                && !(v2 instanceof Boolean))
+            return false;
+
+        if (v1 instanceof Double
+                && !(v2 instanceof Double))
+            return false;
+
+        if (v1 instanceof String
+                && !(v2 instanceof String))
+            return false;
+        return v1 == v2;
+    }
+
+    static final class Literal extends ExpressionNode {
+        final Object value;
+        private final boolean isNumber;
+        private final double number;
+
+        Literal(Object value) {
+            this.value = value;
+            this.isNumber = value instanceof Double;
+            this.number = isNumber ? (double) value : Double.NaN;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Literal)) return false;
+            Object other = ((Literal) o).value;
+            return value == null ? other == null : value.equals(other);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash(1, value);
+        }
+
+        @Override
+        Object evaluate(ExpressionScope scope) {
+            return value;
+        }
+
+        @Override
+        double evaluateDouble(ExpressionScope scope) {
+            return isNumber ? number : toNumber(value);
+        }
+
+        @Override
+        boolean isNumeric() {
+            return isNumber;
+        }
+
+        @Override
+        boolean isBoolean() {
+            return value instanceof Boolean;
+        }
+    }
+
+    static final class Identifier extends ExpressionNode {
+        final String name;
+        // resolved when compiled, so that evaluation is a plain array load
+        final int slot;
+        private final boolean isNumeric;
+
+        Identifier(String name) {
+            this.name = name;
+            this.slot = ExpressionScope.slotOf(name);
+            this.isNumeric = ExpressionScope.isNumericSlot(slot);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Identifier && ((Identifier) o).slot == slot
+                    && (slot != ExpressionScope.NO_SLOT || ((Identifier) o).name.equals(name)));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * 2 + (slot != ExpressionScope.NO_SLOT ? slot : name.hashCode());
+        }
+
+        @Override
+        Object evaluate(ExpressionScope scope) {
+            // a name without a slot is looked up in the scope by name
+            return slot != ExpressionScope.NO_SLOT ? scope.get(slot) : scope.get(name);
+        }
+
+        @Override
+        double evaluateDouble(ExpressionScope scope) {
+            return slot != ExpressionScope.NO_SLOT ? scope.getDouble(slot) : toNumber(scope.get(name));
+        }
+
+        @Override
+        boolean isNumeric() {
+            return isNumeric;
+        }
+    }
+
+    static final class Call extends ExpressionNode {
+        final ExpressionNode callee;
+        final ExpressionNode[] arguments;
+
+        private final int hash;
+        // resolved when compiled, true if the callee is a built-in NativeFunction
+        private final boolean isNumeric;
+        // resolved when compiled, true if the callee is a built-in VectorFunction and all arguments are numbers
+        private final boolean isVector;
+        // resolved when compiled, true if the callee is a built-in ColorFunction and all arguments are numbers
+        private final boolean isColor;
+        // resolved when compiled, true if the callee or any argument calls a function that is not pure
+        private final boolean hasSideEffects;
+
+        Call(ExpressionNode callee, ExpressionNode[] arguments) {
+            this.callee = callee;
+            this.arguments = arguments;
+            this.hash = hash(hash(3, callee), (Object[]) arguments);
+            Object builtin = resolve(callee);
+            boolean isNative = builtin instanceof NativeFunction && ((NativeFunction) builtin).accepts(arguments.length);
+            boolean isVector = builtin instanceof VectorFunction && ((VectorFunction) builtin).accepts(arguments.length);
+            boolean numericArguments = true;
+            for (ExpressionNode argument : arguments) {
+                numericArguments &= argument.isNumeric();
+            }
+            this.isNumeric = isNative && !(builtin instanceof ColorFunction);
+            this.isVector = isVector && numericArguments;
+            this.isColor = isNative && builtin instanceof ColorFunction && numericArguments;
+            this.hasSideEffects = (callee instanceof Identifier && Builtins.hasSideEffects(((Identifier) callee).name))
+                    || super.hasSideEffects();
+        }
+
+        @Override
+        boolean hasSideEffects() {
+            return hasSideEffects;
+        }
+
+        /**
+         * @return the function that {@code callee} refers to if it is known when compiled, i.e. a built-in
+         * or a function bound into a literal(see {@link Interpolation#bind()}), or null otherwise.
+         * */
+        @Nullable
+        static Object resolve(ExpressionNode callee) {
+            if (callee instanceof Identifier) {
+                return Builtins.get(((Identifier) callee).name);
+            }
+            return callee instanceof Literal ? ((Literal) callee).value : null;
+        }
+
+        @Override
+        ExpressionNode[] children() {
+            ExpressionNode[] children = new ExpressionNode[arguments.length + 1];
+            children[0] = callee;
+            System.arraycopy(arguments, 0, children, 1, arguments.length);
+            return children;
+        }
+
+        @Override
+        ExpressionNode withChildren(ExpressionNode[] children) {
+            ExpressionNode[] arguments = new ExpressionNode[children.length - 1];
+            System.arraycopy(children, 1, arguments, 0, arguments.length);
+            return new Call(children[0], arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Call)) return false;
+            Call other = (Call) o;
+            return hash == other.hash && callee.equals(other.callee) && Arrays.equals(arguments, other.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        Object evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            Object function = callee.evaluate(scope);
+            if (canCall(function)) {
+                double value = call((NativeFunction) function, scope);
+                // colors are packed argb ints
+                return function instanceof ColorFunction ? (Object) (int) value : (Object) value;
+            }
+            if (isVector && function instanceof VectorFunction && ((VectorFunction) function).accepts(arguments.length)) {
+                return pack((VectorFunction) function, scope, null);
+            }
+            return execute((JSFunctionInterface) function, scope);
+        }
+
+        /**
+         * same as {@link #evaluate(ExpressionScope)}, but {@code reuse} may be returned with new components
+         * if this is a call of a {@link VectorFunction}.
+         * */
+        Object evaluateVector(ExpressionScope scope, @Nullable VectorValue reuse) throws IllegalArgumentException, JSONException {
+            Object function = callee.evaluate(scope);
+            if (isVector && function instanceof VectorFunction && ((VectorFunction) function).accepts(arguments.length)) {
+                return pack((VectorFunction) function, scope, reuse);
+            }
+            return evaluate(scope);
+        }
+
+        private VectorValue pack(VectorFunction function, ExpressionScope scope, @Nullable VectorValue reuse)
+                throws IllegalArgumentException, JSONException {
+            VectorValue value = function.obtainValue(arguments.length, reuse);
+            for (int i = 0, size = value.size(); i < size; i++) {
+                value.setComponent(i, arguments[i].evaluateDouble(scope));
+            }
+            return value;
+        }
+
+        boolean isVector() {
+            return isVector;
+        }
+
+        boolean isColor() {
+            return isColor;
+        }
+
+        @Override
+        double evaluateDouble(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            Object function = callee.evaluate(scope);
+            if (canCall(function)) {
+                return call((NativeFunction) function, scope);
+            }
+            return toNumber(execute((JSFunctionInterface) function, scope));
+        }
+
+        /**
+         * @return true if {@code function} can be called through its primitive entry points. Colors
+         * may be strings, so a {@link ColorFunction} is only called this way if its arguments are numbers.
+         * */
+        private boolean canCall(Object function) {
+            if (!(function instanceof NativeFunction) || !((NativeFunction) function).accepts(arguments.length)) {
+                return false;
+            }
+            return isColor || !(function instanceof ColorFunction);
+        }
+
+        private double call(NativeFunction function, ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            switch (arguments.length) {
+                case 1:
+                    return function.call1(arguments[0].evaluateDouble(scope));
+                case 2:
+                    return function.call2(arguments[0].evaluateDouble(scope), arguments[1].evaluateDouble(scope));
+                case 3:
+                    return function.call3(arguments[0].evaluateDouble(scope), arguments[1].evaluateDouble(scope),
+                            arguments[2].evaluateDouble(scope));
+                case 4:
+                    return function.call4(arguments[0].evaluateDouble(scope), arguments[1].evaluateDouble(scope),
+                            arguments[2].evaluateDouble(scope), arguments[3].evaluateDouble(scope));
+                default:
+                    double[] args = new double[arguments.length];
+                    for (int i = 0; i < args.length; i++) {
+                        args[i] = arguments[i].evaluateDouble(scope);
+                    }
+                    return function.callN(args);
+            }
+        }
+
+        private Object execute(JSFunctionInterface function, ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            ArrayList<Object> args = new ArrayList<>(arguments.length);
+            for (ExpressionNode argument : arguments) {
+                args.add(argument.evaluate(scope));
+            }
+            return function.execute(args);
+        }
+
+        @Override
+        boolean isNumeric() {
+            return isNumeric;
+        }
+    }
+
+    // the test is converted like any other condition(see toBoolean), so a number or a string can be
+    // tested as in javascript. The interpreter used to cast it to Boolean and failed on anything else.
+    static final class Conditional extends ExpressionNode {
+        final ExpressionNode test;
+        final ExpressionNode consequent;
+        final ExpressionNode alternate;
+
+        private final int hash;
+        private final boolean isNumeric;
+        private final boolean isBoolean;
+
+        Conditional(ExpressionNode test, ExpressionNode consequent, ExpressionNode alternate) {
+            this.test = test;
+            this.consequent = consequent;
+            this.alternate = alternate;
+            this.hash = hash(4, test, consequent, alternate);
+            this.isNumeric = consequent.isNumeric() && alternate.isNumeric();
+            this.isBoolean = consequent.isBoolean() && alternate.isBoolean();
+        }
+
+        @Override
+        ExpressionNode[] children() {
+            return new ExpressionNode[]{test, consequent, alternate};
+        }
+
+        @Override
+        ExpressionNode withChildren(ExpressionNode[] children) {
+            return new Conditional(children[0], children[1], children[2]);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Conditional)) return false;
+            Conditional other = (Conditional) o;
+            return hash == other.hash && test.equals(other.test)
+                    && consequent.equals(other.consequent) && alternate.equals(other.alternate);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        Object evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            if (test.evaluateBoolean(scope))
+                return consequent.evaluate(scope);
+            else
+                return alternate.evaluate(scope);
+        }
+
+        @Override
+        double evaluateDouble(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            if (test.evaluateBoolean(scope))
+                return consequent.evaluateDouble(scope);
+            else
+                return alternate.evaluateDouble(scope);
+        }
+
+        @Override
+        boolean evaluateBoolean(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            if (test.evaluateBoolean(scope))
+                return consequent.evaluateBoolean(scope);
+            else
+                return alternate.evaluateBoolean(scope);
+        }
+
+        @Override
+        boolean isNumeric() {
+            return isNumeric;
+        }
+
+        @Override
+        boolean isBoolean() {
+            return isBoolean;
+        }
+    }
+
+    static final class Not extends ExpressionNode {
+        final ExpressionNode operand;
+
+        private final int hash;
+
+        Not(ExpressionNode operand) {
+            this.operand = operand;
+            this.hash = hash(5, operand);
+        }
+
+        @Override
+        ExpressionNode[] children() {
+            return new ExpressionNode[]{operand};
+        }
+
+        @Override
+        ExpressionNode withChildren(ExpressionNode[] children) {
+            return new Not(children[0]);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Not && hash == ((Not) o).hash && operand.equals(((Not) o).operand));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        Object evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            return !operand.evaluateBoolean(scope);
+        }
+
+        @Override
+        double evaluateDouble(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            return operand.evaluateBoolean(scope) ? 0.0 : 1.0;
+        }
+
+        @Override
+        boolean evaluateBoolean(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            return !operand.evaluateBoolean(scope);
+        }
+
+        @Override
+        boolean isBoolean() {
+            return true;
+        }
+    }
+
+    static final class Binary extends ExpressionNode {
+        static final int ADD = 0;
+        static final int SUB = 1;
+        static final int MUL = 2;
+        static final int DIV = 3;
+        static final int MOD = 4;
+        static final int POW = 5;
+        static final int GT = 6;
+        static final int LT = 7;
+        static final int GE = 8;
+        static final int LE = 9;
+        static final int EQ = 10;
+        // numbers are strictly equal if their values are, as in javascript. The interpreter used to
+        // compare the boxed Doubles by reference, so computed numbers were never strictly equal.
+        static final int STRICT_EQ = 11;
+        static final int NE = 12;
+        static final int STRICT_NE = 13;
+        static final int AND = 14;
+        static final int OR = 15;
+
+        final int operator;
+        final ExpressionNode left;
+        final ExpressionNode right;
+
+        private final int hash;
+        // types of the operands and the result, resolved when compiled
+        private final boolean numericOperands;
+        private final boolean booleanOperands;
+        private final boolean isNumeric;
+        private final boolean isBoolean;
+
+        Binary(int operator, ExpressionNode left, ExpressionNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+            this.hash = hash(6 + operator, left, right);
+            this.numericOperands = left.isNumeric() && right.isNumeric();
+            this.booleanOperands = left.isBoolean() && right.isBoolean();
+            switch (operator) {
+                case ADD:
+                case SUB:
+                case MUL:
+                case DIV:
+                case MOD:
+                case POW:
+                    isNumeric = true;
+                    isBoolean = false;
+                    break;
+                case AND:
+                case OR:
+                    isNumeric = numericOperands;
+                    isBoolean = booleanOperands;
+                    break;
+                default:
+                    isNumeric = false;
+                    isBoolean = true;
+            }
+        }
+
+        @Override
+        ExpressionNode[] children() {
+            return new ExpressionNode[]{left, right};
+        }
+
+        @Override
+        ExpressionNode withChildren(ExpressionNode[] children) {
+            return new Binary(operator, children[0], children[1]);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Binary)) return false;
+            Binary other = (Binary) o;
+            return hash == other.hash && operator == other.operator
+                    && left.equals(other.left) && right.equals(other.right);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        Object evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            switch (operator) {
+                case ADD:
+                case SUB:
+                case MUL:
+                case DIV:
+                case MOD:
+                case POW:
+                    // box only once for the whole numeric subtree
+                    return evaluateDouble(scope);
+
+                case GT:
+                case LT:
+                case GE:
+                case LE:
+                case EQ:
+                case STRICT_EQ:
+                case NE:
+                case STRICT_NE:
+                    return evaluateBoolean(scope);
+
+                case AND: {
+                    if (isNumeric)
+                        return evaluateDouble(scope);
+                    if (isBoolean)
+                        return evaluateBoolean(scope);
+                    Object result = left.evaluate(scope);
+                    if (!toBoolean(result))
+                        return result;
+                    return right.evaluate(scope);
+                }
+                case OR: {
+                    if (isNumeric)
+                        return evaluateDouble(scope);
+                    if (isBoolean)
+                        return evaluateBoolean(scope);
+                    Object result = left.evaluate(scope);
+                    if (toBoolean(result))
+                        return result;
+                    return right.evaluate(scope);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        double evaluateDouble(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            switch (operator) {
+                case ADD:
+                    return left.evaluateDouble(scope) + right.evaluateDouble(scope);
+                case SUB:
+                    return left.evaluateDouble(scope) - right.evaluateDouble(scope);
+                case MUL:
+                    return left.evaluateDouble(scope) * right.evaluateDouble(scope);
+                case DIV:
+                    return left.evaluateDouble(scope) / right.evaluateDouble(scope);
+                case MOD:
+                    return left.evaluateDouble(scope) % right.evaluateDouble(scope);
+                case POW:
+                    return Math.pow(left.evaluateDouble(scope), right.evaluateDouble(scope));
+
+                case AND:
+                    if (numericOperands) {
+                        double result = left.evaluateDouble(scope);
+                        return result == 0 ? result : right.evaluateDouble(scope);
+                    }
+                    break;
+                case OR:
+                    if (numericOperands) {
+                        double result = left.evaluateDouble(scope);
+                        return result != 0 ? result : right.evaluateDouble(scope);
+                    }
+                    break;
+
+                default:
+                    return evaluateBoolean(scope) ? 1.0 : 0.0;
+            }
+            return toNumber(evaluate(scope));
+        }
+
+        @Override
+        boolean evaluateBoolean(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            switch (operator) {
+                case GT:
+                    return left.evaluateDouble(scope) > right.evaluateDouble(scope);
+                case LT:
+                    return left.evaluateDouble(scope) < right.evaluateDouble(scope);
+                case GE:
+                    return left.evaluateDouble(scope) >= right.evaluateDouble(scope);
+                case LE:
+                    return left.evaluateDouble(scope) <= right.evaluateDouble(scope);
+
+                case EQ:
+                case STRICT_EQ:
+                    if (numericOperands) {
+                        return left.evaluateDouble(scope) == right.evaluateDouble(scope);
+                    }
+                    if (booleanOperands) {
+                        return left.evaluateBoolean(scope) == right.evaluateBoolean(scope);
+                    }
+                    return operator == EQ
+                            ? equal(left.evaluate(scope), right.evaluate(scope))
+                            : strictlyEqual(left.evaluate(scope), right.evaluate(scope));
+                case NE:
+                case STRICT_NE:
+                    if (numericOperands) {
+                        return left.evaluateDouble(scope) != right.evaluateDouble(scope);
+                    }
+                    if (booleanOperands) {
+                        return left.evaluateBoolean(scope) != right.evaluateBoolean(scope);
+                    }
+                    return operator == NE
+                            ? !equal(left.evaluate(scope), right.evaluate(scope))
+                            : !strictlyEqual(left.evaluate(scope), right.evaluate(scope));
+
+                case AND:
+                    return left.evaluateBoolean(scope) && right.evaluateBoolean(scope);
+                case OR:
+                    return left.evaluateBoolean(scope) || right.evaluateBoolean(scope);
+            }
+            return toBoolean(evaluate(scope));
+        }
+
+        @Override
+        boolean isNumeric() {
+            return isNumeric;
+        }
+
+        @Override
+        boolean isBoolean() {
+            return isBoolean;
+        }
+    }
+
+    /**
+     * A subtree that is referenced by several expressions. It is evaluated once and the result is
+     * reused until any variable of the scope changes, which happens when the next event arrives.
+     *
+     * Unlike other nodes this one holds mutable state, it must only be evaluated on the thread that owns the scope.
+     * */
+    static final class Shared extends ExpressionNode {
+        final ExpressionNode node;
+        private final boolean isNumeric;
+        private final boolean isBoolean;
+
+        private ExpressionScope scope;
+        private long version;
+        // numbers and booleans(1 or 0) of the last evaluation, or the object value otherwise
+        private double number;
+        private Object value;
+
+        Shared(ExpressionNode node) {
+            this.node = node;
+            this.isNumeric = node.isNumeric();
+            this.isBoolean = !isNumeric && node.isBoolean();
+        }
+
+        private void update(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            if (this.scope == scope && version == scope.version()) {
+                return;
+            }
+            if (isNumeric) {
+                number = node.evaluateDouble(scope);
+            } else if (isBoolean) {
+                number = node.evaluateBoolean(scope) ? 1 : 0;
+            } else {
+                value = node.evaluate(scope);
+            }
+            this.scope = scope;
+            this.version = scope.version();
+        }
+
+        @Override
+        Object evaluate(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            update(scope);
+            if (isNumeric)
+                return number;
+            if (isBoolean)
+                return number != 0;
+            return value;
+        }
+
+        @Override
+        double evaluateDouble(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            update(scope);
+            return isNumeric || isBoolean ? number : toNumber(value);
+        }
+
+        @Override
+        boolean evaluateBoolean(ExpressionScope scope) throws IllegalArgumentException, JSONException {
+            update(scope);
+            return isNumeric || isBoolean ? number != 0 : toBoolean(value);
+        }
+
+        @Override
+        boolean isNumeric() {
+            return isNumeric;
+        }
+
+        @Override
+        boolean isBoolean() {
+            return node.isBoolean();
+        }
+
+        @Override
+        boolean hasSideEffects() {
+            return node.hasSideEffects();
+        }
+    }
+}
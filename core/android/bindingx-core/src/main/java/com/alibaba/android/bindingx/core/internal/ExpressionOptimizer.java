@@ -0,0 +1,260 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Description:
+ *
+ * Simplify a compiled expression tree before it is evaluated:
+ *
+ * 1. constant subtrees(e.g. {@code PI/180}, {@code sqrt(2)}, {@code rgb(255,0,0)}) are folded into literals.
+ * 2. identity operations({@code x*1}, {@code x+0}, ...) are removed if {@code x} is known to be a number.
+ * 3. ternaries and {@code &&}/{@code ||} with constant conditions are pruned.
+ * 4. color string literals passed to a {@link ColorFunction} are converted to packed argb ints.
+ * 5. {@code interpolate} calls with constant ranges are bound into a function of the value only(see {@link Interpolation}).
+ *
+ * A subtree is only folded if evaluating it at compile time succeeds, so expressions that fail at
+ * runtime still fail in the same way.
+ *
+ */
+final class ExpressionOptimizer {
+
+    private static final Set<String> CONSTANTS = new HashSet<>(Arrays.asList("PI", "E"));
+
+    private ExpressionOptimizer() {
+    }
+
+    @NonNull
+    static ExpressionNode optimize(@NonNull ExpressionNode node) {
+        if (node instanceof ExpressionNode.Identifier) {
+            if (CONSTANTS.contains(((ExpressionNode.Identifier) node).name)) {
+                return fold(node);
+            }
+            return node;
+        }
+
+        ExpressionNode[] children = node.children();
+        if (children.length == 0) {
+            return node;
+        }
+        boolean changed = false;
+        boolean constant = true;
+        ExpressionNode[] newChildren = new ExpressionNode[children.length];
+        for (int i = 0; i < children.length; i++) {
+            newChildren[i] = optimize(children[i]);
+            changed |= newChildren[i] != children[i];
+        }
+        if (node instanceof ExpressionNode.Call && resolveColors((ExpressionNode.Call) node, newChildren)) {
+            changed = true;
+        }
+        if (changed) {
+            node = node.withChildren(newChildren);
+        }
+
+        if (node instanceof ExpressionNode.Call) {
+            ExpressionNode.Call call = (ExpressionNode.Call) node;
+            ExpressionNode interpolation = bindInterpolation(call);
+            if (interpolation != null) {
+                return interpolation;
+            }
+            if (!(call.callee instanceof ExpressionNode.Identifier)
+                    || !Builtins.isPure(((ExpressionNode.Identifier) call.callee).name)) {
+                return node;
+            }
+            // the callee is an identifier and never a literal
+            for (ExpressionNode argument : call.arguments) {
+                constant &= argument instanceof ExpressionNode.Literal;
+            }
+        } else {
+            for (ExpressionNode child : newChildren) {
+                constant &= child instanceof ExpressionNode.Literal;
+            }
+        }
+        if (constant) {
+            return fold(node);
+        }
+
+        if (node instanceof ExpressionNode.Conditional) {
+            return simplifyConditional((ExpressionNode.Conditional) node);
+        }
+        if (node instanceof ExpressionNode.Binary) {
+            return simplifyBinary((ExpressionNode.Binary) node);
+        }
+        return node;
+    }
+
+    /**
+     * replace color string literals in {@code children} of a {@link ColorFunction} call with numbers.
+     *
+     * @return true if any of them is replaced
+     * */
+    private static boolean resolveColors(ExpressionNode.Call call, ExpressionNode[] children) {
+        if (!(call.callee instanceof ExpressionNode.Identifier)) {
+            return false;
+        }
+        Object function = Builtins.get(((ExpressionNode.Identifier) call.callee).name);
+        if (!(function instanceof ColorFunction)) {
+            return false;
+        }
+        boolean changed = false;
+        // children[0] is the callee
+        for (int i = 1; i < children.length; i++) {
+            if (!((ColorFunction) function).isColorArgument(i - 1) || !(children[i] instanceof ExpressionNode.Literal)) {
+                continue;
+            }
+            Object value = ((ExpressionNode.Literal) children[i]).value;
+            if (!(value instanceof String)) {
+                continue;
+            }
+            try {
+                children[i] = new ExpressionNode.Literal((double) JSMath.parseColor((String) value));
+                changed = true;
+            } catch (Throwable e) {
+                // keep it and let it fail at runtime
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return {@code f(value)} where f is {@code call} with its constant ranges bound, or null if it is not a call
+     * of {@code interpolate} with constant ranges.
+     * */
+    private static ExpressionNode bindInterpolation(ExpressionNode.Call call) {
+        int count = call.arguments.length;
+        if (!(call.callee instanceof ExpressionNode.Identifier) || (count != 3 && count != 4)
+                || Builtins.get(((ExpressionNode.Identifier) call.callee).name) != Interpolation.FUNCTION) {
+            return null;
+        }
+        List<Object> inputs = constantArray(call.arguments[1]);
+        List<Object> outputs = constantArray(call.arguments[2]);
+        if (inputs == null || outputs == null || (count == 4 && !(call.arguments[3] instanceof ExpressionNode.Literal))) {
+            return null;
+        }
+        try {
+            Interpolation interpolation = Interpolation.create(inputs, outputs,
+                    count == 4 ? ((ExpressionNode.Literal) call.arguments[3]).value : null);
+            return new ExpressionNode.Call(new ExpressionNode.Literal(interpolation.bind()),
+                    new ExpressionNode[]{call.arguments[0]});
+        } catch (Throwable e) {
+            // keep it and let it fail at runtime
+            return null;
+        }
+    }
+
+    /**
+     * @return the elements of {@code asArray(...)} if all of them are literals, or null otherwise
+     * */
+    private static List<Object> constantArray(ExpressionNode node) {
+        if (!(node instanceof ExpressionNode.Call)) {
+            return null;
+        }
+        ExpressionNode.Call call = (ExpressionNode.Call) node;
+        if (!(call.callee instanceof ExpressionNode.Identifier) || !"asArray".equals(((ExpressionNode.Identifier) call.callee).name)) {
+            return null;
+        }
+        List<Object> values = new ArrayList<>(call.arguments.length);
+        for (ExpressionNode argument : call.arguments) {
+            if (!(argument instanceof ExpressionNode.Literal)) {
+                return null;
+            }
+            values.add(((ExpressionNode.Literal) argument).value);
+        }
+        return values;
+    }
+
+    /**
+     * @return a literal of the value of {@code node}, or {@code node} itself if it can not be evaluated now.
+     * */
+    private static ExpressionNode fold(ExpressionNode node) {
+        try {
+            Object value = node.evaluate(Builtins.scope());
+            if (value == null || value instanceof Double || value instanceof Boolean
+                    || value instanceof String || value instanceof Integer) {
+                return new ExpressionNode.Literal(value);
+            }
+        } catch (Throwable e) {
+            // keep it and let it fail at runtime
+        }
+        return node;
+    }
+
+    private static ExpressionNode simplifyConditional(ExpressionNode.Conditional node) {
+        if (!(node.test instanceof ExpressionNode.Literal)) {
+            return node;
+        }
+        try {
+            return node.test.evaluateBoolean(Builtins.scope()) ? node.consequent : node.alternate;
+        } catch (Throwable e) {
+            return node;
+        }
+    }
+
+    private static ExpressionNode simplifyBinary(ExpressionNode.Binary node) {
+        ExpressionNode left = node.left;
+        ExpressionNode right = node.right;
+        switch (node.operator) {
+            case ExpressionNode.Binary.ADD:
+                if (isNumber(right, 0) && left.isNumeric())
+                    return left;
+                if (isNumber(left, 0) && right.isNumeric())
+                    return right;
+                break;
+            case ExpressionNode.Binary.SUB:
+                if (isNumber(right, 0) && left.isNumeric())
+                    return left;
+                break;
+            case ExpressionNode.Binary.MUL:
+                if (isNumber(right, 1) && left.isNumeric())
+                    return left;
+                if (isNumber(left, 1) && right.isNumeric())
+                    return right;
+                break;
+            case ExpressionNode.Binary.DIV:
+            case ExpressionNode.Binary.POW:
+                if (isNumber(right, 1) && left.isNumeric())
+                    return left;
+                break;
+            case ExpressionNode.Binary.AND:
+            case ExpressionNode.Binary.OR:
+                if (left instanceof ExpressionNode.Literal) {
+                    try {
+                        boolean truthy = left.evaluateBoolean(Builtins.scope());
+                        boolean shortCircuit = node.operator == ExpressionNode.Binary.AND ? !truthy : truthy;
+                        return shortCircuit ? left : right;
+                    } catch (Throwable e) {
+                        return node;
+                    }
+                }
+                break;
+        }
+        return node;
+    }
+
+    private static boolean isNumber(ExpressionNode node, double value) {
+        return node instanceof ExpressionNode.Literal
+                && node.isNumeric()
+                && (double) ((ExpressionNode.Literal) node).value == value;
+    }
+}
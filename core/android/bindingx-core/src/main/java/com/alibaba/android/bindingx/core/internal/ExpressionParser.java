@@ -0,0 +1,392 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Description:
+ *
+ * A java port of bindingx-parser(parser/lib/parser.js). It parses the origin expression, e.g. {@code x+1},
+ * directly into a tree of {@link ExpressionNode}, so that the json syntax tree does not need to be
+ * transferred through the bridge and tokenized again.
+ *
+ * Supported syntax is the same as bindingx-parser: number/string/boolean/null literals, identifiers,
+ * function calls, unary {@code + - !}, binary {@code ** * / % + - < > <= >= == != === !== && ||} and
+ * the ternary operator. String literals keep their quotes like bindingx-parser does. A few things
+ * bindingx-parser gets wrong are done the javascript way here: {@code !} and unary {@code -} of a
+ * non-literal are kept, {@code false} is false, {@code **} is right-associative and ternaries can be nested.
+ *
+ * Parsed expressions are cached by {@link ExpressionCache}, not here.
+ *
+ */
+final class ExpressionParser {
+
+    private static final int TOKEN_EOF = 0;
+    private static final int TOKEN_NUMBER = 1;
+    private static final int TOKEN_STRING = 2;
+    private static final int TOKEN_IDENTIFIER = 3;
+    private static final int TOKEN_PUNCTUATOR = 4;
+
+    // longer punctuators first
+    private static final String[] PUNCTUATORS = {
+            "===", "!==",
+            "**", "==", "!=", "<=", ">=", "&&", "||",
+            "+", "-", "*", "/", "%", "<", ">", "!", "?", ":", "(", ")", ","
+    };
+
+    private final String mSource;
+    private int mPosition;
+
+    // current token
+    private int mType;
+    private String mText;
+    private int mStart;
+
+    private ExpressionParser(String source) {
+        this.mSource = source;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code origin} is not a valid expression
+     * */
+    @NonNull
+    static ExpressionNode parse(@NonNull String origin) throws IllegalArgumentException {
+        ExpressionParser parser = new ExpressionParser(origin);
+        parser.next();
+        ExpressionNode node = parser.parseConditional();
+        if (parser.mType != TOKEN_EOF) {
+            throw parser.unexpected();
+        }
+        return node;
+    }
+
+    private ExpressionNode parseConditional() {
+        ExpressionNode test = parseLogicalOr();
+        if (!accept("?")) {
+            return test;
+        }
+        ExpressionNode consequent = parseConditional();
+        expect(":");
+        ExpressionNode alternate = parseConditional();
+        return new ExpressionNode.Conditional(test, consequent, alternate);
+    }
+
+    private ExpressionNode parseLogicalOr() {
+        ExpressionNode node = parseLogicalAnd();
+        while (accept("||")) {
+            node = new ExpressionNode.Binary(ExpressionNode.Binary.OR, node, parseLogicalAnd());
+        }
+        return node;
+    }
+
+    private ExpressionNode parseLogicalAnd() {
+        ExpressionNode node = parseEquality();
+        while (accept("&&")) {
+            node = new ExpressionNode.Binary(ExpressionNode.Binary.AND, node, parseEquality());
+        }
+        return node;
+    }
+
+    private ExpressionNode parseEquality() {
+        ExpressionNode node = parseRelational();
+        while (true) {
+            if (accept("==")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.EQ, node, parseRelational());
+            } else if (accept("!=")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.NE, node, parseRelational());
+            } else if (accept("===")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.STRICT_EQ, node, parseRelational());
+            } else if (accept("!==")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.STRICT_NE, node, parseRelational());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private ExpressionNode parseRelational() {
+        ExpressionNode node = parseAdditive();
+        while (true) {
+            if (accept("<")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.LT, node, parseAdditive());
+            } else if (accept(">")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.GT, node, parseAdditive());
+            } else if (accept("<=")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.LE, node, parseAdditive());
+            } else if (accept(">=")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.GE, node, parseAdditive());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private ExpressionNode parseAdditive() {
+        ExpressionNode node = parseMultiplicative();
+        while (true) {
+            if (accept("+")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.ADD, node, parseMultiplicative());
+            } else if (accept("-")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.SUB, node, parseMultiplicative());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private ExpressionNode parseMultiplicative() {
+        ExpressionNode node = parseExponentiation();
+        while (true) {
+            if (accept("*")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.MUL, node, parseExponentiation());
+            } else if (accept("/")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.DIV, node, parseExponentiation());
+            } else if (accept("%")) {
+                node = new ExpressionNode.Binary(ExpressionNode.Binary.MOD, node, parseExponentiation());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private ExpressionNode parseExponentiation() {
+        ExpressionNode node = parseUnary();
+        if (accept("**")) {
+            return new ExpressionNode.Binary(ExpressionNode.Binary.POW, node, parseExponentiation());
+        }
+        return node;
+    }
+
+    private ExpressionNode parseUnary() {
+        if (accept("!")) {
+            return new ExpressionNode.Not(parseUnary());
+        }
+        if (accept("-")) {
+            ExpressionNode operand = parseUnary();
+            if (operand instanceof ExpressionNode.Literal && operand.isNumeric()) {
+                // negative number
+                return new ExpressionNode.Literal(-(double) ((ExpressionNode.Literal) operand).value);
+            }
+            return new ExpressionNode.Binary(ExpressionNode.Binary.MUL, new ExpressionNode.Literal(-1d), operand);
+        }
+        if (accept("+")) {
+            // converts the operand to a number
+            return new ExpressionNode.Binary(ExpressionNode.Binary.MUL, new ExpressionNode.Literal(1d), parseUnary());
+        }
+        return parseCall();
+    }
+
+    private ExpressionNode parseCall() {
+        ExpressionNode node = parsePrimary();
+        while (accept("(")) {
+            List<ExpressionNode> arguments = new ArrayList<>(4);
+            if (!accept(")")) {
+                do {
+                    arguments.add(parseConditional());
+                } while (accept(","));
+                expect(")");
+            }
+            node = new ExpressionNode.Call(node, arguments.toArray(new ExpressionNode[arguments.size()]));
+        }
+        return node;
+    }
+
+    private ExpressionNode parsePrimary() {
+        String text = mText;
+        switch (mType) {
+            case TOKEN_NUMBER:
+                next();
+                return new ExpressionNode.Literal(parseNumber(text));
+            case TOKEN_STRING:
+                next();
+                return new ExpressionNode.Literal(text);
+            case TOKEN_IDENTIFIER:
+                next();
+                switch (text) {
+                    case "true":
+                        return new ExpressionNode.Literal(true);
+                    case "false":
+                        return new ExpressionNode.Literal(false);
+                    case "null":
+                        return new ExpressionNode.Literal(null);
+                    default:
+                        return new ExpressionNode.Identifier(text);
+                }
+            case TOKEN_PUNCTUATOR:
+                if (accept("(")) {
+                    ExpressionNode node = parseConditional();
+                    expect(")");
+                    return node;
+                }
+                break;
+        }
+        throw unexpected();
+    }
+
+    private static double parseNumber(String text) {
+        if (text.length() > 1 && text.charAt(0) == '0' && (text.charAt(1) == 'x' || text.charAt(1) == 'X')) {
+            return text.length() == 2 ? Double.NaN : Long.parseLong(text.substring(2), 16);
+        }
+        return Double.parseDouble(text);
+    }
+
+    private boolean accept(String punctuator) {
+        if (mType == TOKEN_PUNCTUATOR && mText.equals(punctuator)) {
+            next();
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String punctuator) {
+        if (!accept(punctuator)) {
+            throw unexpected();
+        }
+    }
+
+    private IllegalArgumentException unexpected() {
+        if (mType == TOKEN_EOF) {
+            return new IllegalArgumentException("Unexpected end of input: " + mSource);
+        }
+        return new IllegalArgumentException("Unexpected token " + mText + " at " + mStart + ": " + mSource);
+    }
+
+    /**
+     * read the next token into {@link #mType} and {@link #mText}
+     * */
+    private void next() {
+        final String source = mSource;
+        final int length = source.length();
+        int i = mPosition;
+        while (i < length && isWhitespace(source.charAt(i))) {
+            i++;
+        }
+        mStart = i;
+        if (i >= length) {
+            mType = TOKEN_EOF;
+            mText = null;
+            mPosition = i;
+            return;
+        }
+
+        char c = source.charAt(i);
+        if (isIdentifierStart(c)) {
+            int end = i + 1;
+            while (end < length && isIdentifierPart(source.charAt(end))) {
+                end++;
+            }
+            token(TOKEN_IDENTIFIER, end);
+        } else if (isDigit(c) || (c == '.' && i + 1 < length && isDigit(source.charAt(i + 1)))) {
+            token(TOKEN_NUMBER, scanNumber(i));
+        } else if (c == '"' || c == '\'') {
+            token(TOKEN_STRING, scanString(i, c));
+        } else {
+            for (String punctuator : PUNCTUATORS) {
+                if (source.startsWith(punctuator, i)) {
+                    token(TOKEN_PUNCTUATOR, i + punctuator.length());
+                    return;
+                }
+            }
+            mText = String.valueOf(c);
+            mType = TOKEN_PUNCTUATOR;
+            throw unexpected();
+        }
+    }
+
+    private void token(int type, int end) {
+        mType = type;
+        mText = mSource.substring(mStart, end);
+        mPosition = end;
+    }
+
+    private int scanNumber(int i) {
+        final String source = mSource;
+        final int length = source.length();
+        if (source.charAt(i) == '0' && i + 1 < length && (source.charAt(i + 1) == 'x' || source.charAt(i + 1) == 'X')) {
+            i += 2;
+            while (i < length && Character.digit(source.charAt(i), 16) >= 0) {
+                i++;
+            }
+        } else {
+            while (i < length && isDigit(source.charAt(i))) {
+                i++;
+            }
+            if (i < length && source.charAt(i) == '.') {
+                i++;
+                while (i < length && isDigit(source.charAt(i))) {
+                    i++;
+                }
+            }
+            if (i < length && (source.charAt(i) == 'e' || source.charAt(i) == 'E')) {
+                int exponent = i + 1;
+                if (exponent < length && (source.charAt(exponent) == '+' || source.charAt(exponent) == '-')) {
+                    exponent++;
+                }
+                if (exponent < length && isDigit(source.charAt(exponent))) {
+                    i = exponent;
+                    while (i < length && isDigit(source.charAt(i))) {
+                        i++;
+                    }
+                }
+            }
+        }
+        if (i < length && isIdentifierPart(source.charAt(i))) {
+            mText = source.substring(mStart, i + 1);
+            throw unexpected();
+        }
+        return i;
+    }
+
+    private int scanString(int i, char quote) {
+        final String source = mSource;
+        final int length = source.length();
+        i++;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == quote) {
+                return i + 1;
+            }
+            if (c == '\\') {
+                i++;
+            } else if (c == '\n' || c == '\r') {
+                break;
+            }
+            i++;
+        }
+        mType = TOKEN_EOF;
+        throw new IllegalArgumentException("Unterminated string at " + mStart + ": " + mSource);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\uFEFF';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+}
@@ -0,0 +1,715 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description:
+ *
+ * A compiled expression tree lowered into flat bytecode, which is an alternative to evaluating
+ * {@link ExpressionNode} recursively. The program consists of an {@code int[]} of instructions,
+ * a {@code double[]} constant pool and an {@code Object[]} pool for the other literals.
+ *
+ * Instructions operate on two register banks, one {@code double[]} for numbers and booleans(0 or 1)
+ * and one {@code Object[]} for everything else. The registers are borrowed from
+ * {@link ExpressionScope}, so running a program is a single loop without recursion and without
+ * allocating anything except the arguments of functions that are not a {@link NativeFunction} and the
+ * boxed result.
+ *
+ * Every instruction starts with its opcode followed by its operands. Jump targets are absolute.
+ *
+ */
+final class ExpressionProgram {
+
+    // d[a] = numbers[b]
+    private static final int OP_LOAD_NUMBER = 0;
+    // o[a] = objects[b]
+    private static final int OP_LOAD_OBJECT = 1;
+    // d[a] = scope.getDouble(b)
+    private static final int OP_LOAD_SLOT_NUMBER = 2;
+    // o[a] = scope.get(b)
+    private static final int OP_LOAD_SLOT_OBJECT = 3;
+
+    // d[a] = d[b] op d[c]
+    private static final int OP_ADD = 4;
+    private static final int OP_SUB = 5;
+    private static final int OP_MUL = 6;
+    private static final int OP_DIV = 7;
+    private static final int OP_MOD = 8;
+    private static final int OP_POW = 9;
+    private static final int OP_GT = 10;
+    private static final int OP_LT = 11;
+    private static final int OP_GE = 12;
+    private static final int OP_LE = 13;
+    private static final int OP_EQ = 14;
+    private static final int OP_NE = 15;
+
+    // d[a] = o[b] op o[c]
+    private static final int OP_EQ_OBJECT = 16;
+    private static final int OP_STRICT_EQ_OBJECT = 17;
+    private static final int OP_NE_OBJECT = 18;
+    private static final int OP_STRICT_NE_OBJECT = 19;
+
+    // d[a] = d[b] == 0 ? 1 : 0
+    private static final int OP_NOT = 20;
+    // d[a] = d[b] != 0 ? 1 : 0
+    private static final int OP_TEST = 21;
+    // d[a] = toNumber(o[b])
+    private static final int OP_TO_NUMBER = 22;
+    // d[a] = toBoolean(o[b]) ? 1 : 0
+    private static final int OP_TO_BOOLEAN = 23;
+    // o[a] = (Double) d[b]
+    private static final int OP_BOX_NUMBER = 24;
+    // o[a] = (Boolean) d[b] != 0
+    private static final int OP_BOX_BOOLEAN = 25;
+
+    // pc = a
+    private static final int OP_JUMP = 26;
+    // if (d[a] == 0) pc = b
+    private static final int OP_JUMP_IF_ZERO = 27;
+    // if (d[a] != 0) pc = b
+    private static final int OP_JUMP_IF_NOT_ZERO = 28;
+    // if (!toBoolean(o[a])) pc = b
+    private static final int OP_JUMP_IF_FALSY = 29;
+    // if (toBoolean(o[a])) pc = b
+    private static final int OP_JUMP_IF_TRUTHY = 30;
+
+    // o[a] = ((JSFunctionInterface) o[b]).execute(o[c] ... o[c + d - 1])
+    private static final int OP_CALL = 31;
+    // o[a] = ((ExpressionNode) objects[b]).evaluate(scope), for nodes that have no instruction
+    private static final int OP_EVALUATE = 32;
+    // d[a] = ((ExpressionNode) objects[b]).evaluateDouble(scope)
+    private static final int OP_EVALUATE_NUMBER = 33;
+    // d[a] = ((ExpressionNode) objects[b]).evaluateBoolean(scope) ? 1 : 0
+    private static final int OP_EVALUATE_BOOLEAN = 34;
+    // d[a] = ((NativeFunction) o[b]).call(d[c] ... d[c + d - 1])
+    private static final int OP_CALL_NUMBER = 35;
+    // o[a] = (Integer) (int) d[b], for packed colors
+    private static final int OP_BOX_COLOR = 36;
+
+    // how the value of a node is kept in registers
+    private static final int KIND_NUMBER = 0;
+    private static final int KIND_BOOLEAN = 1;
+    private static final int KIND_OBJECT = 2;
+
+    private final int[] mCode;
+    private final double[] mNumbers;
+    private final Object[] mObjects;
+    private final int mNumberRegisters;
+    private final int mObjectRegisters;
+    // the result is always kept in register 0 of this kind
+    private final int mResultKind;
+
+    private ExpressionProgram(int[] code, double[] numbers, Object[] objects,
+                              int numberRegisters, int objectRegisters, int resultKind) {
+        this.mCode = code;
+        this.mNumbers = numbers;
+        this.mObjects = objects;
+        this.mNumberRegisters = numberRegisters;
+        this.mObjectRegisters = objectRegisters;
+        this.mResultKind = resultKind;
+    }
+
+    @NonNull
+    static ExpressionProgram compile(@NonNull ExpressionNode root) {
+        int kind = root.isNumeric() ? KIND_NUMBER : root.isBoolean() ? KIND_BOOLEAN : KIND_OBJECT;
+        Assembler assembler = new Assembler();
+        assembler.lower(root, kind);
+        return assembler.build(kind);
+    }
+
+    Object execute(@NonNull ExpressionScope scope) throws IllegalArgumentException, JSONException {
+        double[] d = scope.numberRegisters(mNumberRegisters);
+        Object[] o = scope.objectRegisters(mObjectRegisters);
+        run(scope, d, o);
+        switch (mResultKind) {
+            case KIND_NUMBER:
+                return d[0];
+            case KIND_BOOLEAN:
+                return d[0] != 0;
+            default:
+                return o[0];
+        }
+    }
+
+    double executeDouble(@NonNull ExpressionScope scope) throws IllegalArgumentException, JSONException {
+        double[] d = scope.numberRegisters(mNumberRegisters);
+        Object[] o = scope.objectRegisters(mObjectRegisters);
+        run(scope, d, o);
+        return mResultKind == KIND_OBJECT ? ExpressionNode.toNumber(o[0]) : d[0];
+    }
+
+    boolean executeBoolean(@NonNull ExpressionScope scope) throws IllegalArgumentException, JSONException {
+        double[] d = scope.numberRegisters(mNumberRegisters);
+        Object[] o = scope.objectRegisters(mObjectRegisters);
+        run(scope, d, o);
+        return mResultKind == KIND_OBJECT ? ExpressionNode.toBoolean(o[0]) : d[0] != 0;
+    }
+
+    private void run(ExpressionScope scope, double[] d, Object[] o) throws IllegalArgumentException, JSONException {
+        final int[] code = mCode;
+        final int length = code.length;
+        int pc = 0;
+        while (pc < length) {
+            switch (code[pc]) {
+                case OP_LOAD_NUMBER:
+                    d[code[pc + 1]] = mNumbers[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case OP_LOAD_OBJECT:
+                    o[code[pc + 1]] = mObjects[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case OP_LOAD_SLOT_NUMBER:
+                    d[code[pc + 1]] = scope.getDouble(code[pc + 2]);
+                    pc += 3;
+                    break;
+                case OP_LOAD_SLOT_OBJECT:
+                    o[code[pc + 1]] = scope.get(code[pc + 2]);
+                    pc += 3;
+                    break;
+
+                case OP_ADD:
+                    d[code[pc + 1]] = d[code[pc + 2]] + d[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case OP_SUB:
+                    d[code[pc + 1]] = d[code[pc + 2]] - d[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case OP_MUL:
+                    d[code[pc + 1]] = d[code[pc + 2]] * d[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case OP_DIV:
+                    d[code[pc + 1]] = d[code[pc + 2]] / d[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case OP_MOD:
+                    d[code[pc + 1]] = d[code[pc + 2]] % d[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case OP_POW:
+                    d[code[pc + 1]] = Math.pow(d[code[pc + 2]], d[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case OP_GT:
+                    d[code[pc + 1]] = d[code[pc + 2]] > d[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case OP_LT:
+                    d[code[pc + 1]] = d[code[pc + 2]] < d[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case OP_GE:
+                    d[code[pc + 1]] = d[code[pc + 2]] >= d[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case OP_LE:
+                    d[code[pc + 1]] = d[code[pc + 2]] <= d[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case OP_EQ:
+                    d[code[pc + 1]] = d[code[pc + 2]] == d[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case OP_NE:
+                    d[code[pc + 1]] = d[code[pc + 2]] != d[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+
+                case OP_EQ_OBJECT:
+                    d[code[pc + 1]] = ExpressionNode.equal(o[code[pc + 2]], o[code[pc + 3]]) ? 1 : 0;
+                    pc += 4;
+                    break;
+                case OP_STRICT_EQ_OBJECT:
+                    d[code[pc + 1]] = ExpressionNode.strictlyEqual(o[code[pc + 2]], o[code[pc + 3]]) ? 1 : 0;
+                    pc += 4;
+                    break;
+                case OP_NE_OBJECT:
+                    d[code[pc + 1]] = ExpressionNode.equal(o[code[pc + 2]], o[code[pc + 3]]) ? 0 : 1;
+                    pc += 4;
+                    break;
+                case OP_STRICT_NE_OBJECT:
+                    d[code[pc + 1]] = ExpressionNode.strictlyEqual(o[code[pc + 2]], o[code[pc + 3]]) ? 0 : 1;
+                    pc += 4;
+                    break;
+
+                case OP_NOT:
+                    d[code[pc + 1]] = d[code[pc + 2]] == 0 ? 1 : 0;
+                    pc += 3;
+                    break;
+                case OP_TEST:
+                    d[code[pc + 1]] = d[code[pc + 2]] != 0 ? 1 : 0;
+                    pc += 3;
+                    break;
+                case OP_TO_NUMBER:
+                    d[code[pc + 1]] = ExpressionNode.toNumber(o[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case OP_TO_BOOLEAN:
+                    d[code[pc + 1]] = ExpressionNode.toBoolean(o[code[pc + 2]]) ? 1 : 0;
+                    pc += 3;
+                    break;
+                case OP_BOX_NUMBER:
+                    o[code[pc + 1]] = d[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case OP_BOX_BOOLEAN:
+                    o[code[pc + 1]] = d[code[pc + 2]] != 0;
+                    pc += 3;
+                    break;
+
+                case OP_JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case OP_JUMP_IF_ZERO:
+                    pc = d[code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+                    break;
+                case OP_JUMP_IF_NOT_ZERO:
+                    pc = d[code[pc + 1]] != 0 ? code[pc + 2] : pc + 3;
+                    break;
+                case OP_JUMP_IF_FALSY:
+                    pc = !ExpressionNode.toBoolean(o[code[pc + 1]]) ? code[pc + 2] : pc + 3;
+                    break;
+                case OP_JUMP_IF_TRUTHY:
+                    pc = ExpressionNode.toBoolean(o[code[pc + 1]]) ? code[pc + 2] : pc + 3;
+                    break;
+
+                case OP_CALL: {
+                    JSFunctionInterface function = (JSFunctionInterface) o[code[pc + 2]];
+                    int first = code[pc + 3];
+                    int count = code[pc + 4];
+                    // functions may keep or return the list, so it can not be reused
+                    ArrayList<Object> args = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        args.add(o[first + i]);
+                    }
+                    o[code[pc + 1]] = function.execute(args);
+                    pc += 5;
+                    break;
+                }
+                case OP_CALL_NUMBER: {
+                    Object function = o[code[pc + 2]];
+                    int first = code[pc + 3];
+                    int count = code[pc + 4];
+                    if (function instanceof NativeFunction && ((NativeFunction) function).accepts(count)) {
+                        d[code[pc + 1]] = call((NativeFunction) function, d, first, count);
+                    } else {
+                        ArrayList<Object> args = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            args.add(d[first + i]);
+                        }
+                        d[code[pc + 1]] = ExpressionNode.toNumber(((JSFunctionInterface) function).execute(args));
+                    }
+                    pc += 5;
+                    break;
+                }
+                case OP_BOX_COLOR:
+                    o[code[pc + 1]] = (int) d[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case OP_EVALUATE:
+                    o[code[pc + 1]] = ((ExpressionNode) mObjects[code[pc + 2]]).evaluate(scope);
+                    pc += 3;
+                    break;
+                case OP_EVALUATE_NUMBER:
+                    d[code[pc + 1]] = ((ExpressionNode) mObjects[code[pc + 2]]).evaluateDouble(scope);
+                    pc += 3;
+                    break;
+                case OP_EVALUATE_BOOLEAN:
+                    d[code[pc + 1]] = ((ExpressionNode) mObjects[code[pc + 2]]).evaluateBoolean(scope) ? 1 : 0;
+                    pc += 3;
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("unknown opcode " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    private static double call(NativeFunction function, double[] d, int first, int count) {
+        switch (count) {
+            case 1:
+                return function.call1(d[first]);
+            case 2:
+                return function.call2(d[first], d[first + 1]);
+            case 3:
+                return function.call3(d[first], d[first + 1], d[first + 2]);
+            case 4:
+                return function.call4(d[first], d[first + 1], d[first + 2], d[first + 3]);
+            default:
+                return function.callN(Arrays.copyOfRange(d, first, first + count));
+        }
+    }
+
+    /**
+     * Lower an expression tree into instructions. Registers are allocated like a stack: the value of
+     * a node is always put into the first free register of its bank, and all registers used by its
+     * children are free again afterwards.
+     * */
+    private static final class Assembler {
+        private int[] code = new int[32];
+        private int length;
+
+        private final List<Double> numbers = new ArrayList<>();
+        private final Map<Double, Integer> numberIndexes = new HashMap<>();
+        private final List<Object> objects = new ArrayList<>();
+
+        private int numberTop;
+        private int objectTop;
+        private int maxNumbers;
+        private int maxObjects;
+
+        ExpressionProgram build(int resultKind) {
+            double[] numberPool = new double[numbers.size()];
+            for (int i = 0; i < numberPool.length; i++) {
+                numberPool[i] = numbers.get(i);
+            }
+            return new ExpressionProgram(Arrays.copyOf(code, length), numberPool, objects.toArray(),
+                    maxNumbers, maxObjects, resultKind);
+        }
+
+        void lower(ExpressionNode node, int kind) {
+            if (node instanceof ExpressionNode.Literal) {
+                lowerLiteral((ExpressionNode.Literal) node, kind);
+            } else if (node instanceof ExpressionNode.Identifier) {
+                lowerIdentifier((ExpressionNode.Identifier) node, kind);
+            } else if (node instanceof ExpressionNode.Call) {
+                lowerCall((ExpressionNode.Call) node, kind);
+            } else if (node instanceof ExpressionNode.Conditional) {
+                lowerConditional((ExpressionNode.Conditional) node, kind);
+            } else if (node instanceof ExpressionNode.Not) {
+                lowerNot((ExpressionNode.Not) node, kind);
+            } else if (node instanceof ExpressionNode.Binary) {
+                lowerBinary((ExpressionNode.Binary) node, kind);
+            } else {
+                // e.g. shared subtrees, which cache their own value
+                evaluate(node, kind);
+            }
+        }
+
+        private void evaluate(ExpressionNode node, int kind) {
+            if (kind == KIND_OBJECT) {
+                emit(OP_EVALUATE, allocObject(), object(node));
+            } else {
+                emit(kind == KIND_NUMBER ? OP_EVALUATE_NUMBER : OP_EVALUATE_BOOLEAN, allocNumber(), object(node));
+            }
+        }
+
+        private void lowerLiteral(ExpressionNode.Literal node, int kind) {
+            if (kind == KIND_OBJECT) {
+                emit(OP_LOAD_OBJECT, allocObject(), object(node.value));
+            } else if (kind == KIND_NUMBER && node.value instanceof Double) {
+                emit(OP_LOAD_NUMBER, allocNumber(), number((Double) node.value));
+            } else {
+                lowerAsObject(node, kind);
+            }
+        }
+
+        private void lowerIdentifier(ExpressionNode.Identifier node, int kind) {
+            if (node.slot == ExpressionScope.NO_SLOT) {
+                // looked up by name
+                evaluate(node, kind);
+            } else if (kind == KIND_OBJECT) {
+                emit(OP_LOAD_SLOT_OBJECT, allocObject(), node.slot);
+            } else if (kind == KIND_NUMBER) {
+                emit(OP_LOAD_SLOT_NUMBER, allocNumber(), node.slot);
+            } else {
+                lowerAsObject(node, kind);
+            }
+        }
+
+        private void lowerCall(ExpressionNode.Call node, int kind) {
+            if ((node.isNumeric() || node.isColor()) && kind != KIND_OBJECT) {
+                lowerNumberCall(node, kind);
+                return;
+            }
+            if (node.isNumeric()) {
+                box(node, KIND_NUMBER);
+                return;
+            }
+            if (node.isColor()) {
+                int value = numberTop;
+                lowerNumberCall(node, KIND_NUMBER);
+                emit(OP_BOX_COLOR, allocObject(), value);
+                numberTop = value;
+                return;
+            }
+            if (kind != KIND_OBJECT) {
+                lowerAsObject(node, kind);
+                return;
+            }
+            // callee and arguments are put into consecutive registers, the result replaces the callee
+            int function = objectTop;
+            lower(node.callee, KIND_OBJECT);
+            for (ExpressionNode argument : node.arguments) {
+                lower(argument, KIND_OBJECT);
+            }
+            emit(OP_CALL, function, function, function + 1, node.arguments.length);
+            objectTop = function + 1;
+        }
+
+        /**
+         * call a built-in numeric or color function with unboxed arguments in consecutive number registers
+         * */
+        private void lowerNumberCall(ExpressionNode.Call node, int kind) {
+            int function = objectTop;
+            int result = numberTop;
+            lower(node.callee, KIND_OBJECT);
+            for (ExpressionNode argument : node.arguments) {
+                lower(argument, KIND_NUMBER);
+            }
+            emit(OP_CALL_NUMBER, result, function, result, node.arguments.length);
+            objectTop = function;
+            numberTop = result + 1;
+            if (kind == KIND_BOOLEAN) {
+                emit(OP_TEST, result, result);
+            }
+        }
+
+        private void lowerConditional(ExpressionNode.Conditional node, int kind) {
+            int test = numberTop;
+            lower(node.test, KIND_BOOLEAN);
+            numberTop = test;
+            int jumpToAlternate = emitJump(OP_JUMP_IF_ZERO, test);
+
+            lower(node.consequent, kind);
+            release(kind);
+            int jumpToEnd = emitJump(OP_JUMP, -1);
+
+            patch(jumpToAlternate);
+            lower(node.alternate, kind);
+            patch(jumpToEnd);
+        }
+
+        private void lowerNot(ExpressionNode.Not node, int kind) {
+            if (kind == KIND_OBJECT) {
+                box(node, KIND_BOOLEAN);
+                return;
+            }
+            int result = numberTop;
+            lower(node.operand, KIND_BOOLEAN);
+            emit(OP_NOT, result, result);
+        }
+
+        private void lowerBinary(ExpressionNode.Binary node, int kind) {
+            switch (node.operator) {
+                case ExpressionNode.Binary.ADD:
+                    arithmetic(node, kind, OP_ADD);
+                    break;
+                case ExpressionNode.Binary.SUB:
+                    arithmetic(node, kind, OP_SUB);
+                    break;
+                case ExpressionNode.Binary.MUL:
+                    arithmetic(node, kind, OP_MUL);
+                    break;
+                case ExpressionNode.Binary.DIV:
+                    arithmetic(node, kind, OP_DIV);
+                    break;
+                case ExpressionNode.Binary.MOD:
+                    arithmetic(node, kind, OP_MOD);
+                    break;
+                case ExpressionNode.Binary.POW:
+                    arithmetic(node, kind, OP_POW);
+                    break;
+
+                case ExpressionNode.Binary.GT:
+                    comparison(node, kind, OP_GT);
+                    break;
+                case ExpressionNode.Binary.LT:
+                    comparison(node, kind, OP_LT);
+                    break;
+                case ExpressionNode.Binary.GE:
+                    comparison(node, kind, OP_GE);
+                    break;
+                case ExpressionNode.Binary.LE:
+                    comparison(node, kind, OP_LE);
+                    break;
+
+                case ExpressionNode.Binary.EQ:
+                    equality(node, kind, OP_EQ, OP_EQ_OBJECT);
+                    break;
+                case ExpressionNode.Binary.STRICT_EQ:
+                    equality(node, kind, OP_EQ, OP_STRICT_EQ_OBJECT);
+                    break;
+                case ExpressionNode.Binary.NE:
+                    equality(node, kind, OP_NE, OP_NE_OBJECT);
+                    break;
+                case ExpressionNode.Binary.STRICT_NE:
+                    equality(node, kind, OP_NE, OP_STRICT_NE_OBJECT);
+                    break;
+
+                case ExpressionNode.Binary.AND:
+                    logical(node, kind, OP_JUMP_IF_ZERO, OP_JUMP_IF_FALSY);
+                    break;
+                case ExpressionNode.Binary.OR:
+                    logical(node, kind, OP_JUMP_IF_NOT_ZERO, OP_JUMP_IF_TRUTHY);
+                    break;
+
+                default:
+                    evaluate(node, kind);
+                    break;
+            }
+        }
+
+        private void arithmetic(ExpressionNode.Binary node, int kind, int op) {
+            if (kind == KIND_OBJECT) {
+                box(node, KIND_NUMBER);
+                return;
+            }
+            int result = numberTop;
+            lower(node.left, KIND_NUMBER);
+            lower(node.right, KIND_NUMBER);
+            emit(op, result, result, result + 1);
+            numberTop = result + 1;
+            if (kind == KIND_BOOLEAN) {
+                emit(OP_TEST, result, result);
+            }
+        }
+
+        private void comparison(ExpressionNode.Binary node, int kind, int op) {
+            if (kind == KIND_OBJECT) {
+                box(node, KIND_BOOLEAN);
+                return;
+            }
+            int result = numberTop;
+            lower(node.left, KIND_NUMBER);
+            lower(node.right, KIND_NUMBER);
+            emit(op, result, result, result + 1);
+            numberTop = result + 1;
+        }
+
+        private void equality(ExpressionNode.Binary node, int kind, int numberOp, int objectOp) {
+            if (node.left.isNumeric() && node.right.isNumeric()) {
+                comparison(node, kind, numberOp);
+                return;
+            }
+            if (kind == KIND_OBJECT) {
+                box(node, KIND_BOOLEAN);
+                return;
+            }
+            int result = allocNumber();
+            int left = objectTop;
+            lower(node.left, KIND_OBJECT);
+            lower(node.right, KIND_OBJECT);
+            emit(objectOp, result, left, left + 1);
+            objectTop = left;
+        }
+
+        private void logical(ExpressionNode.Binary node, int kind, int numberJump, int objectJump) {
+            if (kind == KIND_NUMBER && !node.left.isNumeric()) {
+                lowerAsObject(node, kind);
+                return;
+            }
+            // the value of the left operand is the result if evaluation short-circuits
+            int result = kind == KIND_OBJECT ? objectTop : numberTop;
+            lower(node.left, kind);
+            int jumpToEnd = emitJump(kind == KIND_OBJECT ? objectJump : numberJump, result);
+            release(kind);
+            lower(node.right, kind);
+            patch(jumpToEnd);
+        }
+
+        /**
+         * evaluate the node as a number or boolean then box it into an object register
+         * */
+        private void box(ExpressionNode node, int valueKind) {
+            int value = numberTop;
+            lower(node, valueKind);
+            emit(valueKind == KIND_NUMBER ? OP_BOX_NUMBER : OP_BOX_BOOLEAN, allocObject(), value);
+            numberTop = value;
+        }
+
+        /**
+         * evaluate the node as an object then convert it into a number or boolean
+         * */
+        private void lowerAsObject(ExpressionNode node, int kind) {
+            int value = objectTop;
+            lower(node, KIND_OBJECT);
+            emit(kind == KIND_NUMBER ? OP_TO_NUMBER : OP_TO_BOOLEAN, allocNumber(), value);
+            objectTop = value;
+        }
+
+        private void release(int kind) {
+            if (kind == KIND_OBJECT) {
+                objectTop--;
+            } else {
+                numberTop--;
+            }
+        }
+
+        private int allocNumber() {
+            int register = numberTop++;
+            maxNumbers = Math.max(maxNumbers, numberTop);
+            return register;
+        }
+
+        private int allocObject() {
+            int register = objectTop++;
+            maxObjects = Math.max(maxObjects, objectTop);
+            return register;
+        }
+
+        private int number(double value) {
+            Integer index = numberIndexes.get(value);
+            if (index == null) {
+                index = numbers.size();
+                numbers.add(value);
+                numberIndexes.put(value, index);
+            }
+            return index;
+        }
+
+        private int object(Object value) {
+            objects.add(value);
+            return objects.size() - 1;
+        }
+
+        /**
+         * @return position of the jump target operand which is patched later
+         * */
+        private int emitJump(int op, int register) {
+            if (op == OP_JUMP) {
+                emit(op, -1);
+            } else {
+                emit(op, register, -1);
+            }
+            return length - 1;
+        }
+
+        private void patch(int jump) {
+            code[jump] = length;
+        }
+
+        private void emit(int... instruction) {
+            if (length + instruction.length > code.length) {
+                code = Arrays.copyOf(code, Math.max(code.length * 2, length + instruction.length));
+            }
+            System.arraycopy(instruction, 0, code, length, instruction.length);
+            length += instruction.length;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Description:
+ *
+ * The variables that expressions can access. Every variable name is mapped to a process-wide
+ * integer slot, identifiers are resolved to their slot when the expression is compiled, and
+ * values are stored in arrays indexed by slot. Numbers are kept in a {@code double[]}, so writing
+ * and reading event values like x/y/t does not hash any key or box any value.
+ *
+ * The slot table is bounded by {@link #MAX_SLOTS}, so that names that are only used once(e.g. generated
+ * by a page) can not grow it for the life of the process. Names that come after it is full get no slot,
+ * are kept in a map of the scope and are looked up by name, and expressions reading them are evaluated
+ * again on every event. Scopes allocate their arrays for the slots they are written to, not for the
+ * whole table.
+ *
+ * This class still implements {@link Map} so that existing callers can look up variables by name.
+ */
+
+public final class ExpressionScope extends AbstractMap<String, Object> {
+
+    // well-known variables written by the built-in event handlers.
+    static final int SLOT_X = 0;
+    static final int SLOT_Y = 1;
+    static final int SLOT_INTERNAL_X = 2;
+    static final int SLOT_INTERNAL_Y = 3;
+    static final int SLOT_DX = 4;
+    static final int SLOT_DY = 5;
+    static final int SLOT_TDX = 6;
+    static final int SLOT_TDY = 7;
+    static final int SLOT_Z = 8;
+    static final int SLOT_ALPHA = 9;
+    static final int SLOT_BETA = 10;
+    static final int SLOT_GAMMA = 11;
+    static final int SLOT_DALPHA = 12;
+    static final int SLOT_DBETA = 13;
+    static final int SLOT_DGAMMA = 14;
+    static final int SLOT_T = 15;
+
+    // the slot of a name that came after the slot table was full
+    static final int NO_SLOT = -1;
+
+    // enough for the built-in functions and handler variables and a few hundred variables of users
+    static final int MAX_SLOTS = 512;
+
+    private static final String[] WELL_KNOWN_VARIABLES = {
+            "x", "y", "internal_x", "internal_y", "dx", "dy", "tdx", "tdy", "z",
+            "alpha", "beta", "gamma", "dalpha", "dbeta", "dgamma", "t"
+    };
+
+    private static final byte KIND_UNDEFINED = 0;
+    private static final byte KIND_NUMBER = 1;
+    private static final byte KIND_OBJECT = 2;
+
+    private static final Map<String, Integer> sSlots = new HashMap<>(64);
+    private static final List<String> sNames = new ArrayList<>(64);
+    private static int sMaxSlots = MAX_SLOTS;
+
+    static {
+        for (String name : WELL_KNOWN_VARIABLES) {
+            slotOf(name);
+        }
+    }
+
+    private byte[] mKinds;
+    private double[] mNumbers;
+    private Object[] mValues;
+    // incremented whenever the value of a variable changes, so that cached results can tell they are stale
+    private long mVersion;
+    // value of mVersion when each variable changed last time
+    private long[] mSlotVersions;
+    // variables without a slot, created when the first one is written
+    private Map<String, Object> mUnslotted;
+
+    // scratch registers of ExpressionProgram, shared by all programs that run against this scope
+    private double[] mNumberRegisters = new double[8];
+    private Object[] mObjectRegisters = new Object[8];
+
+    public ExpressionScope() {
+        int capacity = 32;
+        mKinds = new byte[capacity];
+        mNumbers = new double[capacity];
+        mValues = new Object[capacity];
+        mSlotVersions = new long[capacity];
+    }
+
+    ExpressionScope(@NonNull Map<String, Object> variables) {
+        this();
+        putAll(variables);
+    }
+
+    /**
+     * @return the slot of variable {@code name}. A new slot is allocated if the name is unknown,
+     * or {@link #NO_SLOT} if the slot table is full.
+     * */
+    static synchronized int slotOf(@NonNull String name) {
+        Integer slot = sSlots.get(name);
+        if (slot == null) {
+            if (sNames.size() >= sMaxSlots) {
+                return NO_SLOT;
+            }
+            slot = sNames.size();
+            sNames.add(name);
+            sSlots.put(name, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * @return the slot of variable {@code name} or {@link #NO_SLOT} if no expression has used this name
+     * or it has no slot.
+     * */
+    static synchronized int findSlot(Object name) {
+        Integer slot = sSlots.get(name);
+        return slot == null ? NO_SLOT : slot;
+    }
+
+    private static synchronized String nameOf(int slot) {
+        return sNames.get(slot);
+    }
+
+    static synchronized int slotCount() {
+        return sNames.size();
+    }
+
+    /**
+     * change the size of the slot table. Slots that have been allocated are kept.
+     * */
+    @VisibleForTesting
+    static synchronized void setMaxSlots(int maxSlots) {
+        sMaxSlots = maxSlots;
+    }
+
+    /**
+     * @return true if the variable in this slot is always a number when written by built-in handlers.
+     * */
+    static boolean isNumericSlot(int slot) {
+        return slot >= 0 && slot < WELL_KNOWN_VARIABLES.length;
+    }
+
+    /**
+     * @return true if {@code name} is a variable that handlers write, e.g. {@code x} or {@code t}.
+     * */
+    static boolean isWellKnownVariable(String name) {
+        return isNumericSlot(findSlot(name));
+    }
+
+    long version() {
+        return mVersion;
+    }
+
+    /**
+     * @return true if any variable in {@code slots} has changed after {@link #version()} returned {@code version}.
+     * Variables without a slot are not tracked and always count as changed.
+     * */
+    boolean changedSince(@NonNull int[] slots, long version) {
+        for (int slot : slots) {
+            if (slot < 0 || slot >= mSlotVersions.length || mSlotVersions[slot] > version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if every variable in {@code slots} has a value.
+     * */
+    boolean isDefined(@NonNull int[] slots) {
+        for (int slot : slots) {
+            if (!isDefined(slot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void changed(int slot) {
+        mSlotVersions[slot] = ++mVersion;
+    }
+
+    void setDouble(int slot, double value) {
+        ensureCapacity(slot);
+        if (mKinds[slot] == KIND_NUMBER
+                && Double.doubleToLongBits(mNumbers[slot]) == Double.doubleToLongBits(value)) {
+            // writing the same value again does not invalidate anything
+            return;
+        }
+        changed(slot);
+        mKinds[slot] = KIND_NUMBER;
+        mNumbers[slot] = value;
+        mValues[slot] = null;
+    }
+
+    void set(int slot, Object value) {
+        if (value instanceof Double) {
+            setDouble(slot, (double) value);
+            return;
+        }
+        ensureCapacity(slot);
+        if (mKinds[slot] == KIND_OBJECT && mValues[slot] == value) {
+            return;
+        }
+        changed(slot);
+        mKinds[slot] = KIND_OBJECT;
+        mValues[slot] = value;
+    }
+
+    Object get(int slot) {
+        if (slot >= mKinds.length) {
+            return null;
+        }
+        switch (mKinds[slot]) {
+            case KIND_NUMBER:
+                return mNumbers[slot];
+            case KIND_OBJECT:
+                return mValues[slot];
+            default:
+                return null;
+        }
+    }
+
+    double getDouble(int slot) {
+        if (slot < mKinds.length && mKinds[slot] == KIND_NUMBER) {
+            return mNumbers[slot];
+        }
+        return ExpressionNode.toNumber(get(slot));
+    }
+
+    boolean isDefined(int slot) {
+        return slot >= 0 && slot < mKinds.length && mKinds[slot] != KIND_UNDEFINED;
+    }
+
+    double[] numberRegisters(int count) {
+        if (mNumberRegisters.length < count) {
+            mNumberRegisters = new double[count];
+        }
+        return mNumberRegisters;
+    }
+
+    Object[] objectRegisters(int count) {
+        if (mObjectRegisters.length < count) {
+            mObjectRegisters = new Object[count];
+        }
+        return mObjectRegisters;
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot < mKinds.length) {
+            return;
+        }
+        int capacity = Math.max(slot + 1, Math.min(mKinds.length * 2, MAX_SLOTS));
+        byte[] kinds = new byte[capacity];
+        double[] numbers = new double[capacity];
+        Object[] values = new Object[capacity];
+        long[] slotVersions = new long[capacity];
+        System.arraycopy(mKinds, 0, kinds, 0, mKinds.length);
+        System.arraycopy(mNumbers, 0, numbers, 0, mNumbers.length);
+        System.arraycopy(mValues, 0, values, 0, mValues.length);
+        System.arraycopy(mSlotVersions, 0, slotVersions, 0, mSlotVersions.length);
+        mKinds = kinds;
+        mNumbers = numbers;
+        mValues = values;
+        mSlotVersions = slotVersions;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return mUnslotted == null ? null : mUnslotted.get(key);
+        }
+        return get(slot);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return mUnslotted != null && mUnslotted.containsKey(key);
+        }
+        return isDefined(slot);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            if (mUnslotted == null) {
+                mUnslotted = new HashMap<>();
+            }
+            mVersion++;
+            return mUnslotted.put(key, value);
+        }
+        Object old = get(slot);
+        set(slot, value);
+        return old;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = findSlot(key);
+        if (slot < 0 && mUnslotted != null && mUnslotted.containsKey(key)) {
+            mVersion++;
+            return mUnslotted.remove(key);
+        }
+        if (slot < 0 || !isDefined(slot)) {
+            return null;
+        }
+        Object old = get(slot);
+        changed(slot);
+        mKinds[slot] = KIND_UNDEFINED;
+        mValues[slot] = null;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < mKinds.length; i++) {
+            if (mKinds[i] != KIND_UNDEFINED) {
+                changed(i);
+            }
+            mKinds[i] = KIND_UNDEFINED;
+            mValues[i] = null;
+        }
+        if (mUnslotted != null && !mUnslotted.isEmpty()) {
+            mVersion++;
+            mUnslotted.clear();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @NonNull
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int next = advance(0);
+                    private int current = -1;
+                    // walks the variables without a slot after the slots
+                    private Iterator<Entry<String, Object>> unslotted;
+
+                    private int advance(int from) {
+                        while (from < mKinds.length && mKinds[from] == KIND_UNDEFINED) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        if (next < mKinds.length) {
+                            return true;
+                        }
+                        if (unslotted == null && mUnslotted != null) {
+                            unslotted = mUnslotted.entrySet().iterator();
+                        }
+                        return unslotted != null && unslotted.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        if (next >= mKinds.length) {
+                            current = -1;
+                            Entry<String, Object> entry = unslotted.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                        }
+                        current = next;
+                        next = advance(next + 1);
+                        return new SimpleImmutableEntry<>(nameOf(current), get(current));
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current < 0 && unslotted != null) {
+                            unslotted.remove();
+                            mVersion++;
+                            return;
+                        }
+                        if (current < 0) {
+                            throw new IllegalStateException();
+                        }
+                        changed(current);
+                        mKinds[current] = KIND_UNDEFINED;
+                        mValues[current] = null;
+                        current = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (byte kind : mKinds) {
+                    if (kind != KIND_UNDEFINED) {
+                        size++;
+                    }
+                }
+                return mUnslotted == null ? size : size + mUnslotted.size();
+            }
+        };
+    }
+}
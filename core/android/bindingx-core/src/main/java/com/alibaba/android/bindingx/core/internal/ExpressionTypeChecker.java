@@ -0,0 +1,229 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Description:
+ *
+ * Infer the possible types of every node of a compiled expression tree and reject expressions that
+ * can never be evaluated, e.g. {@code x(1)}, {@code sin + 1} or {@code easeOutCubic(t, 0, 100)}, so that
+ * they fail once when they are bound instead of throwing on every frame.
+ *
+ * A type is a set of the runtime classes a node may produce. The variables written by the built-in
+ * handlers(see {@link ExpressionScope#isNumericSlot(int)}) are numbers and {@link Builtins} have known
+ * types, everything else may be of any type. An expression is only rejected if an operation fails
+ * for every type its operands may have, so valid expressions are never rejected.
+ *
+ * The primitive evaluation paths of the nodes themselves({@link ExpressionNode#isNumeric()},
+ * {@link ExpressionNode#isBoolean()}) are selected from the same rules when the nodes are created.
+ *
+ */
+final class ExpressionTypeChecker {
+
+    static final int NUMBER = 1;
+    static final int BOOLEAN = 1 << 1;
+    // strings that Double.parseDouble accepts, and all others
+    static final int NUMERIC_STRING = 1 << 2;
+    static final int STRING = 1 << 3;
+    static final int FUNCTION = 1 << 4;
+    // packed colors, boxed as Integer
+    static final int COLOR = 1 << 5;
+    // vectors, lists and objects of the host
+    static final int OBJECT = 1 << 6;
+    static final int NULL = 1 << 7;
+    static final int ANY = (1 << 8) - 1;
+
+    // types that ExpressionNode.toNumber converts
+    private static final int TO_NUMBER = NUMBER | BOOLEAN | NUMERIC_STRING | COLOR;
+    // types that ExpressionNode.toBoolean converts
+    private static final int TO_BOOLEAN = NUMBER | BOOLEAN | NUMERIC_STRING | STRING;
+    private static final int STRINGS = NUMERIC_STRING | STRING;
+    // types that ExpressionNode.equal compares without converting them to numbers
+    private static final int SELF_EQUAL = BOOLEAN | STRINGS | FUNCTION | OBJECT;
+
+    private ExpressionTypeChecker() {
+    }
+
+    /**
+     * @return the possible types of {@code node}
+     * @throws IllegalArgumentException if {@code node} can never be evaluated
+     * */
+    static int check(@NonNull ExpressionNode node) throws IllegalArgumentException {
+        if (node instanceof ExpressionNode.Literal) {
+            return typeOf(((ExpressionNode.Literal) node).value);
+        }
+        if (node instanceof ExpressionNode.Identifier) {
+            ExpressionNode.Identifier identifier = (ExpressionNode.Identifier) node;
+            if (ExpressionScope.isNumericSlot(identifier.slot)) {
+                return NUMBER;
+            }
+            Object builtin = Builtins.get(identifier.name);
+            return builtin == null ? ANY : typeOf(builtin);
+        }
+        if (node instanceof ExpressionNode.Shared) {
+            return check(((ExpressionNode.Shared) node).node);
+        }
+        if (node instanceof ExpressionNode.Not) {
+            require(check(((ExpressionNode.Not) node).operand), TO_BOOLEAN, node, "can not be a condition");
+            return BOOLEAN;
+        }
+        if (node instanceof ExpressionNode.Conditional) {
+            ExpressionNode.Conditional conditional = (ExpressionNode.Conditional) node;
+            require(check(conditional.test), TO_BOOLEAN, conditional.test, "can not be a condition");
+            return check(conditional.consequent) | check(conditional.alternate);
+        }
+        if (node instanceof ExpressionNode.Binary) {
+            return checkBinary((ExpressionNode.Binary) node);
+        }
+        if (node instanceof ExpressionNode.Call) {
+            return checkCall((ExpressionNode.Call) node);
+        }
+        return ANY;
+    }
+
+    private static int checkBinary(ExpressionNode.Binary node) {
+        int left = check(node.left);
+        int right = check(node.right);
+        switch (node.operator) {
+            case ExpressionNode.Binary.ADD:
+            case ExpressionNode.Binary.SUB:
+            case ExpressionNode.Binary.MUL:
+            case ExpressionNode.Binary.DIV:
+            case ExpressionNode.Binary.MOD:
+            case ExpressionNode.Binary.POW:
+                require(left, TO_NUMBER, node.left, "is not a number");
+                require(right, TO_NUMBER, node.right, "is not a number");
+                return NUMBER;
+            case ExpressionNode.Binary.GT:
+            case ExpressionNode.Binary.LT:
+            case ExpressionNode.Binary.GE:
+            case ExpressionNode.Binary.LE:
+                require(left, TO_NUMBER, node.left, "can not be compared");
+                require(right, TO_NUMBER, node.right, "can not be compared");
+                return BOOLEAN;
+            case ExpressionNode.Binary.EQ:
+            case ExpressionNode.Binary.NE:
+                if ((widen(left) & widen(right) & SELF_EQUAL) == 0
+                        && ((left & TO_NUMBER) == 0 || (right & TO_NUMBER) == 0)) {
+                    throw new IllegalArgumentException("operands of " + describe(node) + " can not be compared");
+                }
+                return BOOLEAN;
+            case ExpressionNode.Binary.STRICT_EQ:
+            case ExpressionNode.Binary.STRICT_NE:
+                return BOOLEAN;
+            case ExpressionNode.Binary.AND:
+            case ExpressionNode.Binary.OR:
+                require(left, TO_BOOLEAN, node.left, "can not be a condition");
+                return left | right;
+        }
+        return ANY;
+    }
+
+    private static int checkCall(ExpressionNode.Call node) {
+        require(check(node.callee), FUNCTION, node.callee, "is not a function");
+        int[] arguments = new int[node.arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = check(node.arguments[i]);
+        }
+        Object builtin = ExpressionNode.Call.resolve(node.callee);
+
+        if (builtin instanceof ColorFunction) {
+            ColorFunction function = (ColorFunction) builtin;
+            if (arguments.length < function.arity) {
+                return NULL;
+            }
+            for (int i = 0; i < function.arity; i++) {
+                int accepted = function.isColorArgument(i) ? NUMBER | COLOR | NUMERIC_STRING | STRING : NUMBER | COLOR;
+                require(arguments[i], accepted, node.arguments[i], "is not a valid argument");
+            }
+            return COLOR;
+        }
+        if (builtin instanceof NativeFunction) {
+            NativeFunction function = (NativeFunction) builtin;
+            if (function.arity != NativeFunction.VARIADIC && arguments.length < function.arity) {
+                throw new IllegalArgumentException(describe(node) + " needs " + function.arity + " arguments");
+            }
+            if (arguments.length == 0) {
+                return function.accepts(0) ? NUMBER : NULL;
+            }
+            // the primitive entry points convert the arguments with toNumber. other calls go through
+            // execute(), which only takes doubles and ignores the arguments beyond the arity.
+            boolean primitive = function.accepts(arguments.length);
+            int used = primitive || function.arity == NativeFunction.VARIADIC ? arguments.length : function.arity;
+            for (int i = 0; i < used; i++) {
+                require(arguments[i], primitive ? TO_NUMBER : NUMBER, node.arguments[i], "is not a number");
+            }
+            return NUMBER;
+        }
+        if (builtin instanceof VectorFunction) {
+            return OBJECT | NULL;
+        }
+        return ANY;
+    }
+
+    private static int typeOf(Object value) {
+        if (value == null) {
+            return NULL;
+        }
+        if (value instanceof Double) {
+            return NUMBER;
+        }
+        if (value instanceof Boolean) {
+            return BOOLEAN;
+        }
+        if (value instanceof Integer) {
+            return COLOR;
+        }
+        if (value instanceof String) {
+            try {
+                Double.parseDouble((String) value);
+                return NUMERIC_STRING;
+            } catch (NumberFormatException e) {
+                return STRING;
+            }
+        }
+        if (value instanceof JSFunctionInterface) {
+            return FUNCTION;
+        }
+        return OBJECT;
+    }
+
+    // any string equals another string, whether it is numeric or not
+    private static int widen(int type) {
+        return (type & STRINGS) != 0 ? type | STRINGS : type;
+    }
+
+    private static void require(int type, int accepted, ExpressionNode node, String message) {
+        if ((type & accepted) == 0) {
+            throw new IllegalArgumentException(describe(node) + " " + message);
+        }
+    }
+
+    private static String describe(ExpressionNode node) {
+        if (node instanceof ExpressionNode.Literal) {
+            return "'" + ((ExpressionNode.Literal) node).value + "'";
+        }
+        if (node instanceof ExpressionNode.Identifier) {
+            return ((ExpressionNode.Identifier) node).name;
+        }
+        if (node instanceof ExpressionNode.Call && ((ExpressionNode.Call) node).callee instanceof ExpressionNode.Identifier) {
+            return ((ExpressionNode.Identifier) ((ExpressionNode.Call) node).callee).name + "(...)";
+        }
+        return node.getClass().getSimpleName().toLowerCase();
+    }
+}
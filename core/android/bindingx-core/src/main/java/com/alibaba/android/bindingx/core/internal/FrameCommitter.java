@@ -0,0 +1,151 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.view.Choreographer;
+import android.view.View;
+
+import com.alibaba.android.bindingx.core.LogProxy;
+import com.alibaba.android.bindingx.core.PlatformManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Description:
+ *
+ * Commit the view updates of all handlers in one {@link Choreographer} callback per frame.
+ *
+ * Handlers stage the {@link ViewUpdate}s that their events have produced(see
+ * {@link PlatformManager.IBatchViewUpdater}), from any thread. The first update staged for a frame
+ * posts the frame callback, which then applies every staged update in one go. So the bindings of a
+ * scroll, a gesture and some timing animations that run at the same time show up in the same frame,
+ * and there is only one dispatch per frame however many of them there are.
+ *
+ * The committer is shared by all handlers of the process, because they all draw into the same frames.
+ *
+ * Staged records hold copies of the values(see {@link ViewUpdate}), never the values that handlers
+ * keep evaluating into, and their values are taken under the lock of the committer.
+ *
+ */
+final class FrameCommitter implements Choreographer.FrameCallback, Runnable {
+
+    private static final FrameCommitter sInstance = new FrameCommitter(true);
+
+    // false if frames are only committed by calling commit()
+    private final boolean mScheduleFrames;
+
+    // created when it is first needed
+    private Handler mMainHandler;
+
+    // staged for the next frame, guarded by this
+    private List<Object> mStaged = new ArrayList<>();
+    private boolean mScheduled;
+
+    // being committed, only accessed on the UI thread
+    private List<Object> mCommitting = new ArrayList<>();
+
+    @VisibleForTesting
+    FrameCommitter(boolean scheduleFrames) {
+        this.mScheduleFrames = scheduleFrames;
+    }
+
+    static FrameCommitter getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * apply {@code update} to {@code targetView} in the next frame. An update is only staged once until it
+     * has been committed(see {@link ViewUpdate#schedule()}).
+     * */
+    void stage(@NonNull View targetView, @NonNull ViewUpdate update, @NonNull PlatformManager.IBatchViewUpdater updater,
+               @NonNull PlatformManager.IDeviceResolutionTranslator translator) {
+        boolean schedule;
+        synchronized (this) {
+            // flattened in groups of four, so that staging allocates nothing
+            mStaged.add(targetView);
+            mStaged.add(update);
+            mStaged.add(updater);
+            mStaged.add(translator);
+            schedule = !mScheduled;
+            mScheduled = true;
+        }
+        if (!schedule || !mScheduleFrames) {
+            return;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            run();
+        } else {
+            // Choreographer works per thread, the frame callback has to be posted on the UI thread
+            mainHandler().post(this);
+        }
+    }
+
+    private synchronized Handler mainHandler() {
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+        return mMainHandler;
+    }
+
+    @Override
+    public void run() {
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        commit();
+    }
+
+    /**
+     * apply all staged updates, must be called on the UI thread.
+     * */
+    void commit() {
+        List<Object> committing;
+        synchronized (this) {
+            committing = mStaged;
+            mStaged = mCommitting;
+            mCommitting = committing;
+            mScheduled = false;
+            // take the values of all views at once under the lock that stage() holds, so this thread sees
+            // everything that the handlers have written, and the frame shows the same event on every view
+            for (int i = 0, size = committing.size(); i < size; i += 4) {
+                ((ViewUpdate) committing.get(i + 1)).takeUpdates();
+            }
+        }
+        for (int i = 0, size = committing.size(); i < size; i += 4) {
+            View targetView = (View) committing.get(i);
+            ViewUpdate update = (ViewUpdate) committing.get(i + 1);
+            PlatformManager.IBatchViewUpdater updater = (PlatformManager.IBatchViewUpdater) committing.get(i + 2);
+            PlatformManager.IDeviceResolutionTranslator translator = (PlatformManager.IDeviceResolutionTranslator) committing.get(i + 3);
+            if (update.size() == 0) {
+                continue;
+            }
+            try {
+                updater.applyUpdate(targetView, update, translator);
+            } catch (Exception e) {
+                LogProxy.e("failed to apply the update of " + update.getTargetRef(), e);
+            }
+        }
+        // do not keep the views until the next frame
+        committing.clear();
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Description:
+ *
+ * Piecewise linear mapping of an input range onto an output range of numbers or colors, like
+ * {@code Animated.interpolate} of react native:
+ *
+ * <pre>
+ *   interpolate(y, asArray(0, 100, 200), asArray(0, 1, 0.5), 'clamp')
+ *   interpolate(y, asArray(0, 100), asArray('#ff0000', '#0000ff'))
+ * </pre>
+ *
+ * The segment is found by binary search. Values outside the input range are extrapolated by the
+ * first or last segment({@code 'extend'}, the default), clamped to the output range({@code 'clamp'}) or
+ * returned as they are({@code 'identity'}). Colors are interpolated like {@link ColorFunction#interpolate(int, int, double)}
+ * and always clamped.
+ *
+ * If the ranges and the mode are constants, {@link ExpressionOptimizer} binds them when the expression is
+ * compiled(see {@link #bind()}), so evaluating the call is a single primitive call of the value.
+ *
+ */
+final class Interpolation {
+
+    static final String EXTRAPOLATE_EXTEND = "extend";
+    static final String EXTRAPOLATE_CLAMP = "clamp";
+    static final String EXTRAPOLATE_IDENTITY = "identity";
+
+    private final double[] mInputs;
+    // packed argb ints if mColor
+    private final double[] mOutputs;
+    private final boolean mColor;
+    private final String mExtrapolate;
+
+    private Interpolation(double[] inputs, double[] outputs, boolean color, String extrapolate) {
+        this.mInputs = inputs;
+        this.mOutputs = outputs;
+        this.mColor = color;
+        this.mExtrapolate = extrapolate;
+    }
+
+    /**
+     * @param inputs a list of numbers in ascending order
+     * @param outputs a list of as many numbers or colors
+     * @param extrapolate one of the extrapolate modes, possibly quoted, or null for the default
+     *
+     * @throws IllegalArgumentException if the arguments do not describe an interpolation
+     * */
+    @NonNull
+    static Interpolation create(Object inputs, Object outputs, @Nullable Object extrapolate) throws IllegalArgumentException {
+        if (!(inputs instanceof List) || !(outputs instanceof List)) {
+            throw new IllegalArgumentException("input and output ranges must be arrays");
+        }
+        List<?> inputList = (List<?>) inputs;
+        List<?> outputList = (List<?>) outputs;
+        if (inputList.size() < 2 || inputList.size() != outputList.size()) {
+            throw new IllegalArgumentException("input and output ranges must have the same length of at least 2");
+        }
+        double[] inputValues = new double[inputList.size()];
+        for (int i = 0; i < inputValues.length; i++) {
+            inputValues[i] = ExpressionNode.toNumber(inputList.get(i));
+            if (Double.isNaN(inputValues[i]) || (i > 0 && inputValues[i] < inputValues[i - 1])) {
+                throw new IllegalArgumentException("input range must be ascending");
+            }
+        }
+        boolean color = false;
+        for (Object output : outputList) {
+            color |= output instanceof String && !isNumber((String) output);
+        }
+        double[] outputValues = new double[outputList.size()];
+        for (int i = 0; i < outputValues.length; i++) {
+            Object output = outputList.get(i);
+            outputValues[i] = color && output instanceof String ? JSMath.parseColor((String) output) : ExpressionNode.toNumber(output);
+        }
+        return new Interpolation(inputValues, outputValues, color, parseExtrapolate(extrapolate));
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            Double.parseDouble(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String parseExtrapolate(@Nullable Object extrapolate) {
+        if (extrapolate == null) {
+            return EXTRAPOLATE_EXTEND;
+        }
+        String mode = String.valueOf(extrapolate);
+        // string literals keep their quotes
+        if (mode.length() >= 2 && (mode.charAt(0) == '\'' || mode.charAt(0) == '"')) {
+            mode = mode.substring(1, mode.length() - 1);
+        }
+        if (EXTRAPOLATE_EXTEND.equals(mode) || EXTRAPOLATE_CLAMP.equals(mode) || EXTRAPOLATE_IDENTITY.equals(mode)) {
+            return mode;
+        }
+        throw new IllegalArgumentException("unknown extrapolate mode " + extrapolate);
+    }
+
+    boolean isColor() {
+        return mColor;
+    }
+
+    /**
+     * @return the mapped value, a packed argb int if the outputs are colors
+     * */
+    double valueAt(double x) {
+        double[] inputs = mInputs;
+        int last = inputs.length - 1;
+        if (!mColor) {
+            if (x < inputs[0] || x > inputs[last]) {
+                if (EXTRAPOLATE_IDENTITY.equals(mExtrapolate)) {
+                    return x;
+                }
+                if (EXTRAPOLATE_CLAMP.equals(mExtrapolate)) {
+                    return x < inputs[0] ? mOutputs[0] : mOutputs[last];
+                }
+            }
+        } else if (!(x > inputs[0])) {
+            return mOutputs[0];
+        } else if (x >= inputs[last]) {
+            return mOutputs[last];
+        }
+
+        int segment = segmentOf(x);
+        double start = inputs[segment];
+        double span = inputs[segment + 1] - start;
+        double fraction = span == 0 ? (x < start ? 0 : 1) : (x - start) / span;
+        if (mColor) {
+            return ColorFunction.interpolate((int) mOutputs[segment], (int) mOutputs[segment + 1], fraction);
+        }
+        return mOutputs[segment] + fraction * (mOutputs[segment + 1] - mOutputs[segment]);
+    }
+
+    /**
+     * @return the index of the segment [inputs[i], inputs[i+1]] that contains {@code x}, the first or last
+     * one if it is out of range
+     * */
+    private int segmentOf(double x) {
+        int low = 0;
+        int high = mInputs.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (mInputs[middle] <= x) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return a function of the value only, which produces a color if the outputs are colors
+     * */
+    @NonNull
+    NativeFunction bind() {
+        return mColor ? new BoundColor(this) : new Bound(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Interpolation)) return false;
+        Interpolation that = (Interpolation) o;
+        return mColor == that.mColor && mExtrapolate.equals(that.mExtrapolate)
+                && Arrays.equals(mInputs, that.mInputs) && Arrays.equals(mOutputs, that.mOutputs);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(mInputs);
+        result = 31 * result + Arrays.hashCode(mOutputs);
+        result = 31 * result + mExtrapolate.hashCode();
+        return result;
+    }
+
+    /**
+     * {@code interpolate(value, inputRange, outputRange[, extrapolate])} with ranges that are only known at
+     * runtime. The ranges are converted on every call.
+     * */
+    static final JSFunctionInterface FUNCTION = new JSFunctionInterface() {
+        @Override
+        public Object execute(ArrayList<Object> arguments) {
+            if (arguments == null || arguments.size() < 3) {
+                return null;
+            }
+            Interpolation interpolation = create(arguments.get(1), arguments.get(2), arguments.size() > 3 ? arguments.get(3) : null);
+            double value = interpolation.valueAt(ExpressionNode.toNumber(arguments.get(0)));
+            return interpolation.isColor() ? (Object) (int) value : (Object) value;
+        }
+    };
+
+    // equal if the interpolations are, so that identical calls are shared
+    private static final class Bound extends NativeFunction {
+        private final Interpolation interpolation;
+
+        Bound(Interpolation interpolation) {
+            super(1);
+            this.interpolation = interpolation;
+        }
+
+        @Override
+        double call1(double a) {
+            return interpolation.valueAt(a);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Bound && interpolation.equals(((Bound) o).interpolation);
+        }
+
+        @Override
+        public int hashCode() {
+            return interpolation.hashCode();
+        }
+    }
+
+    private static final class BoundColor extends ColorFunction {
+        private final Interpolation interpolation;
+
+        BoundColor(Interpolation interpolation) {
+            super(1);
+            this.interpolation = interpolation;
+        }
+
+        @Override
+        double call1(double a) {
+            return interpolation.valueAt(a);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BoundColor && interpolation.equals(((BoundColor) o).interpolation);
+        }
+
+        @Override
+        public int hashCode() {
+            return interpolation.hashCode();
+        }
+    }
+}
@@ -15,7 +15,6 @@
  */
 package com.alibaba.android.bindingx.core.internal;
 
-import android.animation.ArgbEvaluator;
 import android.graphics.Color;
 import android.text.TextUtils;
 
@@ -34,87 +33,100 @@ class JSMath {
 
     private JSMath(){}
 
-    private static Object sin = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.sin((double) arguments.get(0));
+    private static Object sin = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.sin(a);
         }
     };
 
-    private static Object cos = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.cos((double) arguments.get(0));
+    private static Object cos = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.cos(a);
         }
     };
 
-    private static Object tan = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.tan((double) arguments.get(0));
+    private static Object tan = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.tan(a);
         }
     };
 
-    private static Object asin = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.asin((double) arguments.get(0));
+    private static Object asin = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.asin(a);
         }
     };
 
-    private static Object acos = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.acos((double) arguments.get(0));
+    private static Object acos = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.acos(a);
         }
     };
 
-    private static Object atan = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.atan((double) arguments.get(0));
+    private static Object atan = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.atan(a);
         }
     };
 
-    private static Object atan2 = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.atan2((double) arguments.get(0), (double) arguments.get(1));
+    private static Object atan2 = new NativeFunction(2) {
+        @Override
+        double call2(double a, double b) {
+            return Math.atan2(a, b);
         }
     };
 
-    private static Object pow = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.pow((double) arguments.get(0), (double) arguments.get(1));
+    private static Object pow = new NativeFunction(2) {
+        @Override
+        double call2(double a, double b) {
+            return Math.pow(a, b);
         }
     };
 
-    private static Object exp = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.exp((double) arguments.get(0));
+    private static Object exp = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.exp(a);
         }
     };
 
-    private static Object sqrt = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.sqrt((double) arguments.get(0));
+    private static Object sqrt = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.sqrt(a);
         }
     };
 
-    private static Object cbrt = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.cbrt((double) arguments.get(0));
+    private static Object cbrt = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.cbrt(a);
         }
     };
 
-    private static Object log = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.log((double) arguments.get(0));
+    private static Object log = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.log(a);
         }
     };
 
-    private static Object abs = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.abs((double) arguments.get(0));
+    private static Object abs = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.abs(a);
         }
     };
 
-    private static Object sign = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            double v = (double) arguments.get(0);
+    private static Object sign = new NativeFunction(1) {
+        @Override
+        double call1(double v) {
             if (v > 0)
                 return 1;
             if (v == 0)
@@ -125,53 +137,72 @@ class JSMath {
         }
     };
 
-    private static Object ceil = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.ceil((double) arguments.get(0));
+    private static Object ceil = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.ceil(a);
         }
     };
 
-    private static Object floor = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.floor((double) arguments.get(0));
+    private static Object floor = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.floor(a);
         }
     };
 
-    private static Object round = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            return Math.round((double) arguments.get(0));
+    private static Object round = new NativeFunction(1) {
+        @Override
+        double call1(double a) {
+            return Math.round(a);
         }
     };
 
-    private static Object max = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            if(arguments != null && arguments.size() >= 1) {
-                double max = (double) arguments.get(0);
-                for (int i = 1,len = arguments.size();i < len; i++) {
-                    double val = (double) arguments.get(i);
-                    if(val > max) {
-                        max = val;
-                    }
+    private static Object max = new NativeFunction(NativeFunction.VARIADIC) {
+        @Override
+        double call1(double a) {
+            return a;
+        }
+
+        @Override
+        double call2(double a, double b) {
+            return b > a ? b : a;
+        }
+
+        @Override
+        double callN(double[] args) {
+            double max = args[0];
+            for (int i = 1,len = args.length;i < len; i++) {
+                double val = args[i];
+                if(val > max) {
+                    max = val;
                 }
-                return max;
             }
-            return null;
+            return max;
         }
     };
 
-    private static Object min = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            if(arguments != null && arguments.size() >= 1) {
-                double min = (double) arguments.get(0);
-                for (int i = 1,len = arguments.size();i < len; i++) {
-                    double val = (double) arguments.get(i);
-                    if(val < min) {
-                        min = val;
-                    }
+    private static Object min = new NativeFunction(NativeFunction.VARIADIC) {
+        @Override
+        double call1(double a) {
+            return a;
+        }
+
+        @Override
+        double call2(double a, double b) {
+            return b < a ? b : a;
+        }
+
+        @Override
+        double callN(double[] args) {
+            double min = args[0];
+            for (int i = 1,len = args.length;i < len; i++) {
+                double val = args[i];
+                if(val < min) {
+                    min = val;
                 }
-                return min;
             }
-            return null;
+            return min;
         }
     };
     private static Object PI = Math.PI;
@@ -182,9 +213,19 @@ class JSMath {
 
     //transform
 
-    private static Object translate = new JSFunctionInterface() {
+    private static Object translate = new VectorFunction() {
+        @Override
+        boolean accepts(int count) {
+            return count >= 2;
+        }
+
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
+        VectorValue obtainValue(int count, VectorValue reuse) {
+            return reuse instanceof Vec2 ? reuse : new Vec2();
+        }
+
+        @Override
+        Object fallback(ArrayList<Object> arguments) {
             if(arguments == null || arguments.size() < 2) {
                 return null;
             }
@@ -192,9 +233,19 @@ class JSMath {
         }
     };
 
-    private static Object scale = new JSFunctionInterface() {
+    private static Object scale = new VectorFunction() {
+        @Override
+        boolean accepts(int count) {
+            return count >= 2;
+        }
+
+        @Override
+        VectorValue obtainValue(int count, VectorValue reuse) {
+            return reuse instanceof Vec2 ? reuse : new Vec2();
+        }
+
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
+        Object fallback(ArrayList<Object> arguments) {
             if(arguments == null || arguments.size() < 2) {
                 return null;
             }
@@ -203,9 +254,19 @@ class JSMath {
     };
 
 
-    private static Object matrix = new JSFunctionInterface() {
+    private static Object matrix = new VectorFunction() {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
+        boolean accepts(int count) {
+            return count >= 6;
+        }
+
+        @Override
+        VectorValue obtainValue(int count, VectorValue reuse) {
+            return reuse instanceof Matrix2D ? reuse : new Matrix2D();
+        }
+
+        @Override
+        Object fallback(ArrayList<Object> arguments) {
             if(arguments == null || arguments.size() < 6) {
                 return null;
             }
@@ -214,51 +275,36 @@ class JSMath {
     };
 
 
-    private static Object rgb = new JSFunctionInterface() {
+    private static Object rgb = new ColorFunction(3) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            if(arguments == null || arguments.size() < 3) {
-                return null;
-            }
-
-            double r = (double) arguments.get(0);
-            double g = (double) arguments.get(1);
-            double b = (double) arguments.get(2);
-
+        double call3(double r, double g, double b) {
             return Color.rgb((int)r,(int)g,(int)b);
         }
     };
 
-    private static Object rgba = new JSFunctionInterface() {
+    private static Object rgba = new ColorFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            if(arguments == null || arguments.size() < 4) {
-                return null;
-            }
+        double call4(double r, double g, double b, double a) {
             /*rgb==0~255*/
-            double r = (double) arguments.get(0);
-            double g = (double) arguments.get(1);
-            double b = (double) arguments.get(2);
             /*a=0~1*/
-            double a = ((double) arguments.get(3))*255;
-            return Color.argb((int)a,(int)r,(int)g,(int)b);
+            return Color.argb((int)(a*255),(int)r,(int)g,(int)b);
         }
     };
 
-    private static ArgbEvaluator sArgbEvaluator = new ArgbEvaluator();
+    private static Object evaluateColor = new ColorFunction(3) {
+        @Override
+        boolean isColorArgument(int index) {
+            return index < 2;
+        }
 
-    private static Object evaluateColor = new JSFunctionInterface() {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            int fromColor = parseColor((String) arguments.get(0));
-            int toColor = parseColor((String) arguments.get(1));
-            double fraction = (double) arguments.get(2);
+        double call3(double fromColor, double toColor, double fraction) {
             fraction = Math.min(1.0d,Math.max(0.0d,fraction));
-            return sArgbEvaluator.evaluate((float) fraction,fromColor,toColor);
+            return ColorFunction.interpolate((int) fromColor, (int) toColor, fraction);
         }
     };
 
-    private static int parseColor(String str) {
+    static int parseColor(String str) {
         if(TextUtils.isEmpty(str)) {
             throw new IllegalArgumentException("Unknown color");
         }
@@ -271,54 +317,68 @@ class JSMath {
         return color;
     }
 
-    private static Object asArray = new JSFunctionInterface() {
+    private static Object asArray = new VectorFunction() {
+        @Override
+        boolean accepts(int count) {
+            return count == 2 || count == 4;
+        }
+
+        @Override
+        VectorValue obtainValue(int count, VectorValue reuse) {
+            if (count == 2) {
+                return reuse instanceof Vec2 ? reuse : new Vec2();
+            }
+            return reuse instanceof Vec4 ? reuse : new Vec4();
+        }
+
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
+        Object fallback(ArrayList<Object> arguments) {
             return arguments;
         }
     };
 
-    static void applyXYToScope(Map<String, Object> scope, double x, double y, PlatformManager.IDeviceResolutionTranslator translator){
-        scope.put("x", translator.nativeToWeb(x));
-        scope.put("y", translator.nativeToWeb(y));
-        scope.put("internal_x",x);
-        scope.put("internal_y",y);
+    // event values are written directly into slots without hashing or boxing.
+
+    static void applyXYToScope(ExpressionScope scope, double x, double y, PlatformManager.IDeviceResolutionTranslator translator){
+        scope.setDouble(ExpressionScope.SLOT_X, translator.nativeToWeb(x));
+        scope.setDouble(ExpressionScope.SLOT_Y, translator.nativeToWeb(y));
+        scope.setDouble(ExpressionScope.SLOT_INTERNAL_X, x);
+        scope.setDouble(ExpressionScope.SLOT_INTERNAL_Y, y);
     }
 
-    static void applyOrientationValuesToScope(Map<String,Object> scope, double alpha, double beta, double gamma,
+    static void applyOrientationValuesToScope(ExpressionScope scope, double alpha, double beta, double gamma,
                                               double startAlpha, double startBeta, double startGamma,
                                               double x, double y, double z) {
-        scope.put("alpha", alpha);
-        scope.put("beta", beta);
-        scope.put("gamma", gamma);
+        scope.setDouble(ExpressionScope.SLOT_ALPHA, alpha);
+        scope.setDouble(ExpressionScope.SLOT_BETA, beta);
+        scope.setDouble(ExpressionScope.SLOT_GAMMA, gamma);
 
-        scope.put("dalpha", alpha-startAlpha);
-        scope.put("dbeta", beta-startBeta);
-        scope.put("dgamma", gamma-startGamma);
-
-        scope.put("x", x);
-        scope.put("y", y);
-        scope.put("z", z);
+        scope.setDouble(ExpressionScope.SLOT_DALPHA, alpha-startAlpha);
+        scope.setDouble(ExpressionScope.SLOT_DBETA, beta-startBeta);
+        scope.setDouble(ExpressionScope.SLOT_DGAMMA, gamma-startGamma);
 
+        scope.setDouble(ExpressionScope.SLOT_X, x);
+        scope.setDouble(ExpressionScope.SLOT_Y, y);
+        scope.setDouble(ExpressionScope.SLOT_Z, z);
     }
 
-    static void applyTimingValuesToScope(Map<String,Object> scope, double t) {
-        scope.put("t", t);
+    static void applyTimingValuesToScope(ExpressionScope scope, double t) {
+        scope.setDouble(ExpressionScope.SLOT_T, t);
     }
 
-    static void applyScrollValuesToScope(Map<String,Object> scope, double x, double y
+    static void applyScrollValuesToScope(ExpressionScope scope, double x, double y
                     , double dx, double dy, double tdx, double tdy, PlatformManager.IDeviceResolutionTranslator translator) {
-        scope.put("x", translator.nativeToWeb(x));
-        scope.put("y", translator.nativeToWeb(y));
+        scope.setDouble(ExpressionScope.SLOT_X, translator.nativeToWeb(x));
+        scope.setDouble(ExpressionScope.SLOT_Y, translator.nativeToWeb(y));
 
-        scope.put("dx", translator.nativeToWeb(dx));
-        scope.put("dy", translator.nativeToWeb(dy));
+        scope.setDouble(ExpressionScope.SLOT_DX, translator.nativeToWeb(dx));
+        scope.setDouble(ExpressionScope.SLOT_DY, translator.nativeToWeb(dy));
 
-        scope.put("tdx", translator.nativeToWeb(tdx));
-        scope.put("tdy", translator.nativeToWeb(tdy));
+        scope.setDouble(ExpressionScope.SLOT_TDX, translator.nativeToWeb(tdx));
+        scope.setDouble(ExpressionScope.SLOT_TDY, translator.nativeToWeb(tdy));
 
-        scope.put("internal_x",x);
-        scope.put("internal_y",y);
+        scope.setDouble(ExpressionScope.SLOT_INTERNAL_X, x);
+        scope.setDouble(ExpressionScope.SLOT_INTERNAL_Y, y);
     }
 
     static void applyToScope(Map<String, Object> scope) {
@@ -361,6 +421,8 @@ class JSMath {
         scope.put("evaluateColor", JSMath.evaluateColor);
 
         scope.put("asArray",JSMath.asArray);
+
+        scope.put("interpolate", Interpolation.FUNCTION);
     }
 
 }
\ No newline at end of file
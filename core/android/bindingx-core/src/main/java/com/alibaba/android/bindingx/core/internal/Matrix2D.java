@@ -0,0 +1,92 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+/**
+ * Description:
+ *
+ * A 2D affine transform, the result of {@code matrix(a,b,c,d,tx,ty)}. It maps {@code (x,y)} to
+ * {@code (a*x + c*y + tx, b*x + d*y + ty)} like the CSS {@code matrix()} function.
+ *
+ */
+public final class Matrix2D extends VectorValue {
+
+    public double a;
+    public double b;
+    public double c;
+    public double d;
+    public double tx;
+    public double ty;
+
+    Matrix2D() {
+    }
+
+    @Override
+    public double component(int index) {
+        switch (index) {
+            case 0:
+                return a;
+            case 1:
+                return b;
+            case 2:
+                return c;
+            case 3:
+                return d;
+            case 4:
+                return tx;
+            case 5:
+                return ty;
+            default:
+                throw new IndexOutOfBoundsException("index " + index + " of Matrix2D");
+        }
+    }
+
+    @Override
+    void setComponent(int index, double value) {
+        switch (index) {
+            case 0:
+                a = value;
+                break;
+            case 1:
+                b = value;
+                break;
+            case 2:
+                c = value;
+                break;
+            case 3:
+                d = value;
+                break;
+            case 4:
+                tx = value;
+                break;
+            case 5:
+                ty = value;
+                break;
+            default:
+                throw new IndexOutOfBoundsException("index " + index + " of Matrix2D");
+        }
+    }
+
+    @Override
+    VectorValue newInstance() {
+        return new Matrix2D();
+    }
+
+    @Override
+    public int size() {
+        return 6;
+    }
+}
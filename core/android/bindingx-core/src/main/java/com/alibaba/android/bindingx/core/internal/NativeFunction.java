@@ -0,0 +1,134 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import java.util.ArrayList;
+
+/**
+ * Description:
+ *
+ * A numeric function with primitive entry points. Evaluators call {@link #call1(double)},
+ * {@link #call2(double, double)}, {@link #call3(double, double, double)} or
+ * {@link #call4(double, double, double, double)} directly with unboxed arguments, so calling e.g. {@code sin(x)} or {@code easeOutCubic(t,b,c,d)} allocates
+ * nothing. {@link #callN(double[])} is the generic entry point for any other number of arguments.
+ *
+ * A subclass overrides the entry point of its {@link #arity}, which is {@link #callN(double[])} if
+ * it is not 1, 2, 3 or 4. Variadic functions override {@link #callN(double[])} and may override the fixed
+ * ones as shortcuts.
+ *
+ * {@link #execute(ArrayList)} is still supported for callers that only have boxed arguments.
+ *
+ */
+abstract class NativeFunction implements JSFunctionInterface {
+
+    static final int VARIADIC = -1;
+
+    final int arity;
+
+    NativeFunction(int arity) {
+        this.arity = arity;
+    }
+
+    /**
+     * @return true if a call with {@code count} arguments can use the primitive entry points.
+     * Calls with another number of arguments go through {@link #execute(ArrayList)}.
+     * */
+    boolean accepts(int count) {
+        return arity == VARIADIC ? count > 0 : count == arity;
+    }
+
+    double call1(double a) {
+        if (arity == VARIADIC) {
+            return callN(new double[]{a});
+        }
+        throw arityMismatch(1);
+    }
+
+    double call2(double a, double b) {
+        if (arity == VARIADIC) {
+            return callN(new double[]{a, b});
+        }
+        throw arityMismatch(2);
+    }
+
+    double call3(double a, double b, double c) {
+        if (arity == VARIADIC) {
+            return callN(new double[]{a, b, c});
+        }
+        throw arityMismatch(3);
+    }
+
+    double call4(double a, double b, double c, double d) {
+        if (arity == VARIADIC) {
+            return callN(new double[]{a, b, c, d});
+        }
+        throw arityMismatch(4);
+    }
+
+    double callN(double[] args) {
+        if (arity != args.length) {
+            throw arityMismatch(args.length);
+        }
+        switch (args.length) {
+            case 1:
+                return call1(args[0]);
+            case 2:
+                return call2(args[0], args[1]);
+            case 3:
+                return call3(args[0], args[1], args[2]);
+            case 4:
+                return call4(args[0], args[1], args[2], args[3]);
+            default:
+                throw new IllegalStateException("callN is not implemented");
+        }
+    }
+
+    private IllegalArgumentException arityMismatch(int count) {
+        return new IllegalArgumentException("expected " + arity + " arguments but got " + count);
+    }
+
+    /**
+     * call with primitive arguments, dispatching to the entry point of {@code args.length}.
+     * */
+    final double call(double[] args) {
+        switch (args.length) {
+            case 1:
+                return call1(args[0]);
+            case 2:
+                return call2(args[0], args[1]);
+            case 3:
+                return call3(args[0], args[1], args[2]);
+            case 4:
+                return call4(args[0], args[1], args[2], args[3]);
+            default:
+                return callN(args);
+        }
+    }
+
+    @Override
+    public Object execute(ArrayList<Object> arguments) {
+        // extra arguments are ignored and missing ones fail, like the functions always did
+        int count = arity == VARIADIC ? arguments.size() : arity;
+        if (count == 0) {
+            return null;
+        }
+        double[] args = new double[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = (double) arguments.get(i);
+        }
+        return call(args);
+    }
+}
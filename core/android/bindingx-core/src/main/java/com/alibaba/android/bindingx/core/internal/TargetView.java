@@ -0,0 +1,194 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+import com.alibaba.android.bindingx.core.PlatformManager;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Description:
+ *
+ * The view of one bound target, resolved by {@link PlatformManager.IViewFinder} the first time
+ * it is needed and kept until the view is detached from its window. Finding a view is not cheap
+ * (on react native it walks the whole view hierarchy), and without the cache it would be done for
+ * every expression on every event.
+ *
+ * The view is only weakly referenced. When it is detached, e.g. because the component has been
+ * removed or re-rendered, the next call finds the target again. A view that is not attached yet is
+ * not cached, because it would never be detached either.
+ *
+ * Targets are resolved on the thread of their handler, which is not always the UI thread. The
+ * attach state listener is added and removed on the UI thread.
+ *
+ * If the platform supports it, the properties changed by an event are collected in the
+ * {@link ViewUpdate} of the view and applied together.
+ *
+ */
+final class TargetView implements View.OnAttachStateChangeListener {
+
+    final String targetRef;
+    final String instanceId;
+
+    // created when it is first needed
+    private static Handler sMainHandler;
+
+    // the view found last time
+    private volatile WeakReference<View> mView;
+    // true if mView is attached and will be dropped when it is detached
+    private volatile boolean mCached;
+    private volatile ViewUpdate mUpdate;
+
+    // the event in which this target has been added to the updated targets of its handler
+    int updatedEvent = -1;
+
+    // incremented whenever another view is found, or the same one after it has been detached(e.g. a
+    // recycled view). Holders compare it to tell that the view shows none of their values. Like the
+    // other fields that resolve() writes, it is only written on the thread of the handler.
+    volatile int generation;
+
+    TargetView(String targetRef, String instanceId) {
+        this.targetRef = targetRef;
+        this.instanceId = instanceId;
+    }
+
+    /**
+     * @return the cached view, or the view found by {@code viewFinder} if there is none
+     * */
+    @Nullable
+    View resolve(@NonNull PlatformManager.IViewFinder viewFinder) {
+        WeakReference<View> ref = mView;
+        View previous = ref == null ? null : ref.get();
+        if (previous != null && mCached) {
+            return previous;
+        }
+        View view = viewFinder.findViewBy(targetRef, instanceId);
+        if (view == null) {
+            return null;
+        }
+        if (view != previous) {
+            // also if the view is found again after it has been detached, e.g. because it is recycled
+            mView = new WeakReference<>(view);
+            generation++;
+            // a dispatched update of the previous view does not apply to this one
+            mUpdate = null;
+        }
+        if (view.getWindowToken() != null) {
+            mCached = true;
+            listen(view);
+        }
+        return view;
+    }
+
+    private void listen(@NonNull final View view) {
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                if (cachedView() != view) {
+                    // released or replaced meanwhile
+                    return;
+                }
+                if (view.getWindowToken() == null) {
+                    // detached before it could be listened to
+                    onViewDetachedFromWindow(view);
+                    return;
+                }
+                view.addOnAttachStateChangeListener(TargetView.this);
+            }
+        });
+    }
+
+    /**
+     * @return the cached view, without finding it
+     * */
+    @Nullable
+    View cachedView() {
+        WeakReference<View> ref = mView;
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * @return the update record of the cached view
+     * */
+    @NonNull
+    ViewUpdate update() {
+        ViewUpdate update = mUpdate;
+        if (update == null) {
+            update = new ViewUpdate(targetRef, instanceId);
+            mUpdate = update;
+        }
+        return update;
+    }
+
+    boolean matches(String targetRef, String instanceId) {
+        return equal(this.targetRef, targetRef) && equal(this.instanceId, instanceId);
+    }
+
+    /**
+     * forget the cached view.
+     * */
+    void release() {
+        WeakReference<View> ref = mView;
+        mView = null;
+        mCached = false;
+        final View view = ref == null ? null : ref.get();
+        if (view != null) {
+            runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    view.removeOnAttachStateChangeListener(TargetView.this);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        WeakReference<View> ref = mView;
+        if (ref != null && ref.get() == v) {
+            mView = null;
+            mCached = false;
+        }
+        v.removeOnAttachStateChangeListener(this);
+    }
+
+    private static void runOnMainThread(@NonNull Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+            return;
+        }
+        synchronized (TargetView.class) {
+            if (sMainHandler == null) {
+                sMainHandler = new Handler(Looper.getMainLooper());
+            }
+        }
+        sMainHandler.post(runnable);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
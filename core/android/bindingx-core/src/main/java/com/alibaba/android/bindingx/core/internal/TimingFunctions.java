@@ -15,15 +15,7 @@
  */
 package com.alibaba.android.bindingx.core.internal;
 
-import android.support.annotation.Nullable;
-import android.support.v4.view.animation.PathInterpolatorCompat;
-import android.view.animation.Interpolator;
 
-import org.json.JSONException;
-
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Deque;
 import java.util.Map;
 
 
@@ -35,7 +27,7 @@ import java.util.Map;
  * Created by rowandjj(chuyi)<br/>
  */
 
-class TimingFunctions {
+public class TimingFunctions {
     private TimingFunctions() {}
 
     static void applyToScope(Map<String, Object> scope){
@@ -75,34 +67,108 @@ class TimingFunctions {
         scope.put("cubicBezier", cubicBezier);
     }
 
-    // t: current time, b: begInnIng value, c: change In value, d: duration
+    private static volatile TableSpec sTableSpec;
+
+    /**
+     * evaluate {@code sine}, {@code expo} and {@code elastic} easings by looking them up in tables sampled
+     * from the analytic functions instead of computing {@code Math.pow}/{@code Math.sin} on every call.
+     * The other easings are a few multiplications(or a {@code Math.sqrt}) and are always computed.
+     * Each table is sampled when its function is called for the first time.
+     *
+     * The start and the end values are exact. In between, with a resolution of 512 the error is below
+     * 2e-4 of {@code c} with linear interpolation, and below 1e-5 of {@code c} with cubic interpolation.
+     * The exceptions are the two intervals on each side of the middle of {@code easeInOutExpo} and
+     * {@code easeInOutElastic}, where the two halves do not join smoothly and the cubic error is below 1e-4.
+     * The error shrinks with the square of the resolution.
+     *
+     * @param resolution the number of intervals between samples. 0 or less disables the tables.
+     * @param interpolation {@link BindingXConstants#EASING_INTERPOLATION_LINEAR} or {@link BindingXConstants#EASING_INTERPOLATION_CUBIC}
+     * */
+    public static void useLookupTables(int resolution, @BindingXConstants.EasingInterpolation String interpolation) {
+        sTableSpec = resolution > 0 ? new TableSpec(resolution, BindingXConstants.EASING_INTERPOLATION_CUBIC.equals(interpolation)) : null;
+    }
+
+    private static final class TableSpec {
+        final int resolution;
+        final boolean cubic;
+
+        TableSpec(int resolution, boolean cubic) {
+            this.resolution = resolution;
+            this.cubic = cubic;
+        }
+    }
+
+    /**
+     * An easing function {@code b + c * f(t/d)}. Subclasses implement the analytic version in
+     * {@link #ease(double, double, double, double)}, which {@link #call4(double, double, double, double)}
+     * replaces with a lookup in a sampled {@link EasingTable} if tables are enabled.
+     * */
+    abstract static class Easing extends NativeFunction implements EasingTable.Curve {
+        // racing threads at worst sample the same table twice
+        private volatile EasingTable mTable;
+
+        Easing() {
+            super(4);
+        }
+
+        abstract double ease(double t, double b, double c, double d);
+
+        @Override
+        public double valueAt(double x) {
+            return ease(x, 0, 1, 1);
+        }
 
-    private static Object linear = new JSFunctionInterface() {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        final double call4(double t, double b, double c, double d) {
+            TableSpec spec = sTableSpec;
+            // the start and the end are exact, times before the start are extrapolated
+            if (spec == null || !(t > 0) || t >= d) {
+                return ease(t, b, c, d);
+            }
+            return b + c * table(spec).valueAt(t / d);
+        }
+
+        /**
+         * @return the table for the current settings, or null if tables are disabled
+         * */
+        EasingTable table() {
+            TableSpec spec = sTableSpec;
+            return spec == null ? null : table(spec);
+        }
+
+        private EasingTable table(TableSpec spec) {
+            EasingTable table = mTable;
+            if (table == null || table.resolution != spec.resolution || table.cubic != spec.cubic) {
+                table = EasingTable.sample(this, spec.resolution, spec.cubic);
+                mTable = table;
+            }
+            return table;
+        }
+    }
+
+    // t: current time, b: begInnIng value, c: change In value, d: duration
 
+    private static Object linear = new NativeFunction(4) {
+        @Override
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return c*(t/d)+b;
         }
     };
 
-    private static Object cubicBezier = new JSFunctionInterface() {
+    private static Object cubicBezier = new NativeFunction(8) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double callN(double[] args) {
+            double t = args[0];
+            double b = args[1];
+            double c = args[2];
+            double d = args[3];
 
-            double x1 = (double) arguments.get(4);
-            double y1 = (double) arguments.get(5);
-            double x2 = (double) arguments.get(6);
-            double y2 = (double) arguments.get(7);
+            double x1 = args[4];
+            double y1 = args[5];
+            double x2 = args[6];
+            double y2 = args[7];
 
             t = Math.min(t,d);
 
@@ -110,68 +176,31 @@ class TimingFunctions {
                 return b+c;
             }
 
-            // 避免短时间创建大量临时对象
-            BezierInterpolatorWrapper bezierInterpolator = isCacheHit((float) x1,(float) y1,(float) x2,(float) y2);
-            if(bezierInterpolator == null) {
-                bezierInterpolator = new BezierInterpolatorWrapper((float) x1,(float) y1,(float) x2,(float) y2);
-                cache.add(bezierInterpolator);
-            }
-
-            float input = (float) (t / d);
-            return c * bezierInterpolator.getInterpolation(input) + b;
-
+            return c * CubicBezier.obtain((float) x1, (float) y1, (float) x2, (float) y2).solve(t / d) + b;
         }
     };
 
-    private static final InnerCache<BezierInterpolatorWrapper> cache = new InnerCache<>(4);
-
-    @Nullable
-    private static BezierInterpolatorWrapper isCacheHit(float x1, float y1, float x2, float y2) {
-        Deque<BezierInterpolatorWrapper> deque = cache.getAll();
-        for(BezierInterpolatorWrapper bezier : deque) {
-            if(Float.compare(bezier.x1,x1)==0 && Float.compare(bezier.x2,x2) ==0
-                    && Float.compare(bezier.y1, y1)==0 && Float.compare(bezier.y2,y2)==0) {
-                return bezier;
-            }
-        }
-
-        return null;
-    }
-
-
-    private static Object easeInQuad = new JSFunctionInterface() {
+    private static Object easeInQuad = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return c*(t/=d)*t + b;
         }
     };
 
-    private static Object easeOutQuad = new JSFunctionInterface() {
+    private static Object easeOutQuad = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return -c *(t/=d)*(t-2) + b;
         }
     };
 
-    private static Object easeInOutQuad = new JSFunctionInterface() {
+    private static Object easeInOutQuad = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             if ((t/=d/2) < 1) {
@@ -181,39 +210,27 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeInCubic = new JSFunctionInterface() {
+    private static Object easeInCubic = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return c*(t/=d)*t*t + b;
         }
     };
 
-    private static Object easeOutCubic = new JSFunctionInterface() {
+    private static Object easeOutCubic = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return c*((t=t/d-1)*t*t + 1) + b;
         }
     };
 
-    private static Object easeInOutCubic = new JSFunctionInterface() {
+    private static Object easeInOutCubic = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             if ((t/=d/2) < 1) {
@@ -223,39 +240,27 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeInQuart = new JSFunctionInterface() {
+    private static Object easeInQuart = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return c*(t/=d)*t*t*t + b;
         }
     };
 
-    private static Object easeOutQuart = new JSFunctionInterface() {
+    private static Object easeOutQuart = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return -c * ((t=t/d-1)*t*t*t - 1) + b;
         }
     };
 
-    private static Object easeInOutQuart = new JSFunctionInterface() {
+    private static Object easeInOutQuart = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             if ((t/=d/2) < 1) {
@@ -265,39 +270,27 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeInQuint = new JSFunctionInterface() {
+    private static Object easeInQuint = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return c*(t/=d)*t*t*t*t + b;
         }
     };
 
-    private static Object easeOutQuint = new JSFunctionInterface() {
+    private static Object easeOutQuint = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return c*((t=t/d-1)*t*t*t*t + 1) + b;
         }
     };
 
-    private static Object easeInOutQuint = new JSFunctionInterface() {
+    private static Object easeInOutQuint = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             if ((t/=d/2) < 1) {
@@ -307,78 +300,54 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeInSine = new JSFunctionInterface() {
+    private static Object easeInSine = new Easing() {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double ease(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return -c * Math.cos(t/d * (Math.PI/2)) + c + b;
         }
     };
 
-    private static Object easeOutSine = new JSFunctionInterface() {
+    private static Object easeOutSine = new Easing() {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double ease(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return c * Math.sin(t/d * (Math.PI/2)) + b;
         }
     };
 
-    private static Object easeInOutSine = new JSFunctionInterface() {
+    private static Object easeInOutSine = new Easing() {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double ease(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return -c/2 * (Math.cos(Math.PI*t/d) - 1) + b;
         }
     };
 
-    private static Object easeInExpo = new JSFunctionInterface() {
+    private static Object easeInExpo = new Easing() {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double ease(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return (t==0) ? b : c * Math.pow(2, 10 * (t/d - 1)) + b;
         }
     };
 
-    private static Object easeOutExpo = new JSFunctionInterface() {
+    private static Object easeOutExpo = new Easing() {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double ease(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return (t==d) ? b+c : c * (-Math.pow(2, -10 * t/d) + 1) + b;
         }
     };
 
-    private static Object easeInOutExpo = new JSFunctionInterface() {
+    private static Object easeInOutExpo = new Easing() {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double ease(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             if (t==0) {
@@ -394,39 +363,27 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeInCirc = new JSFunctionInterface() {
+    private static Object easeInCirc = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return -c * (Math.sqrt(1 - (t/=d)*t) - 1) + b;
         }
     };
 
-    private static Object easeOutCirc = new JSFunctionInterface() {
+    private static Object easeOutCirc = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return c * Math.sqrt(1 - (t=t/d-1)*t) + b;
         }
     };
 
-    private static Object easeInOutCirc = new JSFunctionInterface() {
+    private static Object easeInOutCirc = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             if ((t/=d/2) < 1) {
@@ -437,13 +394,9 @@ class TimingFunctions {
     };
 
 
-    private static Object easeInElastic = new JSFunctionInterface() {
+    private static Object easeInElastic = new Easing() {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double ease(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             double s;
@@ -466,12 +419,9 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeOutElastic = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+    private static Object easeOutElastic = new Easing() {
+        @Override
+        double ease(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             double s;
@@ -494,12 +444,9 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeInOutElastic = new JSFunctionInterface() {
-        public Object execute(ArrayList<Object> arguments) {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+    private static Object easeInOutElastic = new Easing() {
+        @Override
+        double ease(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             double s;
@@ -525,13 +472,9 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeInBack = new JSFunctionInterface() {
+    private static Object easeInBack = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             double s = 1.70158;
@@ -539,13 +482,9 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeOutBack = new JSFunctionInterface() {
+    private static Object easeOutBack = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             double s = 1.70158;
@@ -553,13 +492,9 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeInOutBack = new JSFunctionInterface() {
+    private static Object easeInOutBack = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             double s = 1.70158;
@@ -570,39 +505,27 @@ class TimingFunctions {
         }
     };
 
-    private static Object easeInBounce = new JSFunctionInterface() {
+    private static Object easeInBounce = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return easeInBounce(t,b,c,d);
         }
     };
 
-    private static Object easeOutBounce = new JSFunctionInterface() {
+    private static Object easeOutBounce = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             return easeOutBounce(t,b,c,d);
         }
     };
 
-    private static Object easeInOutBounce = new JSFunctionInterface() {
+    private static Object easeInOutBounce = new NativeFunction(4) {
         @Override
-        public Object execute(ArrayList<Object> arguments) throws NumberFormatException, JSONException {
-            double t = (double) arguments.get(0);
-            double b = (double) arguments.get(1);
-            double c = (double) arguments.get(2);
-            double d = (double) arguments.get(3);
+        double call4(double t, double b, double c, double d) {
             t = Math.min(t,d);
 
             if (t < d/2) {
@@ -628,45 +551,4 @@ class TimingFunctions {
         }
     }
 
-
-    private static class InnerCache<T> {
-        private final ArrayDeque<T> deque;
-
-        InnerCache(int size) {
-            deque = new ArrayDeque<>(size);
-        }
-
-        void add(T t) {
-            if(deque.size() >= 4) {
-                deque.removeFirst();
-                deque.addLast(t);
-            } else {
-                deque.addLast(t);
-            }
-        }
-
-        Deque<T> getAll() {
-            return deque;
-        }
-    }
-
-    private static class BezierInterpolatorWrapper implements Interpolator{
-
-        float x1,y1,x2,y2;
-        private Interpolator mInnerInterpolator;
-        BezierInterpolatorWrapper(float x1,float y1, float x2, float y2) {
-            this.x1 = x1;
-            this.y1 = y1;
-            this.x2 = x2;
-            this.y2 = y2;
-            mInnerInterpolator = PathInterpolatorCompat.create(x1,y1,x2,y2);
-        }
-
-        @Override
-        public float getInterpolation(float input) {
-            return mInnerInterpolator.getInterpolation(input);
-        }
-
-    }
-
 }
@@ -18,10 +18,13 @@ package com.alibaba.android.bindingx.core.internal;
 import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
 import android.text.TextUtils;
 import android.util.Pair;
 import android.view.View;
 
+import com.alibaba.android.bindingx.core.BindingXCore;
+import com.alibaba.android.bindingx.core.ExpressionFunction;
 import com.alibaba.android.bindingx.core.LogProxy;
 
 import org.json.JSONArray;
@@ -40,6 +43,14 @@ public final class Utils {
 
     private Utils(){}
 
+    /**
+     * only for {@link BindingXCore#registerFunction(String, ExpressionFunction)}, which is the API to register functions.
+     * */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public static boolean registerFunction(@NonNull String name, @NonNull ExpressionFunction function) {
+        return Builtins.register(name, function);
+    }
+
     public static Map<String, Object> toMap(JSONObject object) throws JSONException {
         if(object == null) {
             return Collections.emptyMap();
@@ -110,10 +121,16 @@ public final class Utils {
         if(value == null) {
             return null;
         } else if(value instanceof String) {
-            // old fashion
+            // old fashion, or the binary form(see ExpressionDecoder) which is compiled without json
             return ExpressionPair.create(null, (String) value);
         } else if(value instanceof Map) {
             Map map = (Map) value;
+            Object binary = map.get(BindingXConstants.KEY_TRANSFORMED);
+            if(binary instanceof String && ExpressionDecoder.isBinary((String) binary)) {
+                // nothing to convert, the binary form is decoded when it is compiled
+                Object origin = map.get(BindingXConstants.KEY_ORIGIN);
+                return ExpressionPair.create(origin instanceof String ? (String) origin : null, (String) binary);
+            }
             JSONObject jsonObject = null;
             try {
                 jsonObject = new JSONObject(map);
@@ -124,6 +141,7 @@ public final class Utils {
                 return ExpressionPair.create(null, null);
             }
             String origin = jsonObject.optString(BindingXConstants.KEY_ORIGIN,null);
+            // the json syntax tree, or its binary form
             String transformed = jsonObject.optString(BindingXConstants.KEY_TRANSFORMED,null);
             if(TextUtils.isEmpty(origin) && TextUtils.isEmpty(transformed)) {
                 return ExpressionPair.create(null, null);
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+/**
+ * Description:
+ *
+ * Two numbers, the result of {@code translate(x,y)}, {@code scale(x,y)} and {@code asArray(x,y)}.
+ *
+ */
+public final class Vec2 extends VectorValue {
+
+    public double x;
+    public double y;
+
+    Vec2() {
+    }
+
+    @Override
+    public double component(int index) {
+        switch (index) {
+            case 0:
+                return x;
+            case 1:
+                return y;
+            default:
+                throw new IndexOutOfBoundsException("index " + index + " of Vec2");
+        }
+    }
+
+    @Override
+    void setComponent(int index, double value) {
+        switch (index) {
+            case 0:
+                x = value;
+                break;
+            case 1:
+                y = value;
+                break;
+            default:
+                throw new IndexOutOfBoundsException("index " + index + " of Vec2");
+        }
+    }
+
+    @Override
+    VectorValue newInstance() {
+        return new Vec2();
+    }
+
+    @Override
+    public int size() {
+        return 2;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+/**
+ * Description:
+ *
+ * Four numbers, the result of {@code asArray(x,y,z,w)}, e.g. border radii in the order
+ * top-left, top-right, bottom-left, bottom-right.
+ *
+ */
+public final class Vec4 extends VectorValue {
+
+    public double x;
+    public double y;
+    public double z;
+    public double w;
+
+    Vec4() {
+    }
+
+    @Override
+    public double component(int index) {
+        switch (index) {
+            case 0:
+                return x;
+            case 1:
+                return y;
+            case 2:
+                return z;
+            case 3:
+                return w;
+            default:
+                throw new IndexOutOfBoundsException("index " + index + " of Vec4");
+        }
+    }
+
+    @Override
+    void setComponent(int index, double value) {
+        switch (index) {
+            case 0:
+                x = value;
+                break;
+            case 1:
+                y = value;
+                break;
+            case 2:
+                z = value;
+                break;
+            case 3:
+                w = value;
+                break;
+            default:
+                throw new IndexOutOfBoundsException("index " + index + " of Vec4");
+        }
+    }
+
+    @Override
+    VectorValue newInstance() {
+        return new Vec4();
+    }
+
+    @Override
+    public int size() {
+        return 4;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * Description:
+ *
+ * A function that packs its numeric arguments into a {@link VectorValue}. Evaluators that know the
+ * arguments are numbers write them into the value directly, see {@link ExpressionNode.Call}, and may
+ * pass in a value of an earlier frame to be reused.
+ *
+ * Calls that are not {@link #accepts(int) accepted} or that have non numeric arguments return
+ * {@link #fallback(ArrayList)} instead.
+ *
+ */
+abstract class VectorFunction implements JSFunctionInterface {
+
+    /**
+     * @return true if a call with {@code count} numeric arguments produces a {@link VectorValue}.
+     * */
+    abstract boolean accepts(int count);
+
+    /**
+     * @param count number of arguments, which is accepted
+     * @param reuse a value that may be returned if it has the right type
+     * @return the value to write the arguments into. Arguments beyond its size are ignored.
+     * */
+    @NonNull
+    abstract VectorValue obtainValue(int count, @Nullable VectorValue reuse);
+
+    abstract Object fallback(ArrayList<Object> arguments);
+
+    @Override
+    public Object execute(ArrayList<Object> arguments) {
+        if (arguments == null || !accepts(arguments.size())) {
+            return fallback(arguments);
+        }
+        for (Object argument : arguments) {
+            if (!(argument instanceof Double)) {
+                return fallback(arguments);
+            }
+        }
+        VectorValue value = obtainValue(arguments.size(), null);
+        for (int i = 0, size = value.size(); i < size; i++) {
+            value.setComponent(i, (double) arguments.get(i));
+        }
+        return value;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import java.util.AbstractList;
+
+/**
+ * Description:
+ *
+ * A fixed size numeric result of an expression like {@code translate(x,y)} or {@code matrix(a,b,c,d,tx,ty)}.
+ * Components are kept as primitive doubles. It is also a read-only {@link java.util.List} of {@link Double},
+ * like the {@link java.util.ArrayList} that these functions used to return.
+ *
+ * Handlers reuse their values between frames of the same binding, but view updaters only get copies.
+ * A value passed to {@link com.alibaba.android.bindingx.core.PlatformManager.IViewUpdater} is never modified
+ * afterwards, and one read from a {@link com.alibaba.android.bindingx.core.PlatformManager.IViewUpdate} does not
+ * change while the update is applied.
+ *
+ */
+public abstract class VectorValue extends AbstractList<Object> {
+
+    VectorValue() {
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if {@code index} is not less than {@link #size()}
+     * */
+    public abstract double component(int index);
+
+    abstract void setComponent(int index, double value);
+
+    /**
+     * @return a new value of the same type
+     * */
+    abstract VectorValue newInstance();
+
+    /**
+     * @return {@code reuse} with the components of this value, or a new value if {@code reuse} is not of the same type
+     * */
+    VectorValue copyInto(VectorValue reuse) {
+        VectorValue copy = reuse != null && reuse.getClass() == getClass() ? reuse : newInstance();
+        for (int i = 0, size = size(); i < size; i++) {
+            copy.setComponent(i, component(i));
+        }
+        return copy;
+    }
+
+    @Override
+    public Object get(int index) {
+        return component(index);
+    }
+
+    /**
+     * @return true if {@code other} is of the same type and every component differs by no more than {@code epsilon}
+     * */
+    boolean isCloseTo(VectorValue other, double epsilon) {
+        if (other.getClass() != getClass()) {
+            return false;
+        }
+        for (int i = 0, size = size(); i < size; i++) {
+            double a = component(i);
+            double b = other.component(i);
+            if (a != b && !(Math.abs(a - b) <= epsilon)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import android.support.annotation.NonNull;
+
+import com.alibaba.android.bindingx.core.PlatformManager;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Description:
+ *
+ * The properties that have changed on one view and wait to be applied, see
+ * {@link PlatformManager.IBatchViewUpdater}. A record belongs to one target view and is reused
+ * for all of its updates.
+ *
+ * Handlers write properties into a pending buffer. When a frame is committed(see {@link FrameCommitter}),
+ * {@link #takeUpdates()} swaps it with the buffer that is read on the UI thread, so writing the next
+ * event never has to wait for a view to be updated. A property written twice before it is applied
+ * only keeps the latest value.
+ *
+ * Handlers reuse their {@link VectorValue}s from frame to frame, so the components of a vector are
+ * copied into a value that belongs to the buffer when it is written. A value read on the UI thread is
+ * never modified by a handler.
+ *
+ */
+final class ViewUpdate implements PlatformManager.IViewUpdate {
+
+    private final String mTargetRef;
+    private final String mInstanceId;
+
+    // written by handlers, guarded by this
+    private String[] mPendingProperties = new String[4];
+    private Object[] mPendingValues = new Object[4];
+    // configurations are Map<String, Object>, kept as Object so the arrays need no raw type
+    private Object[] mPendingConfigs = new Object[4];
+    // copies of vector values, reused by the buffer
+    private VectorValue[] mPendingVectors = new VectorValue[4];
+    private int mPendingCount;
+    private boolean mScheduled;
+
+    // swapped in by takeUpdates, only read on the UI thread
+    private String[] mProperties = new String[4];
+    private Object[] mValues = new Object[4];
+    private Object[] mConfigs = new Object[4];
+    private VectorValue[] mVectors = new VectorValue[4];
+    private int mCount;
+
+    ViewUpdate(String targetRef, String instanceId) {
+        this.mTargetRef = targetRef;
+        this.mInstanceId = instanceId;
+    }
+
+    @Override
+    public String getTargetRef() {
+        return mTargetRef;
+    }
+
+    @Override
+    public String getInstanceId() {
+        return mInstanceId;
+    }
+
+    synchronized void put(@NonNull String property, @NonNull Object value, @NonNull Map<String, Object> config) {
+        for (int i = 0; i < mPendingCount; i++) {
+            String pending = mPendingProperties[i];
+            if (pending == property || pending.equals(property)) {
+                mPendingValues[i] = own(i, value);
+                mPendingConfigs[i] = config;
+                return;
+            }
+        }
+        if (mPendingCount == mPendingProperties.length) {
+            int capacity = mPendingCount * 2;
+            mPendingProperties = Arrays.copyOf(mPendingProperties, capacity);
+            mPendingValues = Arrays.copyOf(mPendingValues, capacity);
+            mPendingConfigs = Arrays.copyOf(mPendingConfigs, capacity);
+            mPendingVectors = Arrays.copyOf(mPendingVectors, capacity);
+        }
+        mPendingProperties[mPendingCount] = property;
+        mPendingValues[mPendingCount] = own(mPendingCount, value);
+        mPendingConfigs[mPendingCount] = config;
+        mPendingCount++;
+    }
+
+    private Object own(int index, Object value) {
+        if (!(value instanceof VectorValue)) {
+            return value;
+        }
+        VectorValue copy = ((VectorValue) value).copyInto(mPendingVectors[index]);
+        mPendingVectors[index] = copy;
+        return copy;
+    }
+
+    /**
+     * @return true if there are pending properties and no dispatch that will apply them, in which
+     * case the caller has to dispatch this update.
+     * */
+    synchronized boolean schedule() {
+        if (mScheduled || mPendingCount == 0) {
+            return false;
+        }
+        mScheduled = true;
+        return true;
+    }
+
+    /**
+     * take the pending properties, which can then be read by {@link #propertyAt(int)}, {@link #valueAt(int)}
+     * and {@link #configAt(int)}. Called on the UI thread, once per commit.
+     *
+     * @return the number of properties
+     * */
+    synchronized int takeUpdates() {
+        // forget the values that have been applied last time
+        Arrays.fill(mValues, 0, mCount, null);
+        Arrays.fill(mConfigs, 0, mCount, null);
+
+        String[] properties = mProperties;
+        Object[] values = mValues;
+        Object[] configs = mConfigs;
+        VectorValue[] vectors = mVectors;
+        mProperties = mPendingProperties;
+        mValues = mPendingValues;
+        mConfigs = mPendingConfigs;
+        mVectors = mPendingVectors;
+        mCount = mPendingCount;
+        mPendingProperties = properties;
+        mPendingValues = values;
+        mPendingConfigs = configs;
+        mPendingVectors = vectors;
+        mPendingCount = 0;
+        mScheduled = false;
+        return mCount;
+    }
+
+    @Override
+    public int size() {
+        return mCount;
+    }
+
+    @NonNull
+    @Override
+    public String propertyAt(int index) {
+        return mProperties[index];
+    }
+
+    @NonNull
+    @Override
+    public Object valueAt(int index) {
+        return mValues[index];
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, Object> configAt(int index) {
+        return (Map<String, Object>) mConfigs[index];
+    }
+}
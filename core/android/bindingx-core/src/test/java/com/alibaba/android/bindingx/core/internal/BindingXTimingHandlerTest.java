@@ -15,8 +15,12 @@
  */
 package com.alibaba.android.bindingx.core.internal;
 
+import android.os.IBinder;
+import android.view.View;
+
 import com.alibaba.android.bindingx.core.BindingXCore;
 import com.alibaba.android.bindingx.core.BindingXEventType;
+import com.alibaba.android.bindingx.core.ExpressionFunction;
 import com.alibaba.android.bindingx.core.PlatformManager;
 
 import org.junit.After;
@@ -24,6 +28,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
@@ -31,13 +36,29 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 @RunWith(RobolectricTestRunner.class)
 public class BindingXTimingHandlerTest {
@@ -48,6 +69,12 @@ public class BindingXTimingHandlerTest {
     @Mock
     PlatformManager mPlatformManager;
 
+    @Mock
+    PlatformManager.IViewFinder mViewFinder;
+
+    @Mock
+    View mView;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -65,6 +92,7 @@ public class BindingXTimingHandlerTest {
     @After
     public void tearDown() throws Exception {
         mFakeTimingHandler = null;
+        Builtins.reset();
     }
 
     @Test
@@ -99,6 +127,330 @@ public class BindingXTimingHandlerTest {
         verify(callback,times(2)).callback(any(Object.class));
     }
 
+    @Test
+    public void skipUnchangedUpdates() throws Exception {
+        PlatformManager.IViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IViewUpdater.class);
+
+        // min(t,100)
+        Map<String, Object> arg = binding("_ref", "opacity", null);
+        arg.put(BindingXConstants.KEY_INSTANCE_ID, "_instance");
+        arg.put(BindingXConstants.KEY_EXPRESSION,
+                "{\"type\":\"CallExpression\",\"children\":[{\"type\":\"Identifier\",\"value\":\"min\"},{\"type\":\"Arguments\",\"children\":[{\"type\":\"Identifier\",\"value\":\"t\"},{\"type\":\"NumericLiteral\",\"value\":100}]}]}");
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(BindingXConstants.KEY_UPDATE_EPSILON, 0.5);
+        mFakeTimingHandler.onBindExpression(BindingXEventType.TYPE_TIMING, config, null, Collections.singletonList(arg), null);
+
+        double[] frames = {50, 150, 200, 300};
+        for (double t : frames) {
+            consumeAt(t);
+        }
+        // 50 and 100, the value is clamped afterwards
+        verify(viewUpdater, times(2)).synchronouslyUpdateViewOnUIThread(any(View.class), anyString(), any(),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), anyString(), any(String.class));
+
+        assertTrue(AbstractEventHandler.isSameValue(1.0, 1.4, 0.5));
+        assertFalse(AbstractEventHandler.isSameValue(1.0, 1.6, 0.5));
+        assertFalse(AbstractEventHandler.isSameValue(1.0, null, 0.5));
+        assertTrue(AbstractEventHandler.isSameValue("#ff0000", "#ff0000", 0));
+    }
+
+    @Test
+    public void skipUnsetVariables() throws Exception {
+        PlatformManager.IViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IViewUpdater.class);
+        // x is never set by the timing handler
+        bind(Arrays.asList(binding("_ref0", "opacity", "x"), binding("_ref1", "opacity", "x + 1"),
+                binding("_ref2", "opacity", "t")));
+
+        consumeAt(10);
+        // only the properties that read x are skipped
+        verify(viewUpdater).synchronouslyUpdateViewOnUIThread(any(View.class), anyString(), eq((Object) 10.0),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref2"), (String) isNull());
+        verifyNoMoreInteractions(viewUpdater);
+    }
+
+    @Test
+    public void retryFailedEvaluations() throws Exception {
+        PlatformManager.IViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IViewUpdater.class);
+        final int[] calls = new int[1];
+        // fails the first time it is called
+        BindingXCore.registerFunction("flaky", new ExpressionFunction(1, true) {
+            @Override
+            public double call(double a) {
+                if (calls[0]++ == 0) {
+                    throw new IllegalStateException("not ready");
+                }
+                return a;
+            }
+
+            @Override
+            public double call(double[] args) {
+                return call(args[0]);
+            }
+        });
+        bind(Collections.singletonList(binding("_ref", "opacity", "flaky(t)")));
+
+        consumeAt(10);
+        verify(viewUpdater, never()).synchronouslyUpdateViewOnUIThread(any(View.class), anyString(), any(),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), anyString(), any());
+        // t has not changed, but the last evaluation failed
+        consumeAt(10);
+        verify(viewUpdater).synchronouslyUpdateViewOnUIThread(any(View.class), anyString(), eq((Object) 10.0),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref"), (String) isNull());
+        consumeAt(10);
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void evaluateImpureFunctions() throws Exception {
+        PlatformManager.IViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IViewUpdater.class);
+
+        final int[] ticks = new int[1];
+        BindingXCore.registerFunction("tick", new ExpressionFunction(1, false) {
+            @Override
+            public double call(double a) {
+                return a + ++ticks[0];
+            }
+
+            @Override
+            public double call(double[] args) {
+                return call(args[0]);
+            }
+        });
+        bind(Collections.singletonList(binding("_ref", "opacity", "tick(t)")));
+
+        // t does not change, but the result of tick does
+        for (int i = 0; i < 3; i++) {
+            consumeAt(10);
+        }
+        assertEquals(3, ticks[0]);
+        verify(viewUpdater).synchronouslyUpdateViewOnUIThread(any(View.class), anyString(), eq((Object) 13.0),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), anyString(), any());
+    }
+
+    @Test
+    public void bindBatch() throws Exception {
+        PlatformManager.IViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IViewUpdater.class);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("i", Arrays.asList(0, 1, 2));
+        Map<String, Object> arg = binding(Arrays.asList("_ref0", "_ref1", "_ref2"), "transform.translateY", "max(t - i * 100, 0)");
+        arg.put(BindingXConstants.KEY_PARAMS, params);
+        bind(Collections.singletonList(arg));
+
+        assertEquals(3, mFakeTimingHandler.mExpressionHoldersMap.size());
+        ExpressionHolder holder = mFakeTimingHandler.mExpressionHoldersMap.get("_ref1").get(0);
+        assertNotNull(holder.batch);
+        assertEquals(1, holder.lane);
+
+        consumeAt(150);
+        verify(viewUpdater).synchronouslyUpdateViewOnUIThread(any(View.class), anyString(), eq((Object) 150.0),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref0"), any(String.class));
+        verify(viewUpdater).synchronouslyUpdateViewOnUIThread(any(View.class), anyString(), eq((Object) 50.0),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref1"), any(String.class));
+        verify(viewUpdater).synchronouslyUpdateViewOnUIThread(any(View.class), anyString(), eq((Object) 0.0),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref2"), any(String.class));
+
+        // params must have a value for every element
+        params.put("i", Arrays.asList(0, 1));
+        bind(Collections.singletonList(arg));
+        assertTrue(mFakeTimingHandler.mExpressionHoldersMap.isEmpty());
+    }
+
+    @Test
+    public void consumeBindingProgram() throws Exception {
+        PlatformManager.IViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IViewUpdater.class);
+
+        Map<String, Object> withInstance = binding("_ref1", "opacity", "t / 100");
+        withInstance.put(BindingXConstants.KEY_INSTANCE_ID, "_instance");
+        bind(Arrays.asList(binding("_ref0", "opacity", "t / 100"), withInstance));
+
+        // bound after the program has been compiled, and for another event type
+        ExpressionHolder pan = new ExpressionHolder("_ref2", null, ExpressionPair.create("t", null), "opacity",
+                BindingXEventType.TYPE_PAN, null);
+        pan.expression = ExpressionCache.getInstance().obtain(ExpressionPair.create("t", null));
+        mFakeTimingHandler.mExpressionHoldersMap.put("_ref2", Collections.singletonList(pan));
+
+        consumeAt(50);
+        verify(viewUpdater).synchronouslyUpdateViewOnUIThread(any(View.class), eq("opacity"), eq((Object) 0.5),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref0"), (String) isNull());
+        verify(viewUpdater).synchronouslyUpdateViewOnUIThread(any(View.class), eq("opacity"), eq((Object) 0.5),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref1"), eq("_instance"));
+        verify(viewUpdater, never()).synchronouslyUpdateViewOnUIThread(any(View.class), anyString(), any(),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref2"), any(String.class));
+
+        // clearing the expressions drops the program
+        mFakeTimingHandler.clearExpressions();
+        mFakeTimingHandler.consumeExpression(mFakeTimingHandler.mExpressionHoldersMap, mFakeTimingHandler.mScope, BindingXEventType.TYPE_TIMING);
+        verifyNoMoreInteractions(viewUpdater);
+    }
+
+    @Test
+    public void cacheTargetViews() throws Exception {
+        PlatformManager.IViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IViewUpdater.class);
+        bind(Arrays.asList(binding("_ref", "opacity", "t"), binding("_ref", "transform.translateX", "t")));
+
+        for (double t : new double[]{10, 20, 30}) {
+            consumeAt(t);
+        }
+        // both holders share the view, which is found once
+        verify(mViewFinder, times(1)).findViewBy(anyString(), any());
+        verify(viewUpdater, times(6)).synchronouslyUpdateViewOnUIThread(eq(mView), anyString(), any(),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref"), (String) isNull());
+
+        // a detached view is found again
+        ExpressionHolder holder = mFakeTimingHandler.mExpressionHoldersMap.get("_ref").get(0);
+        holder.target.onViewDetachedFromWindow(mView);
+        consumeAt(40);
+        verify(mViewFinder, times(2)).findViewBy(anyString(), any());
+        verify(mView).removeOnAttachStateChangeListener(holder.target);
+
+        // a view that is found again is updated, even if the values have not changed
+        holder.target.onViewDetachedFromWindow(mView);
+        consumeAt(40);
+        verify(mViewFinder, times(3)).findViewBy(anyString(), any());
+        verify(viewUpdater, times(4)).synchronouslyUpdateViewOnUIThread(eq(mView), anyString(), eq((Object) 40.0),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref"), (String) isNull());
+        consumeAt(40);
+        verify(viewUpdater, times(4)).synchronouslyUpdateViewOnUIThread(eq(mView), anyString(), eq((Object) 40.0),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref"), (String) isNull());
+
+        mFakeTimingHandler.onDestroy();
+        verify(mView, times(3)).removeOnAttachStateChangeListener(holder.target);
+    }
+
+    @Test
+    public void findViewsUntilAttached() throws Exception {
+        PlatformManager.IViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IViewUpdater.class);
+        when(mView.getWindowToken()).thenReturn(null);
+        bind(Collections.singletonList(binding("_ref", "opacity", "t")));
+
+        // a view that is not attached would never be detached, so it is not cached
+        consumeAt(10);
+        consumeAt(20);
+        verify(mViewFinder, times(2)).findViewBy(anyString(), any());
+        verify(mView, never()).addOnAttachStateChangeListener(any(View.OnAttachStateChangeListener.class));
+        verify(viewUpdater, times(2)).synchronouslyUpdateViewOnUIThread(eq(mView), anyString(), any(),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref"), (String) isNull());
+
+        // the same view is not updated again as long as the values do not change
+        consumeAt(20);
+        verify(viewUpdater, times(2)).synchronouslyUpdateViewOnUIThread(eq(mView), anyString(), any(),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref"), (String) isNull());
+
+        when(mView.getWindowToken()).thenReturn(mock(IBinder.class));
+        consumeAt(30);
+        consumeAt(40);
+        verify(mViewFinder, times(4)).findViewBy(anyString(), any());
+        verify(mView).addOnAttachStateChangeListener(any(View.OnAttachStateChangeListener.class));
+    }
+
+    @Test
+    public void coalesceViewUpdates() throws Exception {
+        PlatformManager.IBatchViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IBatchViewUpdater.class);
+        bind(Arrays.asList(binding("_ref", "opacity", "t"), binding("_ref", "transform.translateX", "t"),
+                binding("_ref", "transform.translateY", "t")));
+        FrameCommitter committer = new FrameCommitter(false);
+        mFakeTimingHandler.mFrameCommitter = committer;
+
+        consumeAt(10);
+        // the next event is merged into the update that has not been committed yet
+        consumeAt(20);
+        verify(viewUpdater, never()).applyUpdate(any(View.class), any(PlatformManager.IViewUpdate.class), any(PlatformManager.IDeviceResolutionTranslator.class));
+        verify(viewUpdater, never()).synchronouslyUpdateViewOnUIThread(any(View.class), anyString(), any(),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), any());
+
+        committer.commit();
+        ArgumentCaptor<PlatformManager.IViewUpdate> captor = ArgumentCaptor.forClass(PlatformManager.IViewUpdate.class);
+        verify(viewUpdater).applyUpdate(eq(mView), captor.capture(), any(PlatformManager.IDeviceResolutionTranslator.class));
+        PlatformManager.IViewUpdate update = captor.getValue();
+        assertEquals("_ref", update.getTargetRef());
+        assertEquals(3, update.size());
+        assertEquals("opacity", update.propertyAt(0));
+        assertEquals(20.0, update.valueAt(0));
+        assertEquals(20.0, update.valueAt(2));
+
+        consumeAt(30);
+        committer.commit();
+        verify(viewUpdater, times(2)).applyUpdate(eq(mView), eq(update), any(PlatformManager.IDeviceResolutionTranslator.class));
+        assertEquals(30.0, update.valueAt(1));
+
+        // nothing is staged
+        committer.commit();
+        verify(viewUpdater, times(2)).applyUpdate(any(View.class), any(PlatformManager.IViewUpdate.class), any(PlatformManager.IDeviceResolutionTranslator.class));
+    }
+
+    @Test
+    public void isolateVectorResults() throws Exception {
+        PlatformManager.IViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IViewUpdater.class);
+        bind(Collections.singletonList(binding("_ref", "transform.translate", "translate(t, t * 2)")));
+
+        // updaters may post values, the holder evaluates into its own values meanwhile
+        for (double t : new double[]{10, 20, 30}) {
+            consumeAt(t);
+        }
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(viewUpdater, times(3)).synchronouslyUpdateViewOnUIThread(eq(mView), eq("transform.translate"), captor.capture(),
+                any(PlatformManager.IDeviceResolutionTranslator.class), anyMap(), eq("_ref"), (String) isNull());
+        List<Object> values = captor.getAllValues();
+        ExpressionHolder holder = mFakeTimingHandler.mExpressionHoldersMap.get("_ref").get(0);
+        for (int i = 0; i < 3; i++) {
+            Vec2 value = (Vec2) values.get(i);
+            assertEquals((i + 1) * 10.0, value.x, 0);
+            assertEquals((i + 1) * 20.0, value.y, 0);
+            assertTrue(value != holder.vectors[0] && value != holder.vectors[1]);
+        }
+    }
+
+    @Test
+    public void isolateStagedVectors() throws Exception {
+        PlatformManager.IBatchViewUpdater viewUpdater = mockViewUpdater(PlatformManager.IBatchViewUpdater.class);
+        bind(Collections.singletonList(binding("_ref", "transform.translate", "translate(t, t * 2)")));
+        FrameCommitter committer = new FrameCommitter(false);
+        mFakeTimingHandler.mFrameCommitter = committer;
+
+        consumeAt(10);
+        committer.commit();
+        ArgumentCaptor<PlatformManager.IViewUpdate> captor = ArgumentCaptor.forClass(PlatformManager.IViewUpdate.class);
+        verify(viewUpdater).applyUpdate(eq(mView), captor.capture(), any(PlatformManager.IDeviceResolutionTranslator.class));
+        Vec2 first = (Vec2) captor.getValue().valueAt(0);
+
+        // two frames are staged before the next commit, the holder reuses both of its values
+        consumeAt(20);
+        consumeAt(30);
+        assertEquals(10.0, first.x, 0);
+        assertEquals(20.0, first.y, 0);
+        committer.commit();
+        verify(viewUpdater, times(2)).applyUpdate(eq(mView), captor.capture(), any(PlatformManager.IDeviceResolutionTranslator.class));
+        Vec2 second = (Vec2) captor.getValue().valueAt(0);
+        assertEquals(30.0, second.x, 0);
+        assertEquals(60.0, second.y, 0);
+        ExpressionHolder holder = mFakeTimingHandler.mExpressionHoldersMap.get("_ref").get(0);
+        assertTrue(second != holder.vectors[0] && second != holder.vectors[1]);
+    }
+
+    @Test
+    public void copyVectorValues() throws Exception {
+        ViewUpdate update = new ViewUpdate("_ref", null);
+        Vec2 value = new Vec2();
+        value.x = 1;
+        value.y = 2;
+        update.put("transform.translate", value, Collections.<String, Object>emptyMap());
+        // handlers reuse their values in the next frame
+        value.x = 3;
+        assertEquals(1, update.takeUpdates());
+        Vec2 applied = (Vec2) update.valueAt(0);
+        assertEquals(1.0, applied.x, 0);
+
+        update.put("transform.translate", value, Collections.<String, Object>emptyMap());
+        value.x = 5;
+        // the values being applied are not touched by the next put
+        assertEquals(1.0, applied.x, 0);
+        assertEquals(1, update.takeUpdates());
+        assertEquals(3.0, ((Vec2) update.valueAt(0)).x, 0);
+        assertEquals(2.0, ((Vec2) update.valueAt(0)).y, 0);
+    }
+
     @Test
     public void onDestroy() throws Exception {
         mFakeTimingHandler.onDestroy();
@@ -124,4 +476,66 @@ public class BindingXTimingHandlerTest {
         verify(callback,times(2)).callback(any(Object.class));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void evaluateExitExpression() throws Exception {
+        BindingXCore.JavaScriptCallback callback = mock(BindingXCore.JavaScriptCallback.class);
+        mFakeTimingHandler.onBindExpression(
+                BindingXEventType.TYPE_TIMING,
+                new HashMap<String, Object>(),
+                ExpressionPair.create("t >= 100", null),
+                new ArrayList<Map<String, Object>>(),
+                callback
+        );
+
+        JSMath.applyTimingValuesToScope(mFakeTimingHandler.mScope, 50);
+        assertFalse(mFakeTimingHandler.evaluateExitExpression(mFakeTimingHandler.mExitExpressionPair, mFakeTimingHandler.mScope));
+        JSMath.applyTimingValuesToScope(mFakeTimingHandler.mScope, 100);
+        assertTrue(mFakeTimingHandler.evaluateExitExpression(mFakeTimingHandler.mExitExpressionPair, mFakeTimingHandler.mScope));
+        // expressions are cleared after exit
+        assertNull(mFakeTimingHandler.mExitExpressionPair);
+
+        // a non boolean result never exits
+        mFakeTimingHandler.onBindExpression(
+                BindingXEventType.TYPE_TIMING,
+                new HashMap<String, Object>(),
+                ExpressionPair.create("t + 1", null),
+                new ArrayList<Map<String, Object>>(),
+                callback
+        );
+        assertFalse(mFakeTimingHandler.evaluateExitExpression(mFakeTimingHandler.mExitExpressionPair, mFakeTimingHandler.mScope));
+    }
+
+    /**
+     * every ref is found as {@link #mView}, which is updated by the returned mock.
+     * */
+    private <T extends PlatformManager.IViewUpdater> T mockViewUpdater(Class<T> type) {
+        T viewUpdater = mock(type);
+        when(mPlatformManager.getViewFinder()).thenReturn(mViewFinder);
+        when(mPlatformManager.getViewUpdater()).thenReturn(viewUpdater);
+        when(mPlatformManager.getResolutionTranslator()).thenReturn(mock(PlatformManager.IDeviceResolutionTranslator.class));
+        when(mViewFinder.findViewBy(anyString(), any())).thenReturn(mView);
+        // attached to a window
+        when(mView.getWindowToken()).thenReturn(mock(IBinder.class));
+        return viewUpdater;
+    }
+
+    private static Map<String, Object> binding(Object element, String property, String origin) {
+        Map<String, Object> arg = new HashMap<>();
+        arg.put(BindingXConstants.KEY_ELEMENT, element);
+        arg.put(BindingXConstants.KEY_PROPERTY, property);
+        Map<String, Object> expression = new HashMap<>();
+        expression.put(BindingXConstants.KEY_ORIGIN, origin);
+        arg.put(BindingXConstants.KEY_EXPRESSION, expression);
+        return arg;
+    }
+
+    private void bind(List<Map<String, Object>> args) {
+        mFakeTimingHandler.onBindExpression(BindingXEventType.TYPE_TIMING, null, null, args, null);
+    }
+
+    private void consumeAt(double t) throws Exception {
+        JSMath.applyTimingValuesToScope(mFakeTimingHandler.mScope, t);
+        mFakeTimingHandler.consumeExpression(mFakeTimingHandler.mExpressionHoldersMap, mFakeTimingHandler.mScope, BindingXEventType.TYPE_TIMING);
+    }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ExpressionCacheTest {
+
+    @Test
+    public void obtain() throws Exception {
+        ExpressionCache cache = new ExpressionCache(2, Long.MAX_VALUE);
+        Expression expression = cache.obtain(ExpressionPair.create("x+1", null));
+        assertSame(expression, cache.obtain(ExpressionPair.create("x+1", null)));
+        assertNotSame(expression, cache.obtain(ExpressionPair.create("x+2", null)));
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(2, cache.size());
+        assertTrue(cache.sizeInBytes() > 0);
+
+        // nothing to execute is not cached
+        assertNull(cache.obtain(ExpressionPair.create(null, "{}")));
+        assertEquals(2, cache.size());
+
+        // x+1 is the least recently used one
+        cache.obtain(ExpressionPair.create("x+2", null));
+        cache.obtain(ExpressionPair.create("x+3", null));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertNotSame(expression, cache.obtain(ExpressionPair.create("x+1", null)));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.sizeInBytes());
+    }
+
+    @Test
+    public void cacheFallbacks() throws Exception {
+        ExpressionCache cache = new ExpressionCache(10, Long.MAX_VALUE);
+        // the transformed expression is illegal, the origin is parsed instead
+        ExpressionPair fallback = ExpressionPair.create("x+y", "{\"type\":\"?\"}");
+        Expression expression = cache.obtain(fallback);
+        assertTrue(expression.isValid());
+        assertSame(expression, cache.obtain(fallback));
+
+        // neither is legal
+        ExpressionPair illegal = ExpressionPair.create("x +", "{\"type\":\"?\"}");
+        Expression invalid = cache.obtain(illegal);
+        assertTrue(invalid == null || !invalid.isValid());
+        assertSame(invalid, cache.obtain(illegal));
+        ExpressionPair illegalOrigin = ExpressionPair.create("max(x,", null);
+        assertNull(cache.obtain(illegalOrigin));
+        assertNull(cache.obtain(illegalOrigin));
+
+        assertEquals(3, cache.size());
+        assertEquals(3, cache.missCount());
+        assertEquals(3, cache.hitCount());
+    }
+
+    @Test
+    public void boundedByBytes() throws Exception {
+        ExpressionCache cache = new ExpressionCache(100, 1);
+        cache.obtain(ExpressionPair.create("x+1", null));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.sizeInBytes());
+        assertEquals(1, cache.evictionCount());
+    }
+}
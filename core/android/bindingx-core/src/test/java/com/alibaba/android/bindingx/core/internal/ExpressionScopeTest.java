@@ -0,0 +1,154 @@
+/**
+ * Copyright 2018 Alibaba Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.android.bindingx.core.internal;
+
+import com.alibaba.android.bindingx.core.PlatformManager;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExpressionScopeTest {
+
+    @Test
+    public void slots() throws Exception {
+        assertEquals(ExpressionScope.SLOT_X, ExpressionScope.slotOf("x"));
+        assertEquals(ExpressionScope.SLOT_T, ExpressionScope.slotOf("t"));
+
+        int slot = ExpressionScope.slotOf("_scope_test_var");
+        assertEquals(slot, ExpressionScope.slotOf("_scope_test_var"));
+        assertEquals(slot, ExpressionScope.findSlot("_scope_test_var"));
+        assertEquals(-1, ExpressionScope.findSlot("_scope_test_unknown"));
+    }
+
+    @Test
+    public void readAndWrite() throws Exception {
+        ExpressionScope scope = new ExpressionScope();
+        scope.setDouble(ExpressionScope.SLOT_X, 10);
+        assertEquals(10d, scope.getDouble(ExpressionScope.SLOT_X), 0);
+        assertEquals(10d, scope.get("x"));
+        assertTrue(scope.containsKey("x"));
+        assertFalse(scope.containsKey("y"));
+
+        scope.put("y", 20d);
+        assertEquals(20d, scope.getDouble(ExpressionScope.SLOT_Y), 0);
+
+        scope.put("name", "bindingx");
+        assertEquals("bindingx", scope.get("name"));
+        assertEquals(3, scope.size());
+
+        Map<String, Object> copy = new HashMap<>(scope);
+        assertEquals(20d, copy.get("y"));
+
+        scope.clear();
+        assertTrue(scope.isEmpty());
+        assertNull(scope.get("x"));
+    }
+
+    @Test
+    public void trackChanges() throws Exception {
+        ExpressionScope scope = new ExpressionScope();
+        scope.setDouble(ExpressionScope.SLOT_X, 1);
+        scope.setDouble(ExpressionScope.SLOT_Y, 2);
+        long version = scope.version();
+
+        int[] dependsOnX = {ExpressionScope.SLOT_X};
+        int[] dependsOnY = {ExpressionScope.SLOT_Y};
+        assertFalse(scope.changedSince(dependsOnX, version));
+
+        // same value is not a change
+        scope.setDouble(ExpressionScope.SLOT_X, 1);
+        assertFalse(scope.changedSince(dependsOnX, version));
+        assertEquals(version, scope.version());
+
+        scope.setDouble(ExpressionScope.SLOT_X, 3);
+        assertTrue(scope.changedSince(dependsOnX, version));
+        assertFalse(scope.changedSince(dependsOnY, version));
+
+        // x+1 only reads x
+        Expression expression = new Expression("{\"type\":\"+\",\"children\":[{\"type\":\"Identifier\",\"value\":\"x\"},{\"type\":\"NumericLiteral\",\"value\":1}]}");
+        assertEquals(1, expression.dependencies().length);
+        assertEquals(ExpressionScope.SLOT_X, expression.dependencies()[0]);
+    }
+
+    @Test
+    public void boundedSlots() throws Exception {
+        ExpressionScope.slotOf("_scope_test_slotted");
+        ExpressionScope.setMaxSlots(ExpressionScope.slotCount());
+        try {
+            assertEquals(ExpressionScope.NO_SLOT, ExpressionScope.slotOf("_scope_test_a"));
+            assertEquals(ExpressionScope.NO_SLOT, ExpressionScope.slotOf("_scope_test_b"));
+            assertTrue(ExpressionScope.slotOf("_scope_test_slotted") >= 0);
+
+            ExpressionScope scope = new ExpressionScope();
+            scope.put("_scope_test_a", 2d);
+            scope.put("_scope_test_b", 3d);
+            scope.put("_scope_test_slotted", 4d);
+            assertEquals(2d, scope.get("_scope_test_a"));
+            assertTrue(scope.containsKey("_scope_test_b"));
+            assertEquals(3, scope.size());
+            assertEquals(3d, new HashMap<>(scope).get("_scope_test_b"));
+
+            // names without a slot are looked up by name and never taken for each other
+            Expression expression = Expression.compile(ExpressionPair.create("_scope_test_a * 10 + _scope_test_b + _scope_test_slotted", null));
+            assertEquals(27d, expression.executeDouble(scope), 0);
+            assertEquals(27d, ExpressionProgram.compile(expression.root).executeDouble(scope), 0);
+            assertTrue(scope.changedSince(expression.dependencies(), scope.version()));
+
+            // the lanes of a batch are bound by name
+            String[] names = {"_scope_test_a"};
+            double[][] parameters = {{5, 6}};
+            assertNull(BatchExpression.create(expression, names, parameters, 2));
+            assertEquals(67d, BatchExpression.bindLane(expression, names, parameters, 1).executeDouble(scope), 0);
+
+            assertEquals(2d, scope.remove("_scope_test_a"));
+            assertFalse(scope.containsKey("_scope_test_a"));
+            scope.clear();
+            assertTrue(scope.isEmpty());
+        } finally {
+            ExpressionScope.setMaxSlots(ExpressionScope.MAX_SLOTS);
+        }
+    }
+
+    @Test
+    public void applyValuesToSlots() throws Exception {
+        ExpressionScope scope = new ExpressionScope();
+        PlatformManager.IDeviceResolutionTranslator translator = mock(PlatformManager.IDeviceResolutionTranslator.class);
+        when(translator.nativeToWeb(anyDouble())).thenReturn(400d);
+
+        JSMath.applyXYToScope(scope, 100, 200, translator);
+        assertEquals(400d, scope.getDouble(ExpressionScope.SLOT_X), 0);
+        assertEquals(400d, scope.getDouble(ExpressionScope.SLOT_Y), 0);
+        assertEquals(100d, scope.get("internal_x"));
+
+        JSMath.applyTimingValuesToScope(scope, 1000d);
+        assertEquals(1000d, scope.get("t"));
+
+        // expressions read slots that were written above
+        Expression expression = new Expression("{\"type\":\"+\",\"children\":[{\"type\":\"Identifier\",\"value\":\"x\"},{\"type\":\"Identifier\",\"value\":\"t\"}]}");
+        assertTrue(expression.isNumeric());
+        assertEquals(1400d, expression.executeDouble(scope), 0);
+    }
+}
@@ -15,14 +15,30 @@
  */
 package com.alibaba.android.bindingx.core.internal;
 
+import android.graphics.Color;
+
+import com.alibaba.android.bindingx.core.BindingXCore;
+import com.alibaba.android.bindingx.core.ExpressionFunction;
+
+import org.json.JSONObject;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(RobolectricTestRunner.class)
 public class ExpressionTest {
@@ -42,6 +58,18 @@ public class ExpressionTest {
     // (y-2)/x > 1 ? 100 : 200
     private static final String EXP_5 = "{\"type\":\"?\",\"children\":[{\"type\":\">\",\"children\":[{\"type\":\"/\",\"children\":[{\"type\":\"-\",\"children\":[{\"type\":\"Identifier\",\"value\":\"y\"},{\"type\":\"NumericLiteral\",\"value\":2}]},{\"type\":\"Identifier\",\"value\":\"x\"}]},{\"type\":\"NumericLiteral\",\"value\":1}]},{\"type\":\"NumericLiteral\",\"value\":100},{\"type\":\"NumericLiteral\",\"value\":200}]}";
 
+    // x > 5 && y || 7
+    private static final String EXP_6 = "{\"type\":\"||\",\"children\":[{\"type\":\"&&\",\"children\":[{\"type\":\">\",\"children\":[{\"type\":\"Identifier\",\"value\":\"x\"},{\"type\":\"NumericLiteral\",\"value\":5}]},{\"type\":\"Identifier\",\"value\":\"y\"}]},{\"type\":\"NumericLiteral\",\"value\":7}]}";
+
+    // !(x == "10") ? sin(t) : cos(t)
+    private static final String EXP_7 = "{\"type\":\"?\",\"children\":[{\"type\":\"!\",\"children\":[{\"type\":\"==\",\"children\":[{\"type\":\"Identifier\",\"value\":\"x\"},{\"type\":\"StringLiteral\",\"value\":\"10\"}]}]},{\"type\":\"CallExpression\",\"children\":[{\"type\":\"Identifier\",\"value\":\"sin\"},{\"type\":\"Arguments\",\"children\":[{\"type\":\"Identifier\",\"value\":\"t\"}]}]},{\"type\":\"CallExpression\",\"children\":[{\"type\":\"Identifier\",\"value\":\"cos\"},{\"type\":\"Arguments\",\"children\":[{\"type\":\"Identifier\",\"value\":\"t\"}]}]}]}";
+
+    @After
+    public void tearDown() throws Exception {
+        // registered functions are global
+        Builtins.reset();
+    }
+
     @Test
     public void execute() throws Exception {
         Map<String,Object> scope = new HashMap<>();
@@ -72,4 +100,622 @@ public class ExpressionTest {
         assertEquals(200d, value5, 0.1);
     }
 
+    @Test
+    public void compile() throws Exception {
+        Expression e3 = new Expression(EXP_3);
+        assertTrue(e3.root instanceof ExpressionNode.Call);
+
+        Expression e5 = new Expression(EXP_5);
+        assertTrue(e5.root instanceof ExpressionNode.Conditional);
+
+        Map<String,Object> scope = new HashMap<>();
+        scope.put("x", 1d);
+        scope.put("y", 12d);
+        assertEquals(100d, (double) e5.execute(scope), 0.1);
+
+        // the compiled tree is reused when scope changes
+        scope.put("x", 10d);
+        assertEquals(200d, (double) e5.execute(scope), 0.1);
+    }
+
+    @Test
+    public void executePrimitive() throws Exception {
+        Map<String,Object> scope = new HashMap<>();
+        JSMath.applyToScope(scope);
+
+        scope.put("x", 10d);
+        scope.put("y", 12d);
+
+        Expression e2 = new Expression(EXP_2);
+        assertTrue(e2.isNumeric());
+        assertEquals(144d, e2.executeDouble(scope), 0.1);
+
+        // max is a built-in NativeFunction
+        Expression e3 = new Expression(EXP_3);
+        assertTrue(e3.isNumeric());
+        assertEquals(22d, e3.executeDouble(scope), 0.1);
+
+        Expression e4 = new Expression(EXP_4);
+        assertFalse(e4.executeBoolean(scope));
+
+        Expression e5 = new Expression(EXP_5);
+        assertTrue(e5.isNumeric());
+        assertEquals(200d, e5.executeDouble(scope), 0.1);
+    }
+
+    @Test
+    public void executeProgram() throws Exception {
+        String[] expressions = {EXP_1, EXP_2, EXP_3, EXP_4, EXP_5, EXP_6, EXP_7};
+        double[][] values = {{10, 12, 0}, {3, 0, 1}, {-1, 30, 2}};
+
+        for (String json : expressions) {
+            Expression tree = new Expression(json);
+            Expression program = new Expression(json);
+            program.compileProgram();
+
+            for (double[] value : values) {
+                ExpressionScope scope = new ExpressionScope();
+                JSMath.applyToScope(scope);
+                scope.put("x", value[0]);
+                scope.put("y", value[1]);
+                scope.put("t", value[2]);
+
+                assertEquals(json, tree.execute(scope), program.execute(scope));
+                assertEquals(json, tree.executeDouble(scope), program.executeDouble(scope), 0);
+                assertEquals(json, tree.executeBoolean(scope), program.executeBoolean(scope));
+            }
+        }
+    }
+
+    @Test
+    public void shareSubexpressions() throws Exception {
+        final int[] calls = {0};
+        ExpressionScope scope = new ExpressionScope();
+        scope.put("count", new JSFunctionInterface() {
+            @Override
+            public Object execute(ArrayList<Object> arguments) {
+                calls[0]++;
+                return (double) arguments.get(0);
+            }
+        });
+        ExpressionNode shared = new ExpressionNode.Call(new ExpressionNode.Identifier("count"),
+                new ExpressionNode[]{new ExpressionNode.Identifier("x")});
+        // count(x)+1 and count(x)*2
+        ExpressionNode e1 = new ExpressionNode.Binary(ExpressionNode.Binary.ADD, shared, new ExpressionNode.Literal(1d));
+        ExpressionNode e2 = new ExpressionNode.Binary(ExpressionNode.Binary.MUL,
+                new ExpressionNode.Call(new ExpressionNode.Identifier("count"), new ExpressionNode[]{new ExpressionNode.Identifier("x")}),
+                new ExpressionNode.Literal(2d));
+
+        CommonSubexpressionEliminator eliminator = new CommonSubexpressionEliminator();
+        eliminator.add(e1);
+        eliminator.add(e2);
+        ExpressionNode r1 = eliminator.rewrite(e1);
+        ExpressionNode r2 = eliminator.rewrite(e2);
+        assertTrue(r1.children()[0] instanceof ExpressionNode.Shared);
+        assertTrue(r1.children()[0] == r2.children()[0]);
+        assertTrue(r1.children()[1] instanceof ExpressionNode.Literal);
+
+        scope.put("x", 10d);
+        assertEquals(11d, r1.evaluateDouble(scope), 0);
+        assertEquals(20d, r2.evaluateDouble(scope), 0);
+        assertEquals(1, calls[0]);
+
+        scope.put("x", 20d);
+        assertEquals(21d, r1.evaluateDouble(scope), 0);
+        assertEquals(40d, r2.evaluate(scope));
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void optimize() throws Exception {
+        ExpressionNode x = new ExpressionNode.Identifier("x");
+        ExpressionNode y = new ExpressionNode.Identifier("y");
+
+        // PI/180
+        ExpressionNode node = ExpressionOptimizer.optimize(new ExpressionNode.Binary(ExpressionNode.Binary.DIV,
+                new ExpressionNode.Identifier("PI"), new ExpressionNode.Literal(180d)));
+        assertTrue(node instanceof ExpressionNode.Literal);
+        assertEquals(Math.PI / 180, (double) ((ExpressionNode.Literal) node).value, 0);
+
+        // x+sqrt(4)*1
+        node = ExpressionOptimizer.optimize(new ExpressionNode.Binary(ExpressionNode.Binary.ADD, x,
+                new ExpressionNode.Binary(ExpressionNode.Binary.MUL,
+                        new ExpressionNode.Call(new ExpressionNode.Identifier("sqrt"), new ExpressionNode[]{new ExpressionNode.Literal(4d)}),
+                        new ExpressionNode.Literal(1d))));
+        assertEquals(new ExpressionNode.Binary(ExpressionNode.Binary.ADD, x, new ExpressionNode.Literal(2d)), node);
+
+        // (x*1+0)/1
+        node = ExpressionOptimizer.optimize(new ExpressionNode.Binary(ExpressionNode.Binary.DIV,
+                new ExpressionNode.Binary(ExpressionNode.Binary.ADD,
+                        new ExpressionNode.Binary(ExpressionNode.Binary.MUL, x, new ExpressionNode.Literal(1d)),
+                        new ExpressionNode.Literal(0d)),
+                new ExpressionNode.Literal(1d)));
+        assertEquals(x, node);
+
+        // 1 > 2 ? x : y
+        node = ExpressionOptimizer.optimize(new ExpressionNode.Conditional(
+                new ExpressionNode.Binary(ExpressionNode.Binary.GT, new ExpressionNode.Literal(1d), new ExpressionNode.Literal(2d)), x, y));
+        assertEquals(y, node);
+
+        // rgb(255,0,0)
+        node = ExpressionOptimizer.optimize(new ExpressionNode.Call(new ExpressionNode.Identifier("rgb"), new ExpressionNode[]{
+                new ExpressionNode.Literal(255d), new ExpressionNode.Literal(0d), new ExpressionNode.Literal(0d)}));
+        assertTrue(node instanceof ExpressionNode.Literal);
+
+        // translate(1,2) returns its argument list, which must not be shared
+        node = ExpressionOptimizer.optimize(new ExpressionNode.Call(new ExpressionNode.Identifier("translate"), new ExpressionNode[]{
+                new ExpressionNode.Literal(1d), new ExpressionNode.Literal(2d)}));
+        assertTrue(node instanceof ExpressionNode.Call);
+
+        // the name of an unknown variable can not be folded
+        node = ExpressionOptimizer.optimize(new ExpressionNode.Binary(ExpressionNode.Binary.MUL,
+                new ExpressionNode.Identifier("foo"), new ExpressionNode.Literal(1d)));
+        assertTrue(node instanceof ExpressionNode.Binary);
+    }
+
+    @Test
+    public void parseOrigin() throws Exception {
+        String[][] expressions = {
+                {"x+1", EXP_1},
+                {"(x+5)*10-y/2", EXP_2},
+                {"max(x/2,y+10)", EXP_3},
+                {"y > 19", EXP_4},
+                {"(y-2)/x > 1 ? 100 : 200", EXP_5},
+                {"x > 5 && y || 7", EXP_6}
+        };
+        for (String[] expression : expressions) {
+            assertEquals(expression[0], ExpressionCompiler.compile(new JSONObject(expression[1])),
+                    ExpressionParser.parse(expression[0]));
+        }
+
+        ExpressionScope scope = new ExpressionScope();
+        JSMath.applyToScope(scope);
+        scope.put("x", 10d);
+        scope.put("y", 3d);
+        scope.put("t", 1d);
+        assertEquals(Math.cos(1), ExpressionParser.parse("!(x == 10) ? sin(t) : cos(t)").evaluateDouble(scope), 0);
+        assertEquals(-97d, ExpressionParser.parse("-x * 10 + y").evaluateDouble(scope), 0);
+        assertEquals(512d, ExpressionParser.parse("2 ** y ** 2").evaluateDouble(scope), 0);
+        assertEquals(2d, ExpressionParser.parse("x > 5 ? y < 2 ? 1 : 2 : 3").evaluateDouble(scope), 0);
+        assertFalse(ExpressionParser.parse("false || !true").evaluateBoolean(scope));
+        assertEquals(16.5d, ExpressionParser.parse("0x10 + .5").evaluateDouble(scope), 0);
+
+        String[] illegal = {"", "x +", "(x", "x = 1", "x ? 1", "max(x,", "x @ y", "'abc"};
+        for (String origin : illegal) {
+            try {
+                ExpressionParser.parse(origin);
+                fail(origin);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        // the transformed expression is used if the origin can not be parsed
+        Expression expression = Expression.compile(ExpressionPair.create("x @ 1", EXP_1));
+        assertNotNull(expression);
+        assertEquals(11d, expression.executeDouble(scope), 0);
+        assertEquals(13d, Expression.compile(ExpressionPair.create("x+y", null)).executeDouble(scope), 0);
+        assertNull(Expression.compile(ExpressionPair.create("x @ 1", "{}")));
+        assertNull(Expression.compile(ExpressionPair.create(null, null)));
+
+        // the transformed expression wins over the origin, bindingx-parser reads ** left associative
+        String pow = "{\"type\":\"**\",\"children\":[{\"type\":\"**\",\"children\":[{\"type\":\"NumericLiteral\",\"value\":2},"
+                + "{\"type\":\"Identifier\",\"value\":\"y\"}]},{\"type\":\"NumericLiteral\",\"value\":2}]}";
+        assertEquals(64d, Expression.compile(ExpressionPair.create("2 ** y ** 2", pow)).executeDouble(scope), 0);
+        // the origin is parsed if the transformed expression is illegal
+        assertEquals(13d, Expression.compile(ExpressionPair.create("x+y", "{\"type\":\"?\"}")).executeDouble(scope), 0);
+    }
+
+    @Test
+    public void decodeBinary() throws Exception {
+        // produced by encode of bindingx-parser from the json
+        String[][] expressions = {
+                {"bx1:AQMCAQF4EAIAAQA=", EXP_1},
+                {"bx1:AwMKAxQDBAIBeAF5ERIQAgABAAEBEwIBAQI=", EXP_2},
+                {"bx1:AgMEAxQDA21heAF4AXkDAgIAEwIBAQAQAgIBAQ==", EXP_3},
+                {"bx1:AQMmAQF5FgIAAQA=", EXP_4},
+                {"bx1:BAMEAwIDyAEDkAMCAXkBeAQWExECAAEAAgEBAQECAQM=", EXP_5},
+                {"bx1:AgMKAw4CAXgBeR8eFgIAAQACAQEB", EXP_6},
+                {"bx1:AQUCMTAEAXgDc2luAXQDY29zBAUaAgABAAMBAgECAgMBAgMCAg==", EXP_7}
+        };
+        for (String[] expression : expressions) {
+            assertTrue(ExpressionDecoder.isBinary(expression[0]));
+            assertEquals(expression[1], ExpressionCompiler.compile(new JSONObject(expression[1])),
+                    ExpressionDecoder.decode(expression[0]));
+        }
+        // easeOutElastic(t,309,-200,1000) and evaluateColor('#ff0000','#0000ff',x*0.01)
+        assertEquals(ExpressionParser.parse("easeOutElastic(t,309,-200,1000)"),
+                ExpressionDecoder.decode("bx1:AwPqBAOPAwPQDwIOZWFzZU91dEVsYXN0aWMBdAMEAgACAQEAAQEBAg=="));
+        assertEquals(ExpressionParser.parse("evaluateColor('#ff0000','#0000ff',x*0.01)"),
+                ExpressionDecoder.decode("bx1:AwUJJyNmZjAwMDAnBQknIzAwMDBmZicEP4R64UeuFHsCDWV2YWx1YXRlQ29sb3IBeAMDAgABAAEBEgIBAQI="));
+
+        ExpressionScope scope = new ExpressionScope();
+        scope.put("x", 10d);
+        Map<String, Object> params = new HashMap<>();
+        params.put("expression", "bx1:AQMCAQF4EAIAAQA=");
+        assertEquals(11d, Expression.compile(Utils.getExpressionPair(params, "expression")).executeDouble(scope), 0);
+        Map<String, Object> pair = new HashMap<>();
+        pair.put(BindingXConstants.KEY_ORIGIN, "x+1");
+        pair.put(BindingXConstants.KEY_TRANSFORMED, "bx1:AQMCAQF4EAIAAQA=");
+        params.put("expression", pair);
+        assertEquals(ExpressionPair.create("x+1", "bx1:AQMCAQF4EAIAAQA="), Utils.getExpressionPair(params, "expression"));
+
+        String[] illegal = {"bx1:", "bx1:AQMCAQF4EAIAAQ==", "bx1:AQMCAQF4EAIAAQAA", "bx1:AQMCAQF4EAIAAQU=", "bx1:AQYCAQF4EAIAAQA=", "bx1:@@"};
+        for (String binary : illegal) {
+            try {
+                ExpressionDecoder.decode(binary);
+                fail(binary);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        // the origin is used if the binary form is broken
+        assertEquals(11d, Expression.compile(ExpressionPair.create("x+1", "bx1:AQMCAQF4EAIAAQU=")).executeDouble(scope), 0);
+        assertNull(Expression.compile(ExpressionPair.create(null, "bx1:AQMCAQF4EAIAAQU=")));
+    }
+
+    @Test
+    public void executeVector() throws Exception {
+        ExpressionScope scope = new ExpressionScope();
+        JSMath.applyToScope(scope);
+        scope.put("x", 10d);
+        scope.put("y", 3d);
+
+        Expression translate = new Expression(ExpressionParser.parse("translate(x * 2, y)"));
+        assertTrue(translate.isVector());
+        Vec2 value = (Vec2) translate.execute(scope);
+        assertEquals(20d, value.x, 0);
+        assertEquals(3d, value.y, 0);
+        // still readable as a list
+        assertEquals(Arrays.<Object>asList(20d, 3d), value);
+
+        scope.put("x", 5d);
+        assertSame(value, translate.executeVector(scope, value));
+        assertEquals(10d, value.x, 0);
+        assertNotSame(value, translate.executeVector(scope, null));
+
+        Vec4 radii = (Vec4) new Expression(ExpressionParser.parse("asArray(x, y, 1, 2)")).execute(scope);
+        assertEquals(Arrays.<Object>asList(5d, 3d, 1d, 2d), radii);
+
+        Expression program = new Expression(ExpressionParser.parse("matrix(1, 0, 0, 1, x, y)"));
+        program.compileProgram();
+        Matrix2D matrix = (Matrix2D) program.execute(scope);
+        assertEquals(5d, matrix.tx, 0);
+        assertEquals(3d, matrix.ty, 0);
+
+        // non numeric arguments are passed through like before
+        Object list = new Expression(ExpressionParser.parse("asArray(x, 'red')")).execute(scope);
+        assertTrue(list instanceof ArrayList);
+        assertNull(new Expression(ExpressionParser.parse("translate(x)")).execute(scope));
+
+        Vec2 other = (Vec2) translate.execute(scope);
+        other.x += 0.1;
+        assertTrue(AbstractEventHandler.isSameValue(value, other, 0.5));
+        assertFalse(AbstractEventHandler.isSameValue(value, other, 0));
+    }
+
+    @Test
+    public void executeColor() throws Exception {
+        ExpressionScope scope = new ExpressionScope();
+        JSMath.applyToScope(scope);
+        scope.put("x", 0d);
+
+        // the color literals are parsed when the expression is compiled
+        Expression color = new Expression(ExpressionOptimizer.optimize(
+                ExpressionParser.parse("evaluateColor('#ff0000', '#0000ff', x)")));
+        assertTrue(color.root instanceof ExpressionNode.Call);
+        assertTrue(((ExpressionNode.Call) color.root).isColor());
+        assertEquals(Color.RED, color.execute(scope));
+        scope.put("x", 1d);
+        assertEquals(Color.BLUE, color.execute(scope));
+
+        scope.put("x", 0.3d);
+        Object expected = new Expression(ExpressionParser.parse("evaluateColor('#ff0000', '#0000ff', x)")).execute(scope);
+        assertTrue(expected instanceof Integer);
+        assertEquals(expected, color.execute(scope));
+        color.compileProgram();
+        assertEquals(expected, color.execute(scope));
+
+        assertEquals(Color.rgb(255, 128, 0), new Expression(ExpressionParser.parse("rgb(255, x * 0 + 128, 0)")).execute(scope));
+        assertEquals(Color.argb(127, 0, 0, 255), new Expression(ExpressionParser.parse("rgba(0, 0, 255, 0.5)")).execute(scope));
+    }
+
+    @Test
+    public void typeCheck() throws Exception {
+        String[] rejected = {"x(1)", "1 + sin", "easeOutCubic(t, 0, 100)", "'abc' * 2", "x == sin", "!sin",
+                "x == 'abc'", "max > 1", "sin ? 1 : 2", "x + '1'", "sin()"};
+        for (String origin : rejected) {
+            try {
+                ExpressionTypeChecker.check(ExpressionParser.parse(origin));
+                fail(origin);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            assertNull(origin, Expression.compile(ExpressionPair.create(origin, null)));
+        }
+
+        // string literals keep their quotes, so they are never numeric
+        String[] accepted = {"'a' == 'b'", "x > 1 && y", "t ? sin(t) : cos(t)", "max(x, y, 1)",
+                "easeOutCubic(t, 0, 100, 1000)", "x == true", "evaluateColor('#ff0000', '#0000ff', x * 0.01)",
+                "translate(x, y)", "unknown + 1", "max()"};
+        for (String origin : accepted) {
+            ExpressionTypeChecker.check(ExpressionParser.parse(origin));
+        }
+        for (String json : new String[]{EXP_1, EXP_2, EXP_3, EXP_4, EXP_5, EXP_6, EXP_7}) {
+            assertTrue(new Expression(json).isValid());
+        }
+
+        assertEquals(ExpressionTypeChecker.NUMBER, ExpressionTypeChecker.check(ExpressionParser.parse("x * 2 + sin(t)")));
+        assertEquals(ExpressionTypeChecker.BOOLEAN, ExpressionTypeChecker.check(ExpressionParser.parse("x > 1 || y < 2")));
+
+        // operators pick their primitive paths from the types of their operands
+        ExpressionNode and = ExpressionParser.parse("x > 1 && y < 2");
+        assertTrue(and.isBoolean());
+        assertFalse(and.isNumeric());
+        ExpressionScope scope = new ExpressionScope();
+        scope.put("x", 2d);
+        scope.put("y", 1d);
+        assertEquals(true, and.evaluate(scope));
+        assertTrue(ExpressionParser.parse("x > 1 == y < 2").evaluateBoolean(scope));
+        assertEquals(0d, ExpressionParser.parse("x - 2 && y").evaluate(scope));
+    }
+
+    @Test
+    public void executeBatch() throws Exception {
+        String[] names = {"i", "d"};
+        double[][] parameters = {{0, 1, 2, 3, 4}, {300, 300, 200, 200, 100}};
+        String[] origins = {
+                "easeOutCubic(max(t - i * 50, 0), 0, 100, d)",
+                "t > i * 50 ? min((t - i * 50) / d, 1) : 0",
+                "!(i % 2) && t > 10 || i == 3 ? 1 : 2",
+                "(i + x) * (y - PI) + pow(i, 2) - abs(d - t)",
+                "(i >= 2 != t < 100) * 10"
+        };
+        ExpressionScope scope = new ExpressionScope();
+        JSMath.applyToScope(scope);
+        TimingFunctions.applyToScope(scope);
+        scope.put("x", 2d);
+        scope.put("y", 5d);
+        for (String origin : origins) {
+            Expression expression = Expression.compile(ExpressionPair.create(origin, null));
+            BatchExpression batch = BatchExpression.create(expression, names, parameters, 5);
+            assertNotNull(origin, batch);
+            for (double t : new double[]{0, 60, 150, 500}) {
+                JSMath.applyTimingValuesToScope(scope, t);
+                double[] results = batch.execute(scope);
+                for (int lane = 0; lane < 5; lane++) {
+                    double expected = BatchExpression.bindLane(expression, names, parameters, lane).executeDouble(scope);
+                    assertEquals(origin + " " + t + " " + lane, expected, results[lane], 1e-9);
+                    assertEquals(expected, batch.valueAt(scope, lane), 1e-9);
+                }
+            }
+        }
+
+        // the parameters are not dependencies, variables read by the expression are
+        Expression expression = Expression.compile(ExpressionPair.create("x + i", null));
+        assertEquals(2, expression.dependencies().length);
+        assertEquals(1, BatchExpression.create(expression, names, parameters, 5).dependencies().length);
+
+        // results that are not numbers are bound per lane
+        assertNull(BatchExpression.create(Expression.compile(ExpressionPair.create("i > 2", null)), names, parameters, 5));
+        assertNull(BatchExpression.create(Expression.compile(ExpressionPair.create("translate(i, 0)", null)), names, parameters, 5));
+        Expression lane = BatchExpression.bindLane(Expression.compile(ExpressionPair.create("i > 2", null)), names, parameters, 3);
+        assertTrue(lane.root instanceof ExpressionNode.Literal);
+        assertEquals(true, lane.execute(scope));
+    }
+
+    @Test
+    public void conditionalAndStrictEquality() throws Exception {
+        ExpressionScope scope = new ExpressionScope();
+        Builtins.applyToScope(scope);
+        scope.put("x", 10d);
+        scope.put("s", "10");
+
+        // the test of a conditional is converted like any other condition, it does not have to be a boolean
+        assertEquals(1d, Expression.compile(ExpressionPair.create("x ? 1 : 2", null)).execute(scope));
+        assertEquals(2d, Expression.compile(ExpressionPair.create("(x - 10) ? 1 : 2", null)).execute(scope));
+        assertEquals(2d, Expression.compile(ExpressionPair.create("(x - 10) ? 1 : 2", null)).executeDouble(scope), 0);
+
+        // numbers are strictly equal if their values are
+        assertEquals(true, Expression.compile(ExpressionPair.create("x === 10", null)).execute(scope));
+        assertEquals(true, Expression.compile(ExpressionPair.create("x * 2 === x + 10", null)).execute(scope));
+        assertEquals(false, Expression.compile(ExpressionPair.create("x !== 5 + 5", null)).execute(scope));
+        // but not equal to a string
+        assertEquals(false, Expression.compile(ExpressionPair.create("x === s", null)).execute(scope));
+        assertEquals(true, Expression.compile(ExpressionPair.create("x == s", null)).execute(scope));
+    }
+
+    @Test
+    public void registerFunction() throws Exception {
+        final int[] calls = new int[1];
+        // clamps x to [min, max] with a resistance beyond the bounds
+        ExpressionFunction rubberBand = new ExpressionFunction(3, true) {
+            @Override
+            public double call(double x, double min, double max) {
+                calls[0]++;
+                if (x < min) {
+                    return min - (1 - 1 / ((min - x) * 0.55 / 100 + 1)) * 100;
+                }
+                if (x > max) {
+                    return max + (1 - 1 / ((x - max) * 0.55 / 100 + 1)) * 100;
+                }
+                return x;
+            }
+
+            @Override
+            public double call(double[] args) {
+                return call(args[0], args[1], args[2]);
+            }
+        };
+        ExpressionFunction sum = new ExpressionFunction(ExpressionFunction.VARIADIC, false) {
+            @Override
+            public double call(double[] args) {
+                double result = 0;
+                for (double arg : args) {
+                    result += arg;
+                }
+                return result;
+            }
+        };
+        assertTrue(BindingXCore.registerFunction("rubberBand", rubberBand));
+        assertTrue(BindingXCore.registerFunction("sum", sum));
+        assertFalse(BindingXCore.registerFunction("sin", sum));
+        assertFalse(BindingXCore.registerFunction("1sum", sum));
+        assertFalse(BindingXCore.registerFunction("x", sum));
+        assertFalse(BindingXCore.registerFunction("t", sum));
+        assertFalse(BindingXCore.registerFunction("true", sum));
+        assertFalse(BindingXCore.registerFunction("null", sum));
+
+        ExpressionScope scope = new ExpressionScope();
+        Builtins.applyToScope(scope);
+        scope.put("x", 150d);
+        Expression expression = Expression.compile(ExpressionPair.create("rubberBand(x, 0, 100) + 1", null));
+        assertTrue(expression.isNumeric());
+        assertTrue(((ExpressionNode.Binary) expression.root).left.isNumeric());
+        assertEquals(rubberBand.call(150, 0, 100) + 1, expression.executeDouble(scope), 0);
+        assertEquals(50d, Expression.compile(ExpressionPair.create("rubberBand(x - 100, 0, 100)", null)).execute(scope));
+
+        // pure calls with constant arguments are folded, others are not
+        calls[0] = 0;
+        assertEquals(new ExpressionNode.Literal(100d), Expression.compile(ExpressionPair.create("rubberBand(100, 0, 200)", null)).root);
+        assertEquals(1, calls[0]);
+        Expression variadic = Expression.compile(ExpressionPair.create("sum(1, 2, 3, 4, 5)", null));
+        assertTrue(variadic.root instanceof ExpressionNode.Call);
+        assertEquals(15d, variadic.executeDouble(scope), 0);
+        assertEquals(3d, Expression.compile(ExpressionPair.create("sum(1, 2)", null)).executeDouble(scope), 0);
+
+        // wrong number of arguments is rejected when compiled
+        assertNull(Expression.compile(ExpressionPair.create("rubberBand(x, 0)", null)));
+
+        ExpressionProgram program = ExpressionProgram.compile(ExpressionParser.parse("rubberBand(x, 0, 100) * sum(x, 1)"));
+        assertEquals(rubberBand.call(150, 0, 100) * 151, program.executeDouble(scope), 1e-9);
+    }
+
+    @Test
+    public void impureFunction() throws Exception {
+        final int[] ticks = new int[1];
+        // returns how often it has been called
+        assertTrue(BindingXCore.registerFunction("tick", new ExpressionFunction(0, false) {
+            @Override
+            public double call(double[] args) {
+                return ++ticks[0];
+            }
+        }));
+        ExpressionScope scope = new ExpressionScope();
+        Builtins.applyToScope(scope);
+        scope.put("x", 1d);
+
+        Expression expression = Expression.compile(ExpressionPair.create("(tick() + sin(x)) * 2 + tick() + (tick() + sin(x)) * 2", null));
+        assertTrue(expression.hasSideEffects());
+        assertFalse(Expression.compile(ExpressionPair.create("sin(x) + x", null)).hasSideEffects());
+        double expected = expression.executeDouble(scope);
+        assertEquals(3, ticks[0]);
+
+        // identical calls are not merged, the pure subtrees around them still are
+        CommonSubexpressionEliminator eliminator = new CommonSubexpressionEliminator();
+        eliminator.add(expression.root);
+        Expression shared = new Expression(eliminator.rewrite(expression.root));
+        ticks[0] = 0;
+        assertEquals(expected, shared.executeDouble(scope), 0);
+        assertEquals(3, ticks[0]);
+        assertTrue(containsShared(shared.root));
+
+        // a batch would call tick in branches that no lane takes
+        String[] names = {"i"};
+        double[][] parameters = {{0, 1, 2}};
+        Expression conditional = Expression.compile(ExpressionPair.create("i > 0 ? tick() + i : x", null));
+        assertNull(BatchExpression.create(conditional, names, parameters, 3));
+        assertNotNull(BatchExpression.create(Expression.compile(ExpressionPair.create("i > 0 ? sin(x) + i : x", null)), names, parameters, 3));
+    }
+
+    private static boolean containsShared(ExpressionNode node) {
+        if (node instanceof ExpressionNode.Shared) {
+            return true;
+        }
+        for (ExpressionNode child : node.children()) {
+            if (containsShared(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void interpolate() throws Exception {
+        ExpressionScope scope = new ExpressionScope();
+        Builtins.applyToScope(scope);
+        String[] origins = {
+                "interpolate(y, asArray(0, 100, 200), asArray(0, 1, 0.5))",
+                "interpolate(y, asArray(0, 100, 200), asArray(0, 1, 0.5), 'clamp')",
+                "interpolate(y, asArray(0, 100, 200), asArray(0, 1, 0.5), 'identity')"
+        };
+        double[][] expected = {
+                // y = -100, 0, 50, 100, 150, 200, 300
+                {-1, 0, 0.5, 1, 0.75, 0.5, 0},
+                {0, 0, 0.5, 1, 0.75, 0.5, 0.5},
+                {-100, 0, 0.5, 1, 0.75, 0.5, 300}
+        };
+        double[] ys = {-100, 0, 50, 100, 150, 200, 300};
+        for (int i = 0; i < origins.length; i++) {
+            Expression expression = Expression.compile(ExpressionPair.create(origins[i], null));
+            // the ranges are bound when compiled
+            ExpressionNode.Call call = (ExpressionNode.Call) expression.root;
+            assertTrue(call.callee instanceof ExpressionNode.Literal);
+            assertEquals(1, call.arguments.length);
+            assertTrue(expression.isNumeric());
+            // the same with ranges that are only known at runtime
+            Expression dynamic = Expression.compile(ExpressionPair.create(origins[i].replace("asArray(0, 1", "asArray(x * 0, 1"), null));
+            assertTrue(((ExpressionNode.Call) dynamic.root).callee instanceof ExpressionNode.Identifier);
+            for (int j = 0; j < ys.length; j++) {
+                scope.put("x", 1d);
+                scope.put("y", ys[j]);
+                assertEquals(origins[i] + " " + ys[j], expected[i][j], expression.executeDouble(scope), 1e-9);
+                assertEquals(origins[i] + " " + ys[j], expected[i][j], (double) dynamic.execute(scope), 1e-9);
+            }
+        }
+
+        // colors are clamped and boxed like other colors
+        Expression color = Expression.compile(ExpressionPair.create("interpolate(y, asArray(0, 100), asArray('#ff0000', '#0000ff'))", null));
+        scope.put("y", 50d);
+        assertEquals(ColorFunction.interpolate(Color.RED, Color.BLUE, 0.5), color.execute(scope));
+        scope.put("y", 500d);
+        assertEquals(Color.BLUE, color.execute(scope));
+        ExpressionProgram program = ExpressionProgram.compile(color.root);
+        assertEquals(Color.BLUE, program.execute(scope));
+
+        // identical calls are shared
+        assertEquals(Expression.compile(ExpressionPair.create(origins[0], null)).root,
+                Expression.compile(ExpressionPair.create(origins[0] + " + 0", null)).root);
+
+        // many segments are searched
+        StringBuilder inputs = new StringBuilder("asArray(0");
+        StringBuilder outputs = new StringBuilder("asArray(0");
+        for (int i = 1; i <= 50; i++) {
+            inputs.append(", ").append(i * 10);
+            outputs.append(", ").append(i % 2 == 0 ? 0 : 100);
+        }
+        Expression zigzag = Expression.compile(ExpressionPair.create("interpolate(y, " + inputs + "), " + outputs + "))", null));
+        scope.put("y", 255d);
+        assertEquals(50d, zigzag.executeDouble(scope), 1e-9);
+        scope.put("y", 490d);
+        assertEquals(100d, zigzag.executeDouble(scope), 1e-9);
+
+        // illegal ranges are not bound and fail when evaluated
+        Expression illegal = Expression.compile(ExpressionPair.create("interpolate(y, asArray(100, 0), asArray(0, 1))", null));
+        assertTrue(((ExpressionNode.Call) illegal.root).callee instanceof ExpressionNode.Identifier);
+        try {
+            illegal.execute(scope);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void illegalExpression() throws Exception {
+        Expression expression = new Expression("_transformed");
+        assertFalse(expression.isValid());
+        assertNull(expression.execute(new HashMap<String, Object>()));
+    }
+
 }
\ No newline at end of file
@@ -19,6 +19,8 @@ import com.alibaba.android.bindingx.core.PlatformManager;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,7 +28,10 @@ import static org.hamcrest.CoreMatchers.allOf;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyDouble;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -73,7 +78,7 @@ public class JSMathTest {
 
     @Test
     public void applyXYToScope() throws Exception{
-        Map<String,Object> scope = new HashMap<>();
+        ExpressionScope scope = new ExpressionScope();
         PlatformManager.IDeviceResolutionTranslator translator = mock(PlatformManager.IDeviceResolutionTranslator.class);
         when(translator.nativeToWeb(anyDouble())).thenReturn(400d);
 
@@ -86,7 +91,7 @@ public class JSMathTest {
 
     @Test
     public void applyOrientationValuesToScope() throws Exception {
-        Map<String,Object> scope = new HashMap<>();
+        ExpressionScope scope = new ExpressionScope();
 
         JSMath.applyOrientationValuesToScope(scope, 100,200,300,50,150,250,1,1,1);
 
@@ -106,7 +111,7 @@ public class JSMathTest {
 
     @Test
     public void applyTimingValuesToScope() throws Exception{
-        Map<String,Object> scope = new HashMap<>();
+        ExpressionScope scope = new ExpressionScope();
 
         JSMath.applyTimingValuesToScope(scope, 1000d);
         assertEquals(1000d, scope.get("t"));
@@ -114,7 +119,7 @@ public class JSMathTest {
 
     @Test
     public  void applyScrollValuesToScope() throws Exception{
-        Map<String,Object> scope = new HashMap<>();
+        ExpressionScope scope = new ExpressionScope();
 
         PlatformManager.IDeviceResolutionTranslator translator = mock(PlatformManager.IDeviceResolutionTranslator.class);
         when(translator.nativeToWeb(anyDouble())).thenReturn(1d);
@@ -130,4 +135,47 @@ public class JSMathTest {
         assertEquals(1d, scope.get("tdy"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void nativeFunctions() throws Exception {
+        Map<String,Object> scope = new HashMap<>();
+        JSMath.applyToScope(scope);
+        TimingFunctions.applyToScope(scope);
+
+        NativeFunction sin = (NativeFunction) scope.get("sin");
+        assertEquals(Math.sin(1), sin.call1(1), 0);
+        assertEquals(Math.sin(1), (double) sin.execute(new ArrayList<Object>(Arrays.<Object>asList(1d))), 0);
+
+        NativeFunction max = (NativeFunction) scope.get("max");
+        assertTrue(max.accepts(3));
+        assertEquals(2d, max.call2(1, 2), 0);
+        assertEquals(4d, max.call4(1, 4, 3, 2), 0);
+        assertEquals(5d, max.callN(new double[]{1, 5, 3}), 0);
+        assertNull(max.execute(new ArrayList<Object>()));
+
+        // rounded values are doubles, so that view updaters can use them
+        assertEquals(3d, ((NativeFunction) scope.get("round")).execute(new ArrayList<Object>(Arrays.<Object>asList(2.6d))));
+
+        NativeFunction easeOutCubic = (NativeFunction) scope.get("easeOutCubic");
+        assertFalse(easeOutCubic.accepts(2));
+        assertEquals(100d, easeOutCubic.call4(1000, 0, 100, 1000), 0);
+        assertEquals(easeOutCubic.call4(300, 0, 100, 1000),
+                (double) easeOutCubic.execute(new ArrayList<Object>(Arrays.<Object>asList(300d, 0d, 100d, 1000d))), 0);
+
+        // calls of built-in functions are evaluated without boxing
+        ExpressionScope expressionScope = new ExpressionScope();
+        JSMath.applyToScope(expressionScope);
+        TimingFunctions.applyToScope(expressionScope);
+        JSMath.applyTimingValuesToScope(expressionScope, 300);
+        Expression expression = new Expression(ExpressionParser.parse("easeOutCubic(t, 0, 100, 1000) + max(t, 10)"));
+        assertTrue(expression.isNumeric());
+        double expected = easeOutCubic.call4(300, 0, 100, 1000) + 300;
+        assertEquals(expected, expression.executeDouble(expressionScope), 0);
+        expression.compileProgram();
+        assertEquals(expected, expression.executeDouble(expressionScope), 0);
+        assertEquals(expected, (double) expression.execute(expressionScope), 0);
+
+        // functions that are not built in are still called with boxed arguments
+        assertFalse(new Expression(ExpressionParser.parse("rgb(t, 0, 0)")).isNumeric());
+    }
+
+}
@@ -17,13 +17,18 @@ package com.alibaba.android.bindingx.core.internal;
 
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.allOf;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 
 public class TimingFunctionsTest {
@@ -68,4 +73,100 @@ public class TimingFunctionsTest {
         assertThat(scope.get("cubicBezier"),allOf(notNullValue(),instanceOf(JSFunctionInterface.class)));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void lookupTables() throws Exception {
+        Map<String,Object> scope = new HashMap<>();
+        TimingFunctions.applyToScope(scope);
+        String[] names = {"easeInSine", "easeOutSine", "easeInOutSine", "easeInExpo", "easeOutExpo",
+                "easeInOutExpo", "easeInElastic", "easeOutElastic", "easeInOutElastic"};
+
+        try {
+            assertLookupTables(scope, names, BindingXConstants.EASING_INTERPOLATION_LINEAR, 2e-4, 2e-4);
+            assertLookupTables(scope, names, BindingXConstants.EASING_INTERPOLATION_CUBIC, 1e-5, 1e-4);
+
+            // a finer table is more accurate
+            TimingFunctions.useLookupTables(2048, BindingXConstants.EASING_INTERPOLATION_LINEAR);
+            assertTrue(((TimingFunctions.Easing) scope.get("easeOutElastic")).table().maxError() < 2e-5);
+        } finally {
+            TimingFunctions.useLookupTables(0, null);
+        }
+        assertNull(((TimingFunctions.Easing) scope.get("easeOutElastic")).table());
+    }
+
+    private static void assertLookupTables(Map<String,Object> scope, String[] names, String interpolation,
+                                           double maxError, double maxErrorInOut) {
+        TimingFunctions.useLookupTables(BindingXConstants.EASING_TABLE_RESOLUTION, interpolation);
+        for (String name : names) {
+            TimingFunctions.Easing easing = (TimingFunctions.Easing) scope.get(name);
+            double bound = name.startsWith("easeInOut") ? maxErrorInOut : maxError;
+            assertTrue(name + " " + easing.table(), easing.table().maxError() < bound);
+
+            // the start and the end are exact
+            assertEquals(name, 100d, easing.call4(0, 100, 50, 400), 0);
+            assertEquals(name, 150d, easing.call4(400, 100, 50, 400), 0);
+            assertEquals(name, 150d, easing.call4(500, 100, 50, 400), 0);
+            for (int t = 1; t < 4000; t++) {
+                assertEquals(name + " at " + t, easing.ease(t, 100, 50, 4000), easing.call4(t, 100, 50, 4000), bound * 50);
+            }
+            // only the two intervals on each side of the middle of an in-out easing exceed maxError
+            int steps = 100000;
+            for (int t = 1; t < steps; t++) {
+                double x = (double) t / steps;
+                double error = Math.abs(easing.ease(x, 0, 1, 1) - easing.call4(x, 0, 1, 1));
+                boolean middle = Math.abs(x - 0.5) <= 2d / BindingXConstants.EASING_TABLE_RESOLUTION;
+                assertTrue(name + " at " + x + ": " + error, error < (middle ? bound : maxError));
+            }
+        }
+    }
+
+    @Test
+    public void cubicBezier() throws Exception {
+        float[][] curves = {
+                {0.25f, 0.1f, 0.25f, 1f}, {0.42f, 0f, 1f, 1f}, {0f, 0f, 0.58f, 1f}, {0.42f, 0f, 0.58f, 1f},
+                {0.68f, -0.55f, 0.265f, 1.55f}, {0.95f, 0.05f, 0.795f, 0.035f}, {0f, 1f, 1f, 0f},
+                {0.3f, 0.3f, 0.7f, 0.7f}, {1f, 0f, 0f, 1f}, {0.1f, 0.9f, 0.2f, 1f}, {0.6f, 0.04f, 0.98f, 0.335f},
+                {0.175f, 0.885f, 0.32f, 1.275f}
+        };
+        for (float[] curve : curves) {
+            CubicBezier bezier = CubicBezier.obtain(curve[0], curve[1], curve[2], curve[3]);
+            for (int i = 0; i <= 1000; i++) {
+                double x = i / 1000d;
+                assertEquals(Arrays.toString(curve) + " at " + x, solve(curve, x), bezier.solve(x), 1e-5);
+            }
+        }
+        // all of the curves stay cached
+        for (float[] curve : curves) {
+            assertSame(CubicBezier.obtain(curve[0], curve[1], curve[2], curve[3]),
+                    CubicBezier.obtain(curve[0], curve[1], curve[2], curve[3]));
+        }
+
+        Map<String,Object> scope = new HashMap<>();
+        TimingFunctions.applyToScope(scope);
+        NativeFunction cubicBezier = (NativeFunction) scope.get("cubicBezier");
+        assertEquals(100d, cubicBezier.callN(new double[]{0, 100, 50, 400, 0.25, 0.1, 0.25, 1}), 0);
+        assertEquals(150d, cubicBezier.callN(new double[]{400, 100, 50, 400, 0.25, 0.1, 0.25, 1}), 0);
+        assertEquals(100 + 50 * solve(curves[0], 0.5),
+                cubicBezier.callN(new double[]{200, 100, 50, 400, 0.25, 0.1, 0.25, 1}), 1e-3);
+    }
+
+    // y at x of a cubic-bezier timing curve, by bisecting x(t)
+    private static double solve(float[] curve, double x) {
+        double low = 0;
+        double high = 1;
+        for (int i = 0; i < 100; i++) {
+            double t = (low + high) / 2;
+            if (bezier(curve[0], curve[2], t) < x) {
+                low = t;
+            } else {
+                high = t;
+            }
+        }
+        return bezier(curve[1], curve[3], (low + high) / 2);
+    }
+
+    private static double bezier(double p1, double p2, double t) {
+        double u = 1 - t;
+        return 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t;
+    }
+
+}
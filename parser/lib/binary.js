@@ -0,0 +1,205 @@
+/**
+ Copyright 2018 Alibaba Group
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+'use strict';
+
+/*
+ * Compact binary form of the expression syntax tree, sent as `transformed` instead of the json tree.
+ *
+ *   'bx1:' + base64(constants identifiers node)
+ *
+ * constants:   varint count, then per constant a tag and its value
+ *              0 null, 1 true, 2 false, 3 integer(zigzag varint), 4 double(8 bytes big endian),
+ *              5 string(varint byte length + utf-8)
+ * identifiers: varint count, then per identifier varint byte length + utf-8
+ * node:        prefix order, one opcode per node
+ *              0x01 constant(varint index), 0x02 identifier(varint index),
+ *              0x03 call(varint argument count, callee, arguments...), 0x04 conditional(test, consequent, alternate),
+ *              0x05 not(operand), 0x10 + operator index(left, right) for the binary operators below
+ *
+ * The android runtime decodes it in com.alibaba.android.bindingx.core.internal.ExpressionDecoder.
+ */
+
+var PREFIX = 'bx1:';
+
+var OP_CONSTANT = 0x01;
+var OP_IDENTIFIER = 0x02;
+var OP_CALL = 0x03;
+var OP_CONDITIONAL = 0x04;
+var OP_NOT = 0x05;
+var OP_BINARY = 0x10;
+
+var BINARY_OPERATORS = ['+', '-', '*', '/', '%', '**', '>', '<', '>=', '<=', '==', '===', '!=', '!==', '&&', '||'];
+
+var TAG_NULL = 0;
+var TAG_TRUE = 1;
+var TAG_FALSE = 2;
+var TAG_INTEGER = 3;
+var TAG_DOUBLE = 4;
+var TAG_STRING = 5;
+
+var BASE64 = 'ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/';
+
+function encode(tree) {
+  if (typeof tree === 'string') {
+    tree = JSON.parse(tree);
+  }
+  var constants = [];
+  var constantIndexes = Object.create(null);
+  var identifiers = [];
+  var identifierIndexes = Object.create(null);
+  var code = [];
+
+  function constant(value) {
+    var key = typeof value + ':' + value;
+    if (!(key in constantIndexes)) {
+      constantIndexes[key] = constants.length;
+      constants.push(value);
+    }
+    return constantIndexes[key];
+  }
+
+  function identifier(name) {
+    if (!(name in identifierIndexes)) {
+      identifierIndexes[name] = identifiers.length;
+      identifiers.push(name);
+    }
+    return identifierIndexes[name];
+  }
+
+  function walk(node) {
+    var children = node.children || [];
+    switch (node.type) {
+      case 'StringLiteral':
+      case 'NumericLiteral':
+      case 'BooleanLiteral':
+        code.push(OP_CONSTANT);
+        writeVarint(code, constant(node.value));
+        return;
+      case 'Identifier':
+        code.push(OP_IDENTIFIER);
+        writeVarint(code, identifier(node.value));
+        return;
+      case 'CallExpression':
+        var args = children[1].children;
+        code.push(OP_CALL);
+        writeVarint(code, args.length);
+        walk(children[0]);
+        args.forEach(walk);
+        return;
+      case '?':
+        code.push(OP_CONDITIONAL);
+        children.forEach(walk);
+        return;
+      case '!':
+        code.push(OP_NOT);
+        walk(children[0]);
+        return;
+    }
+    var operator = BINARY_OPERATORS.indexOf(node.type);
+    if (operator >= 0) {
+      code.push(OP_BINARY + operator);
+      walk(children[0]);
+      walk(children[1]);
+      return;
+    }
+    // unknown nodes(e.g. NullLiteral) evaluate to null, like they do in the json form
+    code.push(OP_CONSTANT);
+    writeVarint(code, constant(null));
+  }
+
+  walk(tree);
+
+  var bytes = [];
+  writeVarint(bytes, constants.length);
+  constants.forEach(function (value) {
+    writeConstant(bytes, value);
+  });
+  writeVarint(bytes, identifiers.length);
+  identifiers.forEach(function (name) {
+    writeString(bytes, name);
+  });
+  return PREFIX + toBase64(bytes.concat(code));
+}
+
+function writeConstant(bytes, value) {
+  if (value === null || value === undefined) {
+    bytes.push(TAG_NULL);
+  } else if (value === true) {
+    bytes.push(TAG_TRUE);
+  } else if (value === false) {
+    bytes.push(TAG_FALSE);
+  } else if (typeof value === 'number') {
+    if (value % 1 === 0 && Math.abs(value) <= 0x3fffffff && !(value === 0 && 1 / value < 0)) {
+      bytes.push(TAG_INTEGER);
+      writeVarint(bytes, value < 0 ? -2 * value - 1 : 2 * value);
+    } else {
+      bytes.push(TAG_DOUBLE);
+      var view = new DataView(new ArrayBuffer(8));
+      view.setFloat64(0, value);
+      for (var i = 0; i < 8; i++) {
+        bytes.push(view.getUint8(i));
+      }
+    }
+  } else {
+    bytes.push(TAG_STRING);
+    writeString(bytes, String(value));
+  }
+}
+
+function writeVarint(bytes, value) {
+  while (value >= 0x80) {
+    bytes.push((value & 0x7f) | 0x80);
+    value = Math.floor(value / 128);
+  }
+  bytes.push(value);
+}
+
+function writeString(bytes, text) {
+  var utf8 = [];
+  for (var i = 0; i < text.length; i++) {
+    var c = text.charCodeAt(i);
+    if (c >= 0xd800 && c < 0xdc00 && i + 1 < text.length) {
+      c = 0x10000 + ((c - 0xd800) << 10) + (text.charCodeAt(++i) - 0xdc00);
+    }
+    if (c < 0x80) {
+      utf8.push(c);
+    } else if (c < 0x800) {
+      utf8.push(0xc0 | (c >> 6), 0x80 | (c & 0x3f));
+    } else if (c < 0x10000) {
+      utf8.push(0xe0 | (c >> 12), 0x80 | ((c >> 6) & 0x3f), 0x80 | (c & 0x3f));
+    } else {
+      utf8.push(0xf0 | (c >> 18), 0x80 | ((c >> 12) & 0x3f), 0x80 | ((c >> 6) & 0x3f), 0x80 | (c & 0x3f));
+    }
+  }
+  writeVarint(bytes, utf8.length);
+  Array.prototype.push.apply(bytes, utf8);
+}
+
+function toBase64(bytes) {
+  var result = '';
+  for (var i = 0; i < bytes.length; i += 3) {
+    var n = (bytes[i] << 16) | ((bytes[i + 1] || 0) << 8) | (bytes[i + 2] || 0);
+    result += BASE64[(n >> 18) & 63] + BASE64[(n >> 12) & 63];
+    result += i + 1 < bytes.length ? BASE64[(n >> 6) & 63] : '=';
+    result += i + 2 < bytes.length ? BASE64[n & 63] : '=';
+  }
+  return result;
+}
+
+module.exports = {
+  encode: encode
+};
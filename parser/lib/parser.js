@@ -16,6 +16,8 @@
 
 'use strict';
 
+var binary = require('./binary');
+
 var lex = {
   InputElementDiv: '<WhiteSpace>|<LineTerminator>|<ReservedWord>|<Identifier>|<NumericLiteral>|<Punctuator>|<StringLiteral>',
   InputElementRegExp: '<WhiteSpace>|<LineTerminator>|<ReservedWord>|<Identifier>|<NumericLiteral>|<Punctuator>|<StringLiteral>',
@@ -486,6 +488,14 @@ function parse(originExp) {
   return JSON.stringify(visit(exp.tree), null);
 }
 
+// same as parse, but returns the compact binary form that native runtimes decode without a json parser
+function parseBinary(originExp) {
+  let exp = new JavaScriptExpression(originExp);
+  return binary.encode(visit(exp.tree));
+}
+
 module.exports = {
-  parse: parse
+  parse: parse,
+  parseBinary: parseBinary,
+  encode: binary.encode
 };
\ No newline at end of file
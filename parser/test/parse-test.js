@@ -40,6 +40,19 @@ describe('parse', function(){
     expect(result).to.be.equal('{"type":"CallExpression","children":[{"type":"Identifier","value":"easeOutElastic"},{"type":"Arguments","children":[{"type":"Identifier","value":"t"},{"type":"NumericLiteral","value":309},{"type":"NumericLiteral","value":-200},{"type":"NumericLiteral","value":1000}]}]}');
   });
 
+  it('should encode a syntax tree in the binary form',function(){
+    let result = parser.parseBinary(`x+1`);
+    expect(result).to.be.equal('bx1:AQMCAQF4EAIAAQA=');
+    expect(parser.encode(parse(`x+1`))).to.be.equal(result);
+  });
+
+  it('should encode doubles, strings and calls in the binary form',function(){
+    let result = parser.parseBinary(`evaluateColor('#ff0000',y,x*0.5)`);
+    expect(result).to.be.a('string');
+    expect(result.indexOf('bx1:')).to.be.equal(0);
+    expect(result.length).to.be.below(parse(`evaluateColor('#ff0000',y,x*0.5)`).length / 2);
+  });
+
 
 
 
@@ -25,6 +25,7 @@ import android.widget.TextView;
 import com.alibaba.android.bindingx.core.LogProxy;
 import com.alibaba.android.bindingx.core.PlatformManager;
 import com.alibaba.android.bindingx.core.internal.Utils;
+import com.alibaba.android.bindingx.core.internal.Vec2;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.uimanager.ReactStylesDiffMap;
 import com.facebook.react.uimanager.UIImplementation;
@@ -136,6 +137,13 @@ final class RNViewUpdateService {
                            @NonNull Map<String,Object> config,
                            @NonNull UIImplementation implementation) {
 
+            if(cmd instanceof Vec2) {
+                Vec2 v1 = (Vec2) cmd;
+                targetView.setTranslationX((float) getRealSize(v1.x,translator));
+                targetView.setTranslationY((float) getRealSize(v1.y,translator));
+                return;
+            }
+
             if(!(cmd instanceof ArrayList)) {
                 return;
             }
@@ -213,6 +221,10 @@ final class RNViewUpdateService {
                 final double val = (double) cmd;
                 targetView.setScaleX((float) val);
                 targetView.setScaleY((float) val);
+            } else if(cmd instanceof Vec2) {
+                Vec2 v2 = (Vec2) cmd;
+                targetView.setScaleX((float) v2.x);
+                targetView.setScaleY((float) v2.y);
             } else if(cmd instanceof ArrayList) {
                 ArrayList<Object> l2 = (ArrayList<Object>) cmd;
                 if(l2.size() >= 2 && l2.get(0) instanceof Double && l2.get(1) instanceof Double) {
@@ -469,6 +481,10 @@ final class RNViewUpdateService {
                 final double val = (double) cmd;
                 scrollView.setScrollX((int) getRealSize(val,translator));
                 scrollView.setScrollY((int) getRealSize(val,translator));
+            } else if(cmd instanceof Vec2) {
+                Vec2 v = (Vec2) cmd;
+                scrollView.setScrollX((int) getRealSize(v.x,translator));
+                scrollView.setScrollY((int) getRealSize(v.y,translator));
             } else if(cmd instanceof ArrayList) {
                 ArrayList<Object> l = (ArrayList<Object>) cmd;
                 if(l.size() >= 2 && l.get(0) instanceof Double && l.get(1) instanceof Double) {
@@ -303,7 +303,7 @@ public final class ReactBindingXModule extends ReactContextBaseJavaModule implem
                         }
                     }
                 })
-                .withViewUpdater(new PlatformManager.IViewUpdater() {
+                .withViewUpdater(new PlatformManager.IBatchViewUpdater() {
                     @Override
                     public void synchronouslyUpdateViewOnUIThread(@NonNull final View targetView,
                                                                   @NonNull final String propertyName,
@@ -316,17 +316,9 @@ public final class ReactBindingXModule extends ReactContextBaseJavaModule implem
                             ref = (String) extension[0];
                         }
                         if (reactContext != null && !TextUtils.isEmpty(ref)) {
-                            int tag = -1;
-                            ref = ref.trim();
-                            try {
-                                double value = Double.valueOf(ref);
-                                tag = (int) value;
-                            } catch (Exception e) {
-                                //ignore
-                            }
-                            final int finalTag = tag;
+                            final int finalTag = parseTag(ref);
                             UIManagerModule module = reactContext.getNativeModule(UIManagerModule.class);
-                            if (module != null && tag != -1) {
+                            if (module != null && finalTag != -1) {
                                 final UIImplementation implementation = module.getUIImplementation();
                                 if (implementation != null) {
                                     UiThreadUtil.runOnUiThread(new Runnable() {
@@ -347,6 +339,28 @@ public final class ReactBindingXModule extends ReactContextBaseJavaModule implem
                             }
                         }
                     }
+
+                    @Override
+                    public void applyUpdate(@NonNull View targetView,
+                                            @NonNull PlatformManager.IViewUpdate update,
+                                            @NonNull PlatformManager.IDeviceResolutionTranslator translator) {
+                        int tag = TextUtils.isEmpty(update.getTargetRef()) ? -1 : parseTag(update.getTargetRef());
+                        UIManagerModule module = reactContext == null ? null : reactContext.getNativeModule(UIManagerModule.class);
+                        UIImplementation implementation = module == null ? null : module.getUIImplementation();
+                        if (implementation == null || tag == -1) {
+                            return;
+                        }
+                        for (int i = 0, size = update.size(); i < size; i++) {
+                            RNViewUpdateService.findUpdater(update.propertyAt(i)).update(
+                                    tag,
+                                    targetView,
+                                    update.valueAt(i),
+                                    translator,
+                                    update.configAt(i),
+                                    implementation
+                            );
+                        }
+                    }
                 })
                 .withDeviceResolutionTranslator(new PlatformManager.IDeviceResolutionTranslator() {
                     @Override
@@ -362,6 +376,18 @@ public final class ReactBindingXModule extends ReactContextBaseJavaModule implem
                 .build();
     }
 
+    /**
+     * @return the react tag of {@code ref}, or -1 if it is not a number
+     * */
+    private static int parseTag(@NonNull String ref) {
+        try {
+            return (int) (double) Double.valueOf(ref.trim());
+        } catch (Exception e) {
+            //ignore
+            return -1;
+        }
+    }
+
 
     @Override
     public void onCatalystInstanceDestroy() {
@@ -33,9 +33,14 @@ import java.util.Map;
 
 public interface IWXViewUpdater {
 
+    /**
+     * @param inline true if the caller is on the UI thread and the view has to be updated right away,
+     *               false if the update is posted to the view
+     * */
     void update(@NonNull WXComponent component,
                 @NonNull View targetView,
                 @NonNull Object cmd,
                 @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                @NonNull Map<String, Object> config);
+                @NonNull Map<String, Object> config,
+                boolean inline);
 }
@@ -246,7 +246,7 @@ public class WXBindingXModule extends WXSDKEngine.DestroyableModule {
                         return WXModuleUtils.findViewByRef(instanceId, ref);
                     }
                 })
-                .withViewUpdater(new PlatformManager.IViewUpdater() {
+                .withViewUpdater(new PlatformManager.IBatchViewUpdater() {
 
                     @Override
                     public void synchronouslyUpdateViewOnUIThread(@NonNull View targetView,
@@ -274,9 +274,17 @@ public class WXBindingXModule extends WXSDKEngine.DestroyableModule {
                                 targetView,
                                 propertyValue,
                                 translator,
-                                config);
+                                config,
+                                false);
 
                     }
+
+                    @Override
+                    public void applyUpdate(@NonNull View targetView,
+                                            @NonNull PlatformManager.IViewUpdate update,
+                                            @NonNull PlatformManager.IDeviceResolutionTranslator translator) {
+                        WXViewUpdateService.applyAll(targetView, update, translator);
+                    }
                 })
                 .withDeviceResolutionTranslator(new PlatformManager.IDeviceResolutionTranslator() {
                     @Override
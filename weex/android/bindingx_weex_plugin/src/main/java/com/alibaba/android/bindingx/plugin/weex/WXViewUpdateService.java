@@ -32,6 +32,8 @@ import android.widget.TextView;
 import com.alibaba.android.bindingx.core.LogProxy;
 import com.alibaba.android.bindingx.core.PlatformManager;
 import com.alibaba.android.bindingx.core.internal.Utils;
+import com.alibaba.android.bindingx.core.internal.Vec2;
+import com.alibaba.android.bindingx.core.internal.Vec4;
 import com.taobao.weex.ui.component.WXComponent;
 import com.taobao.weex.ui.component.WXScroller;
 import com.taobao.weex.ui.component.WXText;
@@ -106,12 +108,35 @@ final class WXViewUpdateService {
                            @NonNull View targetView,
                            @NonNull Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
             //oops
         }
     }
 
-    private static void postRunnable(View target, Runnable runnable) {
+    /**
+     * apply all properties of {@code update} right away, on the UI thread.
+     * */
+    static void applyAll(@NonNull View targetView,
+                         @NonNull PlatformManager.IViewUpdate update,
+                         @NonNull PlatformManager.IDeviceResolutionTranslator translator) {
+        WXComponent component = WXModuleUtils.findComponentByRef(update.getInstanceId(), update.getTargetRef());
+        if(component == null) {
+            LogProxy.e("unexpected error. component not found [ref:"+update.getTargetRef()+",instanceId:"+update.getInstanceId()+"]");
+            return;
+        }
+        for (int i = 0, size = update.size(); i < size; i++) {
+            findUpdater(update.propertyAt(i)).update(component, targetView, update.valueAt(i),
+                    translator, update.configAt(i), true);
+        }
+    }
+
+    private static void postRunnable(View target, boolean inline, Runnable runnable) {
+        if(inline) {
+            // already on the UI thread, see applyAll
+            runnable.run();
+            return;
+        }
         if(Build.VERSION.SDK_INT >= 16) {
             target.postOnAnimation(runnable);
         } else {
@@ -127,26 +152,37 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
             final View scrollView = findScrollTarget(component);
             if(scrollView == null) {
                 return;
             }
             if(cmd instanceof Double) {
                 final double val = (double) cmd;
-                postRunnable(scrollView, new Runnable() {
+                postRunnable(scrollView, inline, new Runnable() {
                     @Override
                     public void run() {
                         scrollView.setScrollX((int) getRealSize(val,translator));
                         scrollView.setScrollY((int) getRealSize(val,translator));
                     }
                 });
+            } else if(cmd instanceof Vec2) {
+                final double x = ((Vec2) cmd).x;
+                final double y = ((Vec2) cmd).y;
+                postRunnable(scrollView, inline, new Runnable() {
+                    @Override
+                    public void run() {
+                        scrollView.setScrollX((int) getRealSize(x,translator));
+                        scrollView.setScrollY((int) getRealSize(y,translator));
+                    }
+                });
             } else if(cmd instanceof ArrayList) {
                 ArrayList<Object> l = (ArrayList<Object>) cmd;
                 if(l.size() >= 2 && l.get(0) instanceof Double && l.get(1) instanceof Double) {
                     final double x = (double) l.get(0);
                     final double y = (double) l.get(1);
-                    postRunnable(scrollView, new Runnable() {
+                    postRunnable(scrollView, inline, new Runnable() {
                         @Override
                         public void run() {
                             scrollView.setScrollX((int) getRealSize(x,translator));
@@ -166,7 +202,8 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
             final View scrollView = findScrollTarget(component);
             if(scrollView == null) {
                 return;
@@ -175,7 +212,7 @@ final class WXViewUpdateService {
                 return;
             }
             final double val = (double) cmd;
-            postRunnable(scrollView, new Runnable() {
+            postRunnable(scrollView, inline, new Runnable() {
                 @Override
                 public void run() {
                     scrollView.setScrollX((int) getRealSize(val,translator));
@@ -191,7 +228,8 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
@@ -200,7 +238,7 @@ final class WXViewUpdateService {
                 return;
             }
             final double val = (double) cmd;
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     scrollView.setScrollY((int) getRealSize(val,translator));
@@ -216,13 +254,14 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
             double val = (double) cmd;
             final float alpha = (float) (val);
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     targetView.setAlpha(alpha);
@@ -238,24 +277,31 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
-
-            if(!(cmd instanceof ArrayList)) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
+
+            final double x1;
+            final double y1;
+            if(cmd instanceof Vec2) {
+                x1 = ((Vec2) cmd).x;
+                y1 = ((Vec2) cmd).y;
+            } else if(cmd instanceof ArrayList) {
+                ArrayList<Object> list = (ArrayList<Object>) cmd;
+                if(!(list.size() >= 2 && list.get(0) instanceof Double && list.get(1) instanceof Double)) {
+                    return;
+                }
+                x1 = (double) list.get(0);
+                y1 = (double) list.get(1);
+            } else {
                 return;
             }
-
-            ArrayList<Object> list = (ArrayList<Object>) cmd;
-            if(list.size() >= 2 && list.get(0) instanceof Double && list.get(1) instanceof Double) {
-                final double x1 = (double) list.get(0);
-                final double y1 = (double) list.get(1);
-                postRunnable(targetView, new Runnable() {
-                    @Override
-                    public void run() {
-                        targetView.setTranslationX((float) getRealSize(x1,translator));
-                        targetView.setTranslationY((float) getRealSize(y1,translator));
-                    }
-                });
-            }
+            postRunnable(targetView, inline, new Runnable() {
+                @Override
+                public void run() {
+                    targetView.setTranslationX((float) getRealSize(x1,translator));
+                    targetView.setTranslationY((float) getRealSize(y1,translator));
+                }
+            });
         }
     }
 
@@ -266,12 +312,13 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
             final double d = (double) cmd;
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     targetView.setTranslationX((float) getRealSize(d,translator));
@@ -287,12 +334,13 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
             final double d = (double) cmd;
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     targetView.setTranslationY((float) getRealSize(d,translator));
@@ -308,8 +356,13 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull final Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull final Map<String,Object> config) {
-            postRunnable(targetView, new Runnable() {
+                           @NonNull final Map<String,Object> config,
+                           boolean inline) {
+            // vector values are reused by the next frame, so read them now
+            final boolean isVector = cmd instanceof Vec2;
+            final double vectorX = isVector ? ((Vec2) cmd).x : 0;
+            final double vectorY = isVector ? ((Vec2) cmd).y : 0;
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     int perspective = WXUtils.getInt(config.get(PERSPECTIVE));
@@ -330,6 +383,9 @@ final class WXViewUpdateService {
                         final double val = (double) cmd;
                         targetView.setScaleX((float) val);
                         targetView.setScaleY((float) val);
+                    } else if(isVector) {
+                        targetView.setScaleX((float) vectorX);
+                        targetView.setScaleY((float) vectorY);
                     } else if(cmd instanceof ArrayList) {
                         ArrayList<Object> list = (ArrayList<Object>) cmd;
                         if(list.size() >= 2 && list.get(0) instanceof Double && list.get(1) instanceof Double) {
@@ -352,11 +408,12 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull final Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull final Map<String,Object> config) {
+                           @NonNull final Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     Pair<Float,Float> pivot = Utils.parseTransformOrigin(
@@ -381,11 +438,12 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull final Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull final Map<String,Object> config) {
+                           @NonNull final Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     Pair<Float,Float> pivot = Utils.parseTransformOrigin(
@@ -410,13 +468,14 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull final Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull final Map<String,Object> config) {
+                           @NonNull final Map<String,Object> config,
+                           boolean inline) {
 
             if(!(cmd instanceof Double)) {
                 return;
             }
 
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     int perspective = WXUtils.getInt(config.get(PERSPECTIVE));
@@ -447,11 +506,12 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull final Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull final Map<String,Object> config) {
+                           @NonNull final Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     int perspective = WXUtils.getInt(config.get(PERSPECTIVE));
@@ -483,11 +543,12 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull final Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull final Map<String,Object> config) {
+                           @NonNull final Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     int perspective = WXUtils.getInt(config.get(PERSPECTIVE));
@@ -519,14 +580,15 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
             double d = (double) cmd;
             final ViewGroup.LayoutParams params1 = targetView.getLayoutParams();
             params1.width = (int) getRealSize(d,translator);
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     targetView.setLayoutParams(params1);
@@ -542,14 +604,15 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
             double d = (double) cmd;
             final ViewGroup.LayoutParams params2 = targetView.getLayoutParams();
             params2.height = (int) getRealSize(d,translator);
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     targetView.setLayoutParams(params2);
@@ -565,12 +628,13 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String,Object> config) {
+                           @NonNull Map<String,Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Integer)) {
                 return;
             }
             final int d = (int) cmd;
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     Drawable drawable = targetView.getBackground();
@@ -595,12 +659,13 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull final Object cmd,
                            @NonNull PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String, Object> config) {
+                           @NonNull Map<String, Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Integer)) {
                 return;
             }
             final int d = (int) cmd;
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     if(targetView instanceof TextView) {
@@ -639,12 +704,13 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String, Object> config) {
+                           @NonNull Map<String, Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
             final double d = (double) cmd;
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     Drawable drawable = targetView.getBackground();
@@ -664,12 +730,13 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String, Object> config) {
+                           @NonNull Map<String, Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
             final double d = (double) cmd;
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     Drawable drawable = targetView.getBackground();
@@ -689,12 +756,13 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String, Object> config) {
+                           @NonNull Map<String, Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
             final double d = (double) cmd;
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     Drawable drawable = targetView.getBackground();
@@ -714,12 +782,13 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String, Object> config) {
+                           @NonNull Map<String, Object> config,
+                           boolean inline) {
             if(!(cmd instanceof Double)) {
                 return;
             }
             final double d = (double) cmd;
-            postRunnable(targetView, new Runnable() {
+            postRunnable(targetView, inline, new Runnable() {
                 @Override
                 public void run() {
                     Drawable drawable = targetView.getBackground();
@@ -739,15 +808,33 @@ final class WXViewUpdateService {
                            @NonNull final View targetView,
                            @NonNull Object cmd,
                            @NonNull final PlatformManager.IDeviceResolutionTranslator translator,
-                           @NonNull Map<String, Object> config) {
-
-            if(cmd instanceof ArrayList) {
+                           @NonNull Map<String, Object> config,
+                           boolean inline) {
+
+            if(cmd instanceof Vec4) {
+                // read now, vector values are reused by the next frame
+                final Vec4 radii = (Vec4) cmd;
+                final double topLeft = radii.x, topRight = radii.y, bottomLeft = radii.z, bottomRight = radii.w;
+                postRunnable(targetView, inline, new Runnable() {
+                    @Override
+                    public void run() {
+                        Drawable drawable = targetView.getBackground();
+                        if(drawable != null && drawable instanceof BorderDrawable) {
+                            BorderDrawable borderDrawable = (BorderDrawable) drawable;
+                            borderDrawable.setBorderRadius(BorderDrawable.BORDER_TOP_LEFT_RADIUS, (float) getRealSize(topLeft,translator));
+                            borderDrawable.setBorderRadius(BorderDrawable.BORDER_TOP_RIGHT_RADIUS, (float) getRealSize(topRight,translator));
+                            borderDrawable.setBorderRadius(BorderDrawable.BORDER_BOTTOM_LEFT_RADIUS, (float) getRealSize(bottomLeft,translator));
+                            borderDrawable.setBorderRadius(BorderDrawable.BORDER_BOTTOM_RIGHT_RADIUS, (float) getRealSize(bottomRight,translator));
+                        }
+                    }
+                });
+            } else if(cmd instanceof ArrayList) {
                 final ArrayList<Object> l = (ArrayList<Object>) cmd;
                 if(l.size() != 4) {
                     return;
                 }
 
-                postRunnable(targetView, new Runnable() {
+                postRunnable(targetView, inline, new Runnable() {
                     @Override
                     public void run() {
                         Drawable drawable = targetView.getBackground();
@@ -776,7 +863,7 @@ final class WXViewUpdateService {
                 });
             } else if(cmd instanceof Double) {
                 final double value = (double) cmd;
-                postRunnable(targetView, new Runnable() {
+                postRunnable(targetView, inline, new Runnable() {
                     @Override
                     public void run() {
                         Drawable drawable = targetView.getBackground();